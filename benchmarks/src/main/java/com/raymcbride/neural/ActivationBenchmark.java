@@ -0,0 +1,56 @@
+package com.raymcbride.neural;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The ActivationBenchmark class measures each implementation of the sigmoid activation
+ * function over a block of values spread across the range seen by the Hidden Neurons
+ *
+ * @see Activation
+ *
+ * @author Ray McBride
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivationBenchmark{
+
+	/**
+	 * The implementation of the sigmoid
+	 */
+	@Param({"EXACT", "TABLE", "RATIONAL"})
+	public String activation;
+
+	private Activation sigmoid;
+	private double[] values;
+
+	/**
+	 * Creates a block of 1024 values between -10 and 10
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		sigmoid = Activation.forName(activation);
+		Random random = new Random(1L);
+		values = new double[1024];
+		for(int i = 0; i < values.length; i++)
+			values[i] = random.nextDouble() * 20 - 10;
+	}
+
+	/**
+	 * Calculates the sigmoid of every value in the block
+	 *
+	 * @return the sum of the sigmoids
+	 */
+	@Benchmark
+	public double sigmoid(){
+		double sum = 0;
+		for(int i = 0; i < values.length; i++)
+			sum += sigmoid.sigmoid(values[i]);
+		return sum;
+	}
+}
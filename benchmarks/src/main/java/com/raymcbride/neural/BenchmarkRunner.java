@@ -0,0 +1,23 @@
+package com.raymcbride.neural;
+
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * The BenchmarkRunner class is the main class of the benchmarks jar. It accepts the usual
+ * JMH command line options and always adds the GC profiler, which reports the allocation
+ * rate per operation alongside the timings
+ *
+ * @author Ray McBride
+ */
+public class BenchmarkRunner{
+
+	public static void main(String[] args) throws Exception{
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,111 @@
+package com.raymcbride.neural;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The KernelBenchmark class measures each kernel over the dense loops between the Input and
+ * Hidden layers: the weighted sums of the Hidden Neurons, the weight changes with momentum
+ * and the weight adjustments, across a range of Hidden layer sizes. The forked JVM adds the
+ * <code>jdk.incubator.vector</code> module, so it needs Java 16 or later.
+ *
+ * @see Kernel
+ *
+ * @author Ray McBride
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark{
+
+	/**
+	 * The kernel
+	 */
+	@Param({"SCALAR", "VECTOR"})
+	public String kernel;
+
+	/**
+	 * The number of Input Neurons
+	 */
+	@Param({"15"})
+	public int inputs;
+
+	/**
+	 * The number of Hidden Neurons
+	 */
+	@Param({"5", "16", "64", "256", "1024"})
+	public int hiddens;
+
+	private Kernel loops;
+	private double[] inputOutput;
+	private double[] inputToHidden;
+	private double[] inputToHiddenChange;
+	private double[] hiddenSum;
+	private double[] hiddenRate;
+
+	/**
+	 * Fills the layers with random values
+	 *
+	 * @throws IllegalStateException if the kernel is not available on this JVM
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		loops = Kernel.forName(kernel);
+		if(!loops.getName().equals(kernel))
+			throw new IllegalStateException("The " + kernel + " kernel is not available on this JVM");
+		Random random = new Random(1L);
+		inputOutput = new double[inputs];
+		inputToHidden = new double[inputs * hiddens];
+		inputToHiddenChange = new double[inputs * hiddens];
+		hiddenSum = new double[hiddens];
+		hiddenRate = new double[hiddens];
+		for(int i = 0; i < inputs; i++)
+			inputOutput[i] = random.nextDouble();
+		for(int k = 0; k < inputToHidden.length; k++){
+			inputToHidden[k] = random.nextDouble() - 0.5;
+			inputToHiddenChange[k] = (random.nextDouble() - 0.5) * 1e-3;
+		}
+		for(int j = 0; j < hiddens; j++)
+			hiddenRate[j] = (random.nextDouble() - 0.5) * 1e-3;
+	}
+
+	/**
+	 * Calculates the weighted sums of the Hidden Neurons
+	 *
+	 * @return the Hidden summations
+	 */
+	@Benchmark
+	public double[] sendToHidden(){
+		Arrays.fill(hiddenSum, 0);
+		for(int i = 0; i < inputs; i++)
+			loops.addRow(inputOutput[i], inputToHidden, i * hiddens, hiddenSum);
+		return hiddenSum;
+	}
+
+	/**
+	 * Calculates the weight changes between the Input and Hidden Neurons
+	 *
+	 * @return the weight changes
+	 */
+	@Benchmark
+	public double[] calculateHiddenWeightChange(){
+		for(int i = 0; i < inputs; i++)
+			loops.calculateRowChange(inputOutput[i], hiddenRate, 0.5, inputToHiddenChange, i * hiddens);
+		return inputToHiddenChange;
+	}
+
+	/**
+	 * Adds the weight changes to the weights between the Input and Hidden Neurons
+	 *
+	 * @return the weights
+	 */
+	@Benchmark
+	public double[] adjustHiddenWeights(){
+		loops.adjustWeights(inputToHidden, inputToHiddenChange);
+		return inputToHidden;
+	}
+}
@@ -0,0 +1,160 @@
+package com.raymcbride.neural;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The NetworkBenchmark class measures the forward pass, a single training step and a full
+ * training epoch over the training data, for each network type and engine across a range
+ * of topologies
+ *
+ * @see BenchmarkRunner
+ *
+ * @author Ray McBride
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark{
+
+	/**
+	 * The engine, either the Neuron and Synapse object graph or the flat engine
+	 */
+	@Param({"graph", "flat"})
+	public String engine;
+
+	/**
+	 * The network type, with the number of delays for a TDNN
+	 */
+	@Param({"MLP", "TDNN-1", "TDNN-2", "TDNN-3", "RNN"})
+	public String network;
+
+	/**
+	 * The number of Input Neurons
+	 */
+	@Param({"5", "15"})
+	public int inputs;
+
+	/**
+	 * The number of Hidden Neurons
+	 */
+	@Param({"5", "15", "100", "500"})
+	public int hiddens;
+
+	/**
+	 * The location of the training data
+	 */
+	@Param({"../data/Train500.xml"})
+	public String trainingFile;
+
+	/**
+	 * The implementation of the sigmoid activation function
+	 */
+	@Param({"EXACT"})
+	public String activation;
+
+	/**
+	 * The kernel of the flat engine
+	 */
+	@Param({"SCALAR"})
+	public String kernel;
+
+	private Network graph;
+	private FlatNetwork flat;
+	private int size;
+	private int position;
+
+	/**
+	 * Loads the training data and creates the network with one training epoch
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		double[] data = new DataProcessor(new SeriesReader(trainingFile, "indexValue").getValues()).scale();
+		String type = network;
+		int delays = 0;
+		if(network.startsWith(Configuration.TDNN)){
+			type = Configuration.TDNN;
+			delays = Integer.parseInt(network.substring(Configuration.TDNN.length() + 1));
+		}
+		Configuration configuration = new Configuration(type, inputs, hiddens, delays, 0.5, 1, 0.2, 0.5, new int[]{1}, "benchmark_", 1L);
+		configuration.setActivation(Activation.forName(activation));
+		configuration.setKernel(Kernel.forName(kernel));
+		graph = configuration.createNetwork();
+		graph.setInputData(data);
+		size = data.length;
+		if(engine.equals("flat")){
+			flat = graph.snapshot();
+			flat.setInputData(data);
+		}
+	}
+
+	/**
+	 * Moves on to the next input window, going back to the first after the last, as an
+	 * epoch does
+	 */
+	private void step(){
+		if(flat != null)
+			flat.setNextInput(position);
+		else graph.setNextInput(position);
+		position = (position + 1) % size;
+	}
+
+	/**
+	 * Passes the next input window forward to the Output Neuron
+	 *
+	 * @return the output error
+	 */
+	@Benchmark
+	public double forward(){
+		step();
+		if(flat != null){
+			flat.propagate();
+			return flat.calculateError();
+		}
+		graph.propagate();
+		return graph.calculateError();
+	}
+
+	/**
+	 * Passes the next input window forward and the error back, adjusting the weights
+	 *
+	 * @return the output error
+	 */
+	@Benchmark
+	public double trainStep(){
+		double error;
+		step();
+		if(flat != null){
+			flat.propagate();
+			error = flat.calculateError();
+			flat.backPropagate();
+			return error;
+		}
+		graph.propagate();
+		error = graph.calculateError();
+		graph.backPropagate();
+		return error;
+	}
+
+	/**
+	 * Trains the network for one epoch over the training data. The graph trains through the
+	 * flat engine, so its epoch is stepped through here one window at a time.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void epoch(){
+		if(flat != null)
+			flat.train(flat.getInputData());
+		else{
+			for(int i = 0; i < size; i++){
+				graph.setNextInput(i);
+				graph.propagate();
+				graph.calculateError();
+				graph.backPropagate();
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.raymcbride.neural;
+
+/**
+ * The Activation class is the abstract base class for the implementations of the sigmoid
+ * activation function. <code>EXACT</code> calls <code>Math.exp</code> and is the default.
+ * <code>TABLE</code> and <code>RATIONAL</code> are cheaper approximations, each with a
+ * documented maximum absolute error, for networks where a tiny loss of accuracy is worth
+ * faster activations.
+ *
+ * @see ExactActivation
+ * @see TableActivation
+ * @see RationalActivation
+ *
+ * @author Ray McBride
+ */
+public abstract class Activation{
+
+	/**
+	 * The exact sigmoid, with no error
+	 */
+	public static final Activation EXACT = new ExactActivation();
+
+	/**
+	 * The sigmoid interpolated from a lookup table, with a maximum error of 7.5E-7
+	 */
+	public static final Activation TABLE = new TableActivation();
+
+	/**
+	 * The sigmoid from a rational approximation of tanh, with a maximum error of 5E-5
+	 */
+	public static final Activation RATIONAL = new RationalActivation();
+
+	/**
+	 * Gets an activation by name
+	 *
+	 * @param name The name, one of EXACT, TABLE or RATIONAL
+	 *
+	 * @return the activation
+	 */
+	public static Activation forName(String name){
+		if(name.equals(EXACT.getName()))
+			return EXACT;
+		if(name.equals(TABLE.getName()))
+			return TABLE;
+		if(name.equals(RATIONAL.getName()))
+			return RATIONAL;
+		throw new IllegalArgumentException("Unknown activation " + name);
+	}
+
+	/**
+	 * Calculates the sigmoid of a value, which has already been multiplied by the slope. A value
+	 * which is not a number gives a result which is not a number.
+	 *
+	 * @param x The value
+	 *
+	 * @return the sigmoid, between 0 and 1
+	 */
+	public abstract double sigmoid(double x);
+
+	/**
+	 * Gets the largest absolute difference from the exact sigmoid over all values
+	 *
+	 * @return the maximum error
+	 */
+	public abstract double getMaximumError();
+
+	/**
+	 * Gets the name of the activation
+	 *
+	 * @return the name
+	 */
+	public abstract String getName();
+}
@@ -0,0 +1,263 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.*;
+
+/**
+ * The AsyncOutputFile class creates log files which are written by a background thread.
+ * Each line is a label and a value. <code>writeToFile</code> only places them in a bounded
+ * ring buffer, without locking or allocating, and a single writer thread shared by every
+ * open file formats the values straight into a byte buffer and writes it out in large
+ * blocks, optionally compressed with gzip.
+ *
+ * Each file must be written by one thread at a time. <code>closeFile</code> waits until every
+ * line has been written and the file is closed. A file which cannot be written is reported
+ * once and its remaining lines are dropped, without stopping the writer for the other files.
+ * The writer parks while no file is open, and is started again if it has stopped.
+ *
+ * @see OutputFile
+ *
+ * @author Ray McBride
+ */
+public class AsyncOutputFile{
+
+	private static final int CAPACITY = 8192;
+	private static final int BUFFER_SIZE = 65536;
+	private static final long IDLE_NANOS = 1000000;
+	private static final long CHECK_MILLIS = 100;
+	private static final ConcurrentLinkedQueue<AsyncOutputFile> openFiles = new ConcurrentLinkedQueue<AsyncOutputFile>();
+	private static volatile Thread writer;
+
+	private String fileName;
+	private boolean compress;
+	private String[] labels;
+	private double[] values;
+	private AtomicLong head;
+	private AtomicLong tail;
+	private volatile boolean closed;
+	private CountDownLatch finished;
+	private OutputStream outputStream;
+	private volatile boolean failed;
+	private byte[] buffer;
+	private int position;
+	private StringBuilder number;
+
+	/**
+	 * Constructor for the <code>AsyncOutputFile</code>
+	 *
+	 * @param fileName The name of the file
+	 */
+	public AsyncOutputFile(String fileName){
+		this(fileName, false);
+	}
+
+	/**
+	 * Constructor for the <code>AsyncOutputFile</code> which optionally compresses the file
+	 *
+	 * @param fileName The name of the file
+	 * @param compress true to compress the file with gzip
+	 */
+	public AsyncOutputFile(String fileName, boolean compress){
+		this.fileName = fileName;
+		this.compress = compress;
+		labels = new String[CAPACITY];
+		values = new double[CAPACITY];
+		head = new AtomicLong();
+		tail = new AtomicLong();
+		finished = new CountDownLatch(1);
+		buffer = new byte[BUFFER_SIZE];
+		number = new StringBuilder(32);
+		openFiles.add(this);
+		startWriter();
+	}
+
+	/**
+	 * Starts the shared writer thread if it is not running, or wakes it if it is
+	 */
+	private static synchronized void startWriter(){
+		if(writer != null && writer.isAlive()){
+			LockSupport.unpark(writer);
+			return;
+		}
+		writer = new Thread("AsyncOutputFile writer"){
+			public void run(){
+				while(true){
+					if(openFiles.isEmpty()){
+						LockSupport.park(this);
+						continue;
+					}
+					boolean idle = true;
+					for(AsyncOutputFile file : openFiles){
+						boolean closing = file.closed;
+						try{
+							if(file.drain())
+								idle = false;
+							if(closing)
+								file.finish();
+						}
+						catch(Throwable t){
+							file.fail(t);
+						}
+						finally{
+							if(closing){
+								openFiles.remove(file);
+								file.finished.countDown();
+							}
+						}
+					}
+					if(idle)
+						LockSupport.parkNanos(this, IDLE_NANOS);
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Writes a line holding a label and a value to the file. This only waits if the writer
+	 * has fallen a whole buffer behind, parking as the writer does when it is idle, and drops
+	 * the line if the file has failed or been closed.
+	 *
+	 * @param label The label
+	 * @param value The value
+	 */
+	public void writeToFile(String label, double value){
+		long next = tail.get();
+		while(next - head.get() >= CAPACITY){
+			if(failed || closed)
+				return;
+			startWriter();
+			LockSupport.parkNanos(this, IDLE_NANOS);
+		}
+		int slot = (int)(next & (CAPACITY - 1));
+		labels[slot] = label;
+		values[slot] = value;
+		tail.lazySet(next + 1);
+	}
+
+	/**
+	 * Closes the file, waiting until every line has been written. The writer is started again
+	 * if it has stopped in the meantime.
+	 */
+	public void closeFile(){
+		closed = true;
+		LockSupport.unpark(writer);
+		boolean interrupted = false;
+		while(true){
+			try{
+				if(finished.await(CHECK_MILLIS, TimeUnit.MILLISECONDS))
+					break;
+				startWriter();
+			}
+			catch(InterruptedException e){
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Formats the waiting lines into the buffer, or drops them if the file has failed. Called
+	 * only by the writer thread.
+	 *
+	 * @return true if there were any lines
+	 */
+	private boolean drain(){
+		long first = head.get();
+		long last = tail.get();
+		if(first == last)
+			return false;
+		for(long i = first; i < last; i++){
+			int slot = (int)(i & (CAPACITY - 1));
+			if(!failed)
+				format(labels[slot], values[slot]);
+			labels[slot] = null;
+		}
+		head.lazySet(last);
+		return true;
+	}
+
+	/**
+	 * Formats a line into the buffer
+	 */
+	private void format(String label, double value){
+		number.setLength(0);
+		number.append(value);
+		append(label);
+		append(",");
+		append(number);
+		append(System.lineSeparator());
+	}
+
+	/**
+	 * Appends characters to the buffer as single bytes, writing the buffer out whenever it is
+	 * full, so that a line may be longer than the buffer
+	 */
+	private void append(CharSequence chars){
+		for(int i = 0; i < chars.length(); i++){
+			if(position == buffer.length)
+				flush();
+			buffer[position++] = (byte)chars.charAt(i);
+		}
+	}
+
+	/**
+	 * Writes the buffer to the file, opening it first if necessary
+	 */
+	private void flush(){
+		try{
+			if(!failed && outputStream == null){
+				outputStream = new FileOutputStream(fileName);
+				if(compress)
+					outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+			}
+			if(!failed)
+				outputStream.write(buffer, 0, position);
+		}
+		catch(IOException e){
+			failed = true;
+			System.out.println(e.toString());
+		}
+		position = 0;
+	}
+
+	/**
+	 * Writes the rest of the buffer and closes the file. Called only by the writer thread.
+	 */
+	private void finish(){
+		flush();
+		close();
+	}
+
+	/**
+	 * Reports an error while writing the file, drops the rest of its lines and closes it.
+	 * Called only by the writer thread.
+	 *
+	 * @param t The error
+	 */
+	private void fail(Throwable t){
+		failed = true;
+		position = 0;
+		System.out.println(t.toString());
+		close();
+	}
+
+	/**
+	 * Closes the file if it has been opened
+	 */
+	private void close(){
+		try{
+			if(outputStream != null)
+				outputStream.close();
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+		}
+		outputStream = null;
+	}
+}
@@ -0,0 +1,51 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * The AtomicFile class replaces the contents of a file in one step. The new contents are
+ * written to a temporary file in the same directory, forced to disk and renamed over the
+ * file, so that a reader sees either the old file or the whole new one, and a crash while
+ * writing leaves the old file as it was.
+ *
+ * @see ModelFile
+ * @see SeriesCache
+ *
+ * @author Ray McBride
+ */
+final class AtomicFile{
+
+	/**
+	 * The AtomicFile class only has static methods
+	 */
+	private AtomicFile(){
+	}
+
+	/**
+	 * Writes the remaining contents of a buffer to a temporary file, forces it to disk and
+	 * renames it into place
+	 *
+	 * @param path The location of the file
+	 * @param buffer The buffer
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(Path path, ByteBuffer buffer) throws IOException{
+		Path directory = path.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+		try{
+			try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)){
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+				channel.force(true);
+			}
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally{
+			Files.deleteIfExists(temporary);
+		}
+	}
+}
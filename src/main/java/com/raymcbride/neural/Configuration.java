@@ -0,0 +1,304 @@
+package com.raymcbride.neural;
+
+import java.util.*;
+
+/**
+ * The Configuration class holds the parameters of one network in a sweep, and creates
+ * that network on demand. A configuration is trained once to its largest number of epochs,
+ * and tested and validated at each of its epoch counts.
+ *
+ * @see Sweep
+ *
+ * @author Ray McBride
+ */
+public class Configuration{
+
+	/**
+	 * The Multilayer Perceptron network type
+	 */
+	public static final String MLP = "MLP";
+
+	/**
+	 * The Time Delay Neural Network type
+	 */
+	public static final String TDNN = "TDNN";
+
+	/**
+	 * The Recurrent Neural Network type
+	 */
+	public static final String RNN = "RNN";
+
+	private String type;
+	private int inputs;
+	private int hiddens;
+	private int delays;
+	private double memoryDepth;
+	private int slope;
+	private double learningRate;
+	private double momentum;
+	private int[] epochs;
+	private String fileID;
+	private long seed;
+	private Activation activation = Activation.EXACT;
+	private Kernel kernel = Kernel.SCALAR;
+	private Initialisation initialisation = Initialisation.UNIFORM;
+
+	/**
+	 * This constructor for the <code>Configuration</code> specifies the network type, the number
+	 * of Input Neurons and Hidden Neurons, the number of delays, the memory depth, the slope of their
+	 * activation functions, the learning rate, the momentum, the epoch counts at which to test, the
+	 * network topology id and the seed for the initial weights. The delays are only used by a TDNN
+	 * and the memory depth by an RNN.
+	 *
+	 * @param type The network type
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param delays The number of delays
+	 * @param memoryDepth The memory depth
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param epochs The epoch counts at which to test
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 */
+	public Configuration(String type, int inputs, int hiddens, int delays, double memoryDepth, int slope, double learningRate, double momentum, int[] epochs, String fileID, long seed){
+		this.type = type;
+		this.inputs = inputs;
+		this.hiddens = hiddens;
+		this.delays = delays;
+		this.memoryDepth = memoryDepth;
+		this.slope = slope;
+		this.learningRate = learningRate;
+		this.momentum = momentum;
+		this.epochs = epochs;
+		this.fileID = fileID;
+		this.seed = seed;
+	}
+
+	/**
+	 * Creates the network described by this configuration
+	 *
+	 * @return a new untrained network
+	 */
+	public Network createNetwork(){
+		Network network;
+		if(type.equals(TDNN))
+			network = new TDNN(inputs, hiddens, delays, slope, learningRate, momentum, getTotalEpochs(), fileID, seed, initialisation);
+		else if(type.equals(RNN))
+			network = new RNN(inputs, hiddens, memoryDepth, slope, learningRate, momentum, getTotalEpochs(), fileID, seed, initialisation);
+		else network = new MLP(inputs, hiddens, slope, learningRate, momentum, getTotalEpochs(), fileID, seed, initialisation);
+		network.setActivation(activation);
+		network.setKernel(kernel);
+		return network;
+	}
+
+	/**
+	 * Estimates the relative cost of training this configuration. The cost grows with the
+	 * largest number of epochs, Input Neurons and Hidden Neurons, and with the delays of a TDNN
+	 *
+	 * @return the estimated cost
+	 */
+	public long getCost(){
+		long cost = (long)getTotalEpochs() * inputs * hiddens;
+		if(type.equals(TDNN))
+			cost = cost * delays;
+		return cost;
+	}
+
+	/**
+	 * Gets the network type
+	 *
+	 * @return type
+	 */
+	public String getType(){
+		return type;
+	}
+
+	/**
+	 * Gets the number of Input Neurons
+	 *
+	 * @return inputs
+	 */
+	public int getInputs(){
+		return inputs;
+	}
+
+	/**
+	 * Gets the number of Hidden Neurons
+	 *
+	 * @return hiddens
+	 */
+	public int getHiddens(){
+		return hiddens;
+	}
+
+	/**
+	 * Gets the number of delays
+	 *
+	 * @return delays
+	 */
+	public int getDelays(){
+		return delays;
+	}
+
+	/**
+	 * Gets the memory depth
+	 *
+	 * @return memoryDepth
+	 */
+	public double getMemoryDepth(){
+		return memoryDepth;
+	}
+
+	/**
+	 * Gets the slope
+	 *
+	 * @return slope
+	 */
+	public int getSlope(){
+		return slope;
+	}
+
+	/**
+	 * Gets the learning rate
+	 *
+	 * @return learningRate
+	 */
+	public double getLearningRate(){
+		return learningRate;
+	}
+
+	/**
+	 * Gets the momentum
+	 *
+	 * @return momentum
+	 */
+	public double getMomentum(){
+		return momentum;
+	}
+
+	/**
+	 * Gets the epoch counts at which to test
+	 *
+	 * @return epochs
+	 */
+	public int[] getEpochs(){
+		return epochs;
+	}
+
+	/**
+	 * Gets the number of training epochs, which is the largest epoch count
+	 *
+	 * @return the number of training epochs
+	 */
+	public int getTotalEpochs(){
+		int totalEpochs = 0;
+		for(int i = 0; i < epochs.length; i++)
+			totalEpochs = Math.max(totalEpochs, epochs[i]);
+		return totalEpochs;
+	}
+
+	/**
+	 * Gets the network topology id
+	 *
+	 * @return fileID
+	 */
+	public String getFileID(){
+		return fileID;
+	}
+
+	/**
+	 * Gets the network topology id for one of the epoch counts
+	 *
+	 * @param i the position of the epoch count
+	 *
+	 * @return the network topology id followed by the position
+	 */
+	public String getFileID(int i){
+		return fileID + i + "_";
+	}
+
+	/**
+	 * Sets the implementation of the sigmoid activation function of the network. The default is
+	 * <code>Activation.EXACT</code>.
+	 *
+	 * @param activation The activation
+	 */
+	public void setActivation(Activation activation){
+		this.activation = activation;
+	}
+
+	/**
+	 * Gets the implementation of the sigmoid activation function of the network
+	 *
+	 * @return activation
+	 */
+	public Activation getActivation(){
+		return activation;
+	}
+
+	/**
+	 * Sets the kernel used by the flat engine to train the network. The default is
+	 * <code>Kernel.SCALAR</code>.
+	 *
+	 * @param kernel The kernel
+	 */
+	public void setKernel(Kernel kernel){
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Gets the kernel used by the flat engine to train the network
+	 *
+	 * @return kernel
+	 */
+	public Kernel getKernel(){
+		return kernel;
+	}
+
+	/**
+	 * Sets the distribution the initial weights of the network are drawn from. The default is
+	 * <code>Initialisation.UNIFORM</code>.
+	 *
+	 * @param initialisation The initialisation
+	 */
+	public void setInitialisation(Initialisation initialisation){
+		this.initialisation = initialisation;
+	}
+
+	/**
+	 * Gets the distribution the initial weights of the network are drawn from
+	 *
+	 * @return initialisation
+	 */
+	public Initialisation getInitialisation(){
+		return initialisation;
+	}
+
+	/**
+	 * Derives the seed for the initial weights of one configuration of a sweep from the seed
+	 * of the sweep and the configuration's id, so that every configuration has its own stream
+	 * of weights and the whole sweep can be repeated exactly
+	 *
+	 * @param sweepSeed The seed of the sweep
+	 * @param id The id of the configuration, such as its network topology id
+	 *
+	 * @return the seed
+	 */
+	public static long deriveSeed(long sweepSeed, String id){
+		long hash = 1125899906842597L;
+		for(int i = 0; i < id.length(); i++)
+			hash = 31 * hash + id.charAt(i);
+		return new SplittableRandom(sweepSeed ^ hash).nextLong();
+	}
+
+	/**
+	 * Gets the seed for the initial weights
+	 *
+	 * @return seed
+	 */
+	public long getSeed(){
+		return seed;
+	}
+}
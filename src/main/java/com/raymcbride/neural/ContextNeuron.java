@@ -43,4 +43,31 @@ public class ContextNeuron extends Neuron{
 		setOutputValue(getInputValue() + memoryContents*memoryDepth);
 	}
 
+	/**
+	 * Gets the memory depth
+	 *
+	 * @return memoryDepth
+	 */
+	protected double getMemoryDepth(){
+		return memoryDepth;
+	}
+
+	/**
+	 * Gets the memory contents
+	 *
+	 * @return memoryContents
+	 */
+	protected double getMemoryContents(){
+		return memoryContents;
+	}
+
+	/**
+	 * Sets the memory contents
+	 *
+	 * @param memoryContents The memory contents
+	 */
+	protected void setMemoryContents(double memoryContents){
+		this.memoryContents = memoryContents;
+	}
+
 }
\ No newline at end of file
@@ -1,15 +1,28 @@
 package com.raymcbride.neural;
 
 /**
- * The DataProcessor class is used to scale the input data between 0 and 1
+ * The DataProcessor class is used to scale the input data between 0 and 1. It is fitted once,
+ * to the minimum and maximum of the training data in a single pass, and the same scaling is
+ * then applied to any other data and reversed for the forecasts. The range can be widened one
+ * value at a time as new data arrives, without going back over the data already seen.
+ *
+ * @see ModelFile
  *
  * @author Ray McBride
  */
 public class DataProcessor{
 
     private double[] inputs;
-    private double minimum;
-    private double maximum;
+    private double minimum = Double.POSITIVE_INFINITY;
+    private double maximum = Double.NEGATIVE_INFINITY;
+
+    /**
+	 * This constructor for the <code>DataProcessor</code> creates a processor which has not
+	 * been fitted
+	 */
+	public DataProcessor(){
+        this(new double[0]);
+    }
 
     /**
 	 * This constructor for the <code>DataProcessor</code> sets it's inputs
@@ -21,22 +34,139 @@ public class DataProcessor{
     }
 
     /**
-	 * Scales it's inputs array between 0 and 1
+	 * This constructor for the <code>DataProcessor</code> sets the minimum and maximum found
+	 * by an earlier fit, for example the ones saved in a model file
+	 *
+	 * @param minimum The minimum input
+	 * @param maximum The maximum input
+	 */
+	public DataProcessor(double minimum, double maximum){
+        this(new double[]{minimum, maximum});
+        this.minimum = minimum;
+        this.maximum = maximum;
+    }
+
+    /**
+	 * Fits it's inputs and scales them between 0 and 1
 	 *
 	 * @return a double array of it's scaled inputs
 	 */
 	public double[] scale(){
         double[] temp = new double [inputs.length];
-        minimum = inputs[0];
-        maximum = inputs[0];
-        for(int i = 0; i < inputs.length; i++){
-            if (inputs[i] < minimum)
-                minimum = inputs[i];
-            if (inputs[i] > maximum)
-                maximum = inputs[i];
-        }
-        for(int i = 0; i < inputs.length; i++)
-            temp[i] = (inputs[i] - minimum) / (maximum - minimum);
+        fit(inputs);
+        transform(inputs, temp);
         return temp;
     }
+
+    /**
+	 * Fits the minimum and maximum to a series in a single pass, replacing any earlier fit
+	 *
+	 * @param values The series
+	 */
+	public void fit(double[] values){
+        minimum = Double.POSITIVE_INFINITY;
+        maximum = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < values.length; i++)
+            extend(values[i]);
+    }
+
+    /**
+	 * Widens the minimum and maximum to take in a new value
+	 *
+	 * @param value The value
+	 *
+	 * @return true if the minimum or maximum changed
+	 */
+	public boolean extend(double value){
+        boolean changed = false;
+        if (value < minimum){
+            minimum = value;
+            changed = true;
+        }
+        if (value > maximum){
+            maximum = value;
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+	 * Scales one value with the fitted minimum and maximum
+	 *
+	 * @param value The value
+	 *
+	 * @return the scaled value
+	 */
+	public double transform(double value){
+        return (value - minimum) / (maximum - minimum);
+    }
+
+    /**
+	 * Scales a series in place with the fitted minimum and maximum
+	 *
+	 * @param values The series
+	 */
+	public void transform(double[] values){
+        transform(values, values);
+    }
+
+    /**
+	 * Scales a series with the fitted minimum and maximum
+	 *
+	 * @param values The series
+	 * @param destination The array to hold the scaled series, which may be the series itself
+	 */
+	public void transform(double[] values, double[] destination){
+        for(int i = 0; i < values.length; i++)
+            destination[i] = (values[i] - minimum) / (maximum - minimum);
+    }
+
+    /**
+	 * Reverses the scaling of one value, such as a forecast
+	 *
+	 * @param value The scaled value
+	 *
+	 * @return the value
+	 */
+	public double inverseTransform(double value){
+        return minimum + value * (maximum - minimum);
+    }
+
+    /**
+	 * Reverses the scaling of a series, such as a batch of forecasts
+	 *
+	 * @param values The scaled series
+	 * @param destination The array to hold the series, which may be the scaled series itself
+	 */
+	public void inverseTransform(double[] values, double[] destination){
+        for(int i = 0; i < values.length; i++)
+            destination[i] = minimum + values[i] * (maximum - minimum);
+    }
+
+    /**
+	 * Gets whether the processor has been fitted to at least one value
+	 *
+	 * @return true if it has a minimum and maximum
+	 */
+	public boolean isFitted(){
+        return minimum <= maximum;
+    }
+
+    /**
+	 * Gets the fitted minimum input
+	 *
+	 * @return minimum
+	 */
+	public double getMinimum(){
+        return minimum;
+    }
+
+    /**
+	 * Gets the fitted maximum input
+	 *
+	 * @return maximum
+	 */
+	public double getMaximum(){
+        return maximum;
+    }
 }
@@ -0,0 +1,182 @@
+package com.raymcbride.neural;
+
+/**
+ * The DelayLine class holds the most recent output values of a Neuron in a TDNN. The values
+ * are kept in a circular buffer, together with their running sum and the running sum of
+ * <code>v(1 - v)</code> over the values <code>v</code>, which is the sigmoid derivative
+ * needed by the hidden error term. Adding a value, and reading the sums, takes the same time
+ * however long the line is.
+ *
+ * To stop rounding errors building up in the running sums, they are summed again from the
+ * values, newest first, each time the newest value returns to the start of the buffer. This
+ * costs one pass over the line every <code>size()</code> values.
+ *
+ * @see InputNeuron
+ * @see HiddenNeuron
+ *
+ * @author Ray McBride
+ */
+public class DelayLine{
+
+	private double[] values;
+	private int head;
+	private double sum;
+	private double derivativeSum;
+
+	/**
+	 * Constructor for the <code>DelayLine</code>, which starts with every value 0
+	 *
+	 * @param delays The number of delays
+	 */
+	public DelayLine(int delays){
+		values = new double[delays];
+	}
+
+	/**
+	 * Adds a new value, replacing the oldest
+	 *
+	 * @param value The new value
+	 *
+	 * @return the sum of the values
+	 */
+	public double add(double value){
+		head = head == 0 ? values.length - 1 : head - 1;
+		double oldest = values[head];
+		values[head] = value;
+		if(head == 0){
+			sum = sum(values);
+			derivativeSum = derivativeSum(values);
+		}
+		else{
+			sum += value - oldest;
+			derivativeSum += value * (1 - value) - oldest * (1 - oldest);
+		}
+		return sum;
+	}
+
+	/**
+	 * Sums the values of a line whose newest value is at the start
+	 *
+	 * @param values The values
+	 *
+	 * @return the sum
+	 */
+	protected static double sum(double[] values){
+		double sum = 0;
+		for(int i = 0; i < values.length; i++)
+			sum += values[i];
+		return sum;
+	}
+
+	/**
+	 * Sums the sigmoid derivatives of the values of a line whose newest value is at the start
+	 *
+	 * @param values The values
+	 *
+	 * @return the sum
+	 */
+	protected static double derivativeSum(double[] values){
+		double sum = 0;
+		for(int i = 0; i < values.length; i++)
+			sum += values[i] * (1 - values[i]);
+		return sum;
+	}
+
+	/**
+	 * Gets the number of delays
+	 *
+	 * @return the number of delays
+	 */
+	public int size(){
+		return values.length;
+	}
+
+	/**
+	 * Gets a value
+	 *
+	 * @param delay The age of the value, from 0 for the newest
+	 *
+	 * @return the value
+	 */
+	public double get(int delay){
+		int position = head + delay;
+		return values[position < values.length ? position : position - values.length];
+	}
+
+	/**
+	 * Gets the sum of the values
+	 *
+	 * @return sum
+	 */
+	public double getSum(){
+		return sum;
+	}
+
+	/**
+	 * Gets the mean of the values
+	 *
+	 * @return the mean
+	 */
+	public double getMean(){
+		return sum / values.length;
+	}
+
+	/**
+	 * Gets the sum of <code>v(1 - v)</code> over the values
+	 *
+	 * @return derivativeSum
+	 */
+	public double getDerivativeSum(){
+		return derivativeSum;
+	}
+
+	/**
+	 * Gets the circular buffer of values
+	 *
+	 * @return values
+	 */
+	protected double[] getValues(){
+		return values;
+	}
+
+	/**
+	 * Gets the position of the newest value in the circular buffer
+	 *
+	 * @return head
+	 */
+	protected int getHead(){
+		return head;
+	}
+
+	/**
+	 * Sets the circular buffer and the sum, and sums the sigmoid derivatives from the values
+	 *
+	 * @param values The values, in the order of the circular buffer
+	 * @param offset The position of the first value
+	 * @param head The position of the newest value in the circular buffer
+	 * @param sum The sum of the values
+	 */
+	protected void restore(double[] values, int offset, int head, double sum){
+		restore(values, offset, head, sum, 0);
+		double derivativeSum = 0;
+		for(int i = 0; i < this.values.length; i++)
+			derivativeSum += get(i) * (1 - get(i));
+		this.derivativeSum = derivativeSum;
+	}
+
+	/**
+	 * Sets the circular buffer and the sums
+	 *
+	 * @param values The values, in the order of the circular buffer
+	 * @param offset The position of the first value
+	 * @param head The position of the newest value in the circular buffer
+	 * @param sum The sum of the values
+	 * @param derivativeSum The sum of <code>v(1 - v)</code> over the values
+	 */
+	protected void restore(double[] values, int offset, int head, double sum, double derivativeSum){
+		System.arraycopy(values, offset, this.values, 0, this.values.length);
+		this.head = head;
+		this.sum = sum;
+		this.derivativeSum = derivativeSum;
+	}
+}
@@ -0,0 +1,176 @@
+package com.raymcbride.neural;
+
+/**
+ * The EarlyStopping class stops the training of a network once it stops improving on a held
+ * out series. Every <code>interval</code> epochs the weights and the delays or context of the
+ * network are copied into a scoring network, which is scored with the mean error over every
+ * window of the series, so the network being trained is not disturbed. A score counts as an
+ * improvement when it is at least <code>minDelta</code> below the best so far, and the weights
+ * are then copied into a buffer of the best weights. Training stops after <code>patience</code>
+ * scores in a row without an improvement, and the network is restored to the weights of its
+ * best score.
+ *
+ * The scoring network and the best weights are allocated on the first score and reused for
+ * every later score, so scoring writes nothing to file and allocates nothing. An EarlyStopping
+ * records the progress of training one network, so each network needs its own.
+ *
+ * @see Network
+ *
+ * @author Ray McBride
+ */
+public class EarlyStopping{
+
+	private double[] data;
+	private int interval;
+	private int patience;
+	private double minDelta;
+	private FlatNetwork scorer;
+	private FlatNetwork best;
+	private boolean scored;
+	private double bestError;
+	private int bestEpoch;
+	private int stoppedEpoch;
+	private int waiting;
+
+	/**
+	 * Constructor for the <code>EarlyStopping</code>
+	 *
+	 * @param data The held out series
+	 * @param interval The number of epochs between scores
+	 * @param patience The number of scores in a row without an improvement before stopping
+	 * @param minDelta The smallest fall in the error which counts as an improvement
+	 */
+	public EarlyStopping(double[] data, int interval, int patience, double minDelta){
+		if(data.length == 0)
+			throw new IllegalArgumentException("The held out series is empty");
+		if(interval < 1 || patience < 1)
+			throw new IllegalArgumentException("Invalid interval " + interval + " or patience " + patience);
+		this.data = data;
+		this.interval = interval;
+		this.patience = patience;
+		this.minDelta = minDelta;
+		reset();
+	}
+
+	/**
+	 * Clears the progress of the last training run, keeping the scoring network and the best
+	 * weights for the next
+	 */
+	protected void reset(){
+		scored = false;
+		bestError = Double.POSITIVE_INFINITY;
+		bestEpoch = 0;
+		stoppedEpoch = 0;
+		waiting = 0;
+	}
+
+	/**
+	 * Carries on the progress of a training run saved by a <code>TrainingCheckpoint</code>
+	 *
+	 * @param best The snapshot with the best score, or null if none had been scored
+	 * @param bestError The best mean error
+	 * @param bestEpoch The number of completed epochs when the best score was made
+	 * @param waiting The number of scores in a row without an improvement
+	 */
+	protected void resume(FlatNetwork best, double bestError, int bestEpoch, int waiting){
+		if(best != null)
+			this.best = best;
+		scored = best != null;
+		this.bestError = bestError;
+		this.bestEpoch = bestEpoch;
+		this.waiting = waiting;
+	}
+
+	/**
+	 * Gets whether the network should be scored after an epoch
+	 *
+	 * @param epoch The number of completed epochs
+	 *
+	 * @return true if a score is due
+	 */
+	protected boolean isDue(int epoch){
+		return epoch % interval == 0;
+	}
+
+	/**
+	 * Scores a copy of the network and decides whether to stop
+	 *
+	 * @param network The network being trained
+	 * @param epoch The number of completed epochs
+	 *
+	 * @return true if training should stop
+	 */
+	protected boolean check(FlatNetwork network, int epoch){
+		if(scorer == null)
+			scorer = network.snapshot();
+		else
+			scorer.restore(network);
+		double error = scorer.score(data);
+		if(error < bestError - minDelta || !scored){
+			if(best == null)
+				best = network.snapshot();
+			else
+				best.restore(network);
+			scored = true;
+			bestError = error;
+			bestEpoch = epoch;
+			waiting = 0;
+			return false;
+		}
+		return ++waiting >= patience;
+	}
+
+	/**
+	 * Records the epoch at which training stopped
+	 *
+	 * @param epoch The number of completed epochs
+	 */
+	protected void stop(int epoch){
+		stoppedEpoch = epoch;
+	}
+
+	/**
+	 * Gets the copy of the network with the best score
+	 *
+	 * @return the best copy, or null if none has been scored
+	 */
+	protected FlatNetwork getBest(){
+		return scored ? best : null;
+	}
+
+	/**
+	 * Gets the best mean error on the held out series
+	 *
+	 * @return bestError
+	 */
+	public double getBestError(){
+		return bestError;
+	}
+
+	/**
+	 * Gets the number of completed epochs when the best score was made
+	 *
+	 * @return bestEpoch
+	 */
+	public int getBestEpoch(){
+		return bestEpoch;
+	}
+
+	/**
+	 * Gets the number of scores in a row without an improvement
+	 *
+	 * @return waiting
+	 */
+	protected int getWaiting(){
+		return waiting;
+	}
+
+	/**
+	 * Gets the number of completed epochs when training stopped
+	 *
+	 * @return stoppedEpoch
+	 */
+	public int getStoppedEpoch(){
+		return stoppedEpoch;
+	}
+}
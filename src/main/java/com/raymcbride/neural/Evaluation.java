@@ -0,0 +1,185 @@
+package com.raymcbride.neural;
+
+/**
+ * The Evaluation class holds the results of testing or validating a network: the number of
+ * samples, the mean and largest of the errors the network is trained on, which are half the
+ * squared difference between the target and the output, and a set of <code>Metric</code>s.
+ * It is updated with each sample as the network is tested, so no per sample file is needed,
+ * and can be reused for later evaluations without allocating. The error of every sample can
+ * also be kept.
+ *
+ * The errors are in the scaled units the network is trained on. Given the data processor
+ * fitted to the training data, the metrics are measured on the unscaled target and output
+ * instead, so that a percentage error such as MAPE is not inflated by targets scaled close to
+ * zero.
+ *
+ * @see Metric
+ * @see DataProcessor
+ * @see FlatNetwork
+ *
+ * @author Ray McBride
+ */
+public class Evaluation{
+
+	private Metric[] metrics;
+	private DataProcessor processor;
+	private boolean keepingErrors;
+	private double[] errors;
+	private int samples;
+	private double totalError;
+	private double maxError;
+
+	/**
+	 * This constructor for the <code>Evaluation</code> measures every metric in
+	 * <code>Metric.all</code> and does not keep the error of each sample
+	 */
+	public Evaluation(){
+		this(false, Metric.all());
+	}
+
+	/**
+	 * This constructor for the <code>Evaluation</code> specifies the metrics and whether the
+	 * error of each sample is kept
+	 *
+	 * @param keepingErrors true to keep the error of each sample
+	 * @param metrics The metrics
+	 */
+	public Evaluation(boolean keepingErrors, Metric... metrics){
+		this(null, keepingErrors, metrics);
+	}
+
+	/**
+	 * This constructor for the <code>Evaluation</code> measures the metrics on unscaled values
+	 *
+	 * @param processor The data processor fitted to the training data, or null to measure the
+	 * metrics on the scaled values
+	 * @param keepingErrors true to keep the error of each sample
+	 * @param metrics The metrics
+	 */
+	public Evaluation(DataProcessor processor, boolean keepingErrors, Metric... metrics){
+		this.processor = processor;
+		this.keepingErrors = keepingErrors;
+		this.metrics = metrics;
+		start(0);
+	}
+
+	/**
+	 * Clears the results before an evaluation
+	 *
+	 * @param size The number of samples the evaluation will have
+	 */
+	protected void start(int size){
+		samples = 0;
+		totalError = 0;
+		maxError = Double.NaN;
+		if(keepingErrors && (errors == null || errors.length != size))
+			errors = new double[size];
+		for(int i = 0; i < metrics.length; i++)
+			metrics[i].reset();
+	}
+
+	/**
+	 * Adds a sample
+	 *
+	 * @param target The scaled target output
+	 * @param output The scaled output of the network
+	 *
+	 * @return the error of the sample
+	 */
+	protected double add(double target, double output){
+		double error = 0.5 * (target - output) * (target - output);
+		if(keepingErrors)
+			errors[samples] = error;
+		totalError += error;
+		maxError = samples == 0 ? error : Math.max(maxError, error);
+		samples++;
+		if(processor != null){
+			target = processor.inverseTransform(target);
+			output = processor.inverseTransform(output);
+		}
+		for(int i = 0; i < metrics.length; i++)
+			metrics[i].add(target, output);
+		return error;
+	}
+
+	/**
+	 * Gets the number of samples
+	 *
+	 * @return samples
+	 */
+	public int getSamples(){
+		return samples;
+	}
+
+	/**
+	 * Gets the mean error
+	 *
+	 * @return the mean error, or NaN if there are no samples
+	 */
+	public double getMeanError(){
+		return totalError / samples;
+	}
+
+	/**
+	 * Gets the largest error
+	 *
+	 * @return maxError, or NaN if there are no samples
+	 */
+	public double getMaxError(){
+		return maxError;
+	}
+
+	/**
+	 * Gets the error of each sample
+	 *
+	 * @return errors, or null if they are not kept
+	 */
+	public double[] getErrors(){
+		return errors;
+	}
+
+	/**
+	 * Gets the value of a metric
+	 *
+	 * @param name The name of the metric
+	 *
+	 * @return the value, or NaN if the evaluation does not measure the metric
+	 */
+	public double getValue(String name){
+		for(int i = 0; i < metrics.length; i++){
+			if(metrics[i].getName().equals(name))
+				return metrics[i].getValue();
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Gets the data processor used to unscale the values the metrics are measured on
+	 *
+	 * @return processor, or null if the metrics are measured on the scaled values
+	 */
+	public DataProcessor getProcessor(){
+		return processor;
+	}
+
+	/**
+	 * Gets the metrics
+	 *
+	 * @return metrics
+	 */
+	public Metric[] getMetrics(){
+		return metrics;
+	}
+
+	/**
+	 * Formats the results as a line of name and value pairs
+	 *
+	 * @return the formatted results
+	 */
+	public String toString(){
+		StringBuilder line = new StringBuilder("Samples=" + samples + " MeanError=" + getMeanError() + " MaxError=" + maxError);
+		for(int i = 0; i < metrics.length; i++)
+			line.append(' ').append(metrics[i].getName()).append('=').append(metrics[i].getValue());
+		return line.toString();
+	}
+}
@@ -0,0 +1,40 @@
+package com.raymcbride.neural;
+
+/**
+ * The ExactActivation class calculates the sigmoid with <code>Math.exp</code>
+ *
+ * @see Activation
+ *
+ * @author Ray McBride
+ */
+class ExactActivation extends Activation{
+
+	/**
+	 * Calculates the exact sigmoid of a value
+	 *
+	 * @param x The value
+	 *
+	 * @return the sigmoid
+	 */
+	public double sigmoid(double x){
+		return 1/(1 + Math.exp(-x));
+	}
+
+	/**
+	 * Gets the maximum error, which is 0
+	 *
+	 * @return the maximum error
+	 */
+	public double getMaximumError(){
+		return 0;
+	}
+
+	/**
+	 * Gets the name of the activation
+	 *
+	 * @return EXACT
+	 */
+	public String getName(){
+		return "EXACT";
+	}
+}
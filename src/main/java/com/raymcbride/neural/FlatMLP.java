@@ -0,0 +1,75 @@
+package com.raymcbride.neural;
+
+import java.nio.*;
+
+/**
+ * The FlatMLP class is the flat engine equivalent of the <code>MLP</code>
+ *
+ * @see MLP
+ *
+ * @author Ray McBride
+ */
+public class FlatMLP extends FlatNetwork{
+
+	/**
+	 * This constructor for the <code>FlatMLP</code> creates a new <code>MLP</code> and compiles it.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 */
+	public FlatMLP(int inputs, int hiddens, int slope, double learningRate, double momentum, int totalEpochs, String fileID){
+		this(new MLP(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID));
+	}
+
+	/**
+	 * This constructor for the <code>FlatMLP</code> compiles an existing <code>MLP</code>
+	 *
+	 * @param mlp The MLP to compile
+	 */
+	public FlatMLP(MLP mlp){
+		super(mlp);
+	}
+
+	/**
+	 * This constructor for the <code>FlatMLP</code> reads a network written by <code>write</code>
+	 *
+	 * @param buffer The buffer, positioned at the start of the network
+	 * @param fileID The network topology id
+	 */
+	protected FlatMLP(ByteBuffer buffer, String fileID){
+		super(buffer, fileID);
+	}
+
+	/**
+	 * This constructor for the <code>FlatMLP</code> creates a copy for inference only, which
+	 * shares the weights of another <code>FlatMLP</code>
+	 *
+	 * @param mlp The FlatMLP whose weights are shared
+	 */
+	protected FlatMLP(FlatMLP mlp){
+		super(mlp);
+	}
+
+	/**
+	 * Creates a copy for inference only, which shares the weights of this network
+	 *
+	 * @return the copy
+	 */
+	protected FlatNetwork shareWeights(){
+		return new FlatMLP(this);
+	}
+
+	/**
+	 * Initialises the network with data
+	 */
+	protected void initialise(){
+		double[] inputOutput = getInputOutput();
+		copyWindow(inputOutput);
+		setTargetOutput(getTarget());
+	}
+}
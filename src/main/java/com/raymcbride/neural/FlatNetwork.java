@@ -0,0 +1,1310 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+/**
+ * The FlatNetwork class is the abstract base class for the flat training engine. Instead of
+ * a graph of <code>Neuron</code> and <code>Synapse</code> objects it keeps the weights, the
+ * weight changes and the activations in contiguous double arrays, so that every layer is a
+ * dense loop. A FlatNetwork is compiled from an existing <code>Network</code> and starts from
+ * exactly the same weights and state. It owns the training, testing and prediction loops, and
+ * a <code>Network</code> trains, tests and predicts by compiling itself into one. The
+ * snapshots a <code>Network</code> takes are FlatNetworks, which can be tested, validated,
+ * saved or exported to a <code>Model</code> in their own right.
+ *
+ * The weights between the Input and Hidden Neurons are stored row major, one row of
+ * <code>hiddens</code> weights per Input Neuron.
+ *
+ * @see FlatMLP
+ * @see FlatTDNN
+ * @see FlatRNN
+ *
+ * @author Ray McBride
+ */
+public abstract class FlatNetwork{
+
+	/**
+	 * The fixed output value of the Bias Neurons
+	 */
+	protected static final double BIAS = -1.0;
+
+	private int inputs;
+	private int hiddens;
+	private int slope;
+	private double learningRate;
+	private double momentum;
+	private int epoch;
+	private int totalEpochs;
+	private String fileID;
+	private double[] inputToHidden;
+	private double[] inputToHiddenChange;
+	private double[] biasToHidden;
+	private double[] biasToHiddenChange;
+	private double[] hiddenToOutput;
+	private double[] hiddenToOutputChange;
+	private double biasToOutput;
+	private double biasToOutputChange;
+	private double[] inputOutput;
+	private double[] hiddenSum;
+	private double[] hiddenOutput;
+	private double[] hiddenErrorTerm;
+	private double[] hiddenRate;
+	private double outputValue;
+	private double outputErrorTerm;
+	private double targetOutput;
+	private SeriesWindows windows;
+	private SeriesWindows series;
+	private boolean wrapping = true;
+	private int nextInput;
+	private double totalNetworkError;
+	private AsyncOutputFile detailFile;
+	private boolean compressDetails;
+	private boolean writingDetails = true;
+	private boolean shared;
+	private EarlyStopping earlyStopping;
+	private TrainingCheckpoint trainingCheckpoint;
+	private Telemetry telemetry;
+	private Activation activation = Activation.EXACT;
+	private Kernel kernel = Kernel.SCALAR;
+
+	/**
+	 * This constructor for the <code>FlatNetwork</code> copies the topology, the training
+	 * parameters, the weights and the weight changes of a <code>Network</code>
+	 *
+	 * @param network The network to compile
+	 */
+	protected FlatNetwork(Network network){
+		inputs = network.getInputNeurons().length;
+		hiddens = network.getHiddenNeurons().length;
+		slope = network.getSlope();
+		learningRate = network.getLearningRate();
+		momentum = network.getMomentum();
+		totalEpochs = network.getTotalEpochs();
+		fileID = network.getFileID();
+		compressDetails = network.getCompressDetails();
+		writingDetails = network.isWritingDetails();
+		activation = network.getActivation();
+		kernel = network.getKernel();
+		wrapping = network.isWrapping();
+		allocate();
+		for(int i = 0; i < inputs; i++){
+			for(int j = 0; j < hiddens; j++){
+				inputToHidden[i * hiddens + j] = network.getInputToHidden(i, j).getWeight();
+				inputToHiddenChange[i * hiddens + j] = network.getInputToHidden(i, j).getWeightChange();
+			}
+		}
+		for(int i = 0; i < hiddens; i++){
+			hiddenToOutput[i] = network.getHiddenToOutput(i).getWeight();
+			hiddenToOutputChange[i] = network.getHiddenToOutput(i).getWeightChange();
+			biasToHidden[i] = network.getBiasToHidden(i).getWeight();
+			biasToHiddenChange[i] = network.getBiasToHidden(i).getWeightChange();
+		}
+		biasToOutput = network.getBiasToOutput().getWeight();
+		biasToOutputChange = network.getBiasToOutput().getWeightChange();
+	}
+
+	/**
+	 * This constructor for the <code>FlatNetwork</code> reads the topology, the training
+	 * parameters, the weights and the weight changes from a buffer written by <code>write</code>
+	 *
+	 * @param buffer The buffer, positioned at the start of the network
+	 * @param fileID The network topology id
+	 */
+	protected FlatNetwork(ByteBuffer buffer, String fileID){
+		inputs = buffer.getInt();
+		hiddens = buffer.getInt();
+		slope = buffer.getInt();
+		totalEpochs = buffer.getInt();
+		learningRate = buffer.getDouble();
+		momentum = buffer.getDouble();
+		this.fileID = fileID;
+		allocate();
+		read(buffer, inputToHidden);
+		read(buffer, inputToHiddenChange);
+		read(buffer, biasToHidden);
+		read(buffer, biasToHiddenChange);
+		read(buffer, hiddenToOutput);
+		read(buffer, hiddenToOutputChange);
+		biasToOutput = buffer.getDouble();
+		biasToOutputChange = buffer.getDouble();
+	}
+
+	/**
+	 * Allocates the weights, weight changes and activations
+	 */
+	private void allocate(){
+		inputToHidden = new double[inputs * hiddens];
+		inputToHiddenChange = new double[inputs * hiddens];
+		biasToHidden = new double[hiddens];
+		biasToHiddenChange = new double[hiddens];
+		hiddenToOutput = new double[hiddens];
+		hiddenToOutputChange = new double[hiddens];
+		inputOutput = new double[inputs];
+		hiddenSum = new double[hiddens];
+		hiddenOutput = new double[hiddens];
+		hiddenErrorTerm = new double[hiddens];
+		hiddenRate = new double[hiddens];
+		series = new SeriesWindows(null, inputs, wrapping);
+	}
+
+	/**
+	 * Writes the topology, the training parameters, the weights and the weight changes to a
+	 * buffer. Subclasses write their own state after it.
+	 *
+	 * @param buffer The buffer, with at least <code>getSize()</code> bytes remaining
+	 */
+	protected void write(ByteBuffer buffer){
+		buffer.putInt(inputs).putInt(hiddens).putInt(slope).putInt(totalEpochs);
+		buffer.putDouble(learningRate).putDouble(momentum);
+		write(buffer, inputToHidden);
+		write(buffer, inputToHiddenChange != null ? inputToHiddenChange : new double[inputToHidden.length]);
+		write(buffer, biasToHidden);
+		write(buffer, biasToHiddenChange != null ? biasToHiddenChange : new double[hiddens]);
+		write(buffer, hiddenToOutput);
+		write(buffer, hiddenToOutputChange != null ? hiddenToOutputChange : new double[hiddens]);
+		buffer.putDouble(biasToOutput).putDouble(biasToOutputChange);
+	}
+
+	/**
+	 * Gets the number of bytes written by <code>write</code>
+	 *
+	 * @return the size in bytes
+	 */
+	protected int getSize(){
+		return 32 + 8 * (2 * inputToHidden.length + 4 * hiddens + 2);
+	}
+
+	/**
+	 * Reads an array of doubles from a buffer
+	 *
+	 * @param buffer The buffer
+	 * @param values The array to fill
+	 */
+	protected static void read(ByteBuffer buffer, double[] values){
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + 8 * values.length);
+	}
+
+	/**
+	 * Writes an array of doubles to a buffer
+	 *
+	 * @param buffer The buffer
+	 * @param values The values to write
+	 */
+	protected static void write(ByteBuffer buffer, double[] values){
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + 8 * values.length);
+	}
+
+	/**
+	 * This constructor for the <code>FlatNetwork</code> creates a copy for inference only. The
+	 * copy shares the weights of the original and has its own activations, so that several
+	 * copies can be used at once by different threads. The copy cannot be trained.
+	 *
+	 * @param network The network whose weights are shared
+	 */
+	protected FlatNetwork(FlatNetwork network){
+		inputs = network.inputs;
+		hiddens = network.hiddens;
+		slope = network.slope;
+		learningRate = network.learningRate;
+		momentum = network.momentum;
+		totalEpochs = network.totalEpochs;
+		fileID = network.fileID;
+		compressDetails = network.compressDetails;
+		writingDetails = network.writingDetails;
+		activation = network.activation;
+		kernel = network.kernel;
+		wrapping = network.wrapping;
+		inputToHidden = network.inputToHidden;
+		biasToHidden = network.biasToHidden;
+		hiddenToOutput = network.hiddenToOutput;
+		biasToOutput = network.biasToOutput;
+		inputOutput = new double[inputs];
+		hiddenSum = new double[hiddens];
+		hiddenOutput = new double[hiddens];
+		series = new SeriesWindows(null, inputs, wrapping);
+		shared = true;
+	}
+
+	/**
+	 * Abstract method to initialise the network
+	 */
+	protected abstract void initialise();
+
+	/**
+	 * Abstract method to create a copy for inference only, which shares the weights of this
+	 * network and starts from a copy of its delays or context
+	 *
+	 * @return the copy
+	 */
+	protected abstract FlatNetwork shareWeights();
+
+	/**
+	 * Copies the delays or context of another network of the same type. A network without
+	 * either has nothing to copy.
+	 *
+	 * @param network The network to copy from
+	 */
+	protected void copyState(FlatNetwork network){
+	}
+
+	/**
+	 * Brings a copy made by <code>shareWeights</code> up to date with the network whose weights
+	 * it shares, once that network has been trained further. The bias of the Output Neuron is
+	 * held by value, so it is copied with the delays or context.
+	 *
+	 * @param network The network whose weights are shared
+	 */
+	protected void refresh(FlatNetwork network){
+		biasToOutput = network.biasToOutput;
+		copyState(network);
+	}
+
+	/**
+	 * Takes a snapshot of the network, a copy of its weights, its weight changes and its delays
+	 * or context which can be trained on its own
+	 *
+	 * @return the snapshot
+	 */
+	public FlatNetwork snapshot(){
+		FlatNetwork copy = shareWeights();
+		copy.inputToHidden = inputToHidden.clone();
+		copy.biasToHidden = biasToHidden.clone();
+		copy.hiddenToOutput = hiddenToOutput.clone();
+		copy.inputToHiddenChange = copy(inputToHiddenChange, inputToHidden.length);
+		copy.biasToHiddenChange = copy(biasToHiddenChange, hiddens);
+		copy.hiddenToOutputChange = copy(hiddenToOutputChange, hiddens);
+		copy.biasToOutputChange = biasToOutputChange;
+		copy.hiddenErrorTerm = new double[hiddens];
+		copy.hiddenRate = new double[hiddens];
+		copy.shared = false;
+		return copy;
+	}
+
+	/**
+	 * Exports the network as an immutable <code>Model</code> which many threads can use at once
+	 *
+	 * @return the model
+	 */
+	public Model export(){
+		return new Model(snapshot());
+	}
+
+	/**
+	 * Copies an array of weight changes, which a network sharing its weights does not have
+	 *
+	 * @param values The weight changes, or null
+	 * @param length The number of weights
+	 *
+	 * @return the copy, or an array of zeroes if there are no weight changes
+	 */
+	private static double[] copy(double[] values, int length){
+		return values == null ? new double[length] : values.clone();
+	}
+
+	/**
+	 * Sets the weights, the weight changes and the delays or context of the network from a
+	 * snapshot of the same type and topology
+	 *
+	 * @param network The snapshot
+	 */
+	protected void restore(FlatNetwork network){
+		System.arraycopy(network.inputToHidden, 0, inputToHidden, 0, inputToHidden.length);
+		System.arraycopy(network.biasToHidden, 0, biasToHidden, 0, hiddens);
+		System.arraycopy(network.hiddenToOutput, 0, hiddenToOutput, 0, hiddens);
+		System.arraycopy(network.inputToHiddenChange, 0, inputToHiddenChange, 0, inputToHiddenChange.length);
+		System.arraycopy(network.biasToHiddenChange, 0, biasToHiddenChange, 0, hiddens);
+		System.arraycopy(network.hiddenToOutputChange, 0, hiddenToOutputChange, 0, hiddens);
+		biasToOutput = network.biasToOutput;
+		biasToOutputChange = network.biasToOutputChange;
+		copyState(network);
+	}
+
+	/**
+	 * The Sigmoid Activation Function
+	 *
+	 * @param summation The summed input
+	 *
+	 * @return the activated value
+	 */
+	protected double sigmoidActivation(double summation){
+		return activation.sigmoid(slope*summation);
+	}
+
+	/**
+	 * Transfers the weighted values to the Hidden Neurons
+	 */
+	protected void sendToHidden(){
+		Arrays.fill(hiddenSum, 0);
+		for(int i = 0; i < inputs; i++)
+			addRow(inputOutput[i], i * hiddens);
+		addBias();
+	}
+
+	/**
+	 * Adds one weighted row of the Input to Hidden matrix to the Hidden summations
+	 *
+	 * @param value The output value of the Input Neuron
+	 * @param row The offset of its row of weights
+	 */
+	protected void addRow(double value, int row){
+		kernel.addRow(value, inputToHidden, row, hiddenSum);
+	}
+
+	/**
+	 * Adds the weighted bias to the Hidden summations
+	 */
+	protected void addBias(){
+		kernel.addRow(BIAS, biasToHidden, 0, hiddenSum);
+	}
+
+	/**
+	 * Calculates the output of the Hidden Neurons
+	 */
+	protected void calculateHiddenOutput(){
+		for(int j = 0; j < hiddens; j++)
+			hiddenOutput[j] = sigmoidActivation(hiddenSum[j]);
+	}
+
+	/**
+	 * Transfers the weighted values to the Output Neuron and calculates its output
+	 */
+	protected void sendToOutput(){
+		double summation = 0;
+		for(int j = 0; j < hiddens; j++)
+			summation += hiddenOutput[j] * hiddenToOutput[j];
+		outputValue = sigmoidActivation(summation + BIAS * biasToOutput);
+	}
+
+	/**
+	 * Calculates the output error
+	 *
+	 * @return half the squared error
+	 */
+	protected double calculateError(){
+		double error = targetOutput - outputValue;
+		return 0.5 * error * error;
+	}
+
+	/**
+	 * Calculates the output error term
+	 */
+	protected void calculateOutputError(){
+		outputErrorTerm = slope*outputValue*(1-outputValue)*(targetOutput - outputValue);
+	}
+
+	/**
+	 * Calculates the hidden error term
+	 */
+	protected void calculateHiddenError(){
+		for(int j = 0; j < hiddens; j++)
+			hiddenErrorTerm[j] = slope * hiddenOutput[j] * (1 - hiddenOutput[j]) * outputErrorTerm * hiddenToOutput[j];
+	}
+
+	/**
+	 * Calculates the weight change to be made to the weights between the Output and Hidden
+	 * Neurons and Bias Neuron
+	 */
+	protected void calculateOutputWeightChange(){
+		double rate = learningRate * outputErrorTerm;
+		for(int j = 0; j < hiddens; j++)
+			hiddenToOutputChange[j] = (rate * hiddenOutput[j]) + (momentum * hiddenToOutputChange[j]);
+		biasToOutputChange = (rate * BIAS) + (momentum * biasToOutputChange);
+	}
+
+	/**
+	 * Calculates the weight change to be made to the weights between the Hidden and Input
+	 * Neurons and Bias Neuron
+	 */
+	protected void calculateHiddenWeightChange(){
+		for(int j = 0; j < hiddens; j++)
+			hiddenRate[j] = learningRate * hiddenErrorTerm[j];
+		for(int i = 0; i < inputs; i++)
+			kernel.calculateRowChange(inputOutput[i], hiddenRate, momentum, inputToHiddenChange, i * hiddens);
+		calculateBiasToHiddenChange();
+	}
+
+	/**
+	 * Calculates the weight change to be made to the weights between the Bias Neuron and the
+	 * Hidden Neurons
+	 */
+	protected void calculateBiasToHiddenChange(){
+		kernel.calculateRowChange(BIAS, hiddenRate, momentum, biasToHiddenChange, 0);
+	}
+
+	/**
+	 * Adjusts the weights between the Output and Hidden Neurons and Bias Neuron
+	 */
+	protected void adjustOutputWeights(){
+		for(int j = 0; j < hiddens; j++)
+			hiddenToOutput[j] = hiddenToOutput[j] + hiddenToOutputChange[j];
+		biasToOutput = biasToOutput + biasToOutputChange;
+	}
+
+	/**
+	 * Adjusts the weights between the Hidden and Input Neurons and Bias Neuron
+	 */
+	protected void adjustHiddenWeights(){
+		kernel.adjustWeights(inputToHidden, inputToHiddenChange);
+		kernel.adjustWeights(biasToHidden, biasToHiddenChange);
+	}
+
+	/**
+	 * Initialises the network with the next input and passes it forward to the Output Neuron
+	 */
+	protected void propagate(){
+		initialise();
+		sendToHidden();
+		calculateHiddenOutput();
+		sendToOutput();
+	}
+
+	/**
+	 * Passes the error back from the Output Neuron and adjusts the weights
+	 */
+	protected void backPropagate(){
+		calculateOutputError();
+		calculateOutputWeightChange();
+		calculateHiddenError();
+		calculateHiddenWeightChange();
+		adjustOutputWeights();
+		adjustHiddenWeights();
+	}
+
+	/**
+	 * Trains the network
+	 *
+	 * @param data The training data
+	 *
+	 * @throws IllegalStateException if the network shares its weights
+	 */
+	public void train(double[] data){
+		train(data, new int[0]);
+	}
+
+	/**
+	 * Trains the network, taking a snapshot each time the number of completed epochs reaches
+	 * one of the checkpoints. A single training run can then be tested and validated at several
+	 * epoch counts, with the same results as training a new network to each count. Training
+	 * stops early if the early stopping says so, and carries on from the training checkpoint
+	 * if there is one.
+	 *
+	 * @param data The training data
+	 * @param checkpoints The epoch counts at which to take snapshots
+	 *
+	 * @return the snapshots, in the order of the checkpoints, or null for a checkpoint after
+	 * the last training epoch
+	 *
+	 * @throws IllegalStateException if the network shares its weights
+	 */
+	public FlatNetwork[] train(double[] data, int[] checkpoints){
+		if(shared)
+			throw new IllegalStateException("A network which shares its weights cannot be trained");
+		FlatNetwork[] snapshots = new FlatNetwork[checkpoints.length];
+		windows = new SeriesWindows(data, inputs, wrapping);
+		epoch = 0;
+		if(earlyStopping != null)
+			earlyStopping.reset();
+		if(telemetry != null)
+			telemetry.start(fileID);
+		if(!resume(snapshots))
+			takeSnapshots(checkpoints, snapshots);
+		while(epoch < totalEpochs){
+			if(!trainingStep())
+				continue;
+			takeSnapshots(checkpoints, snapshots);
+			if(earlyStopping != null && (earlyStopping.isDue(epoch) || epoch == totalEpochs) && earlyStopping.check(this, epoch))
+				break;
+			if(trainingCheckpoint != null && trainingCheckpoint.isDue(epoch))
+				saveCheckpoint(snapshots);
+		}
+		if(earlyStopping != null)
+			stopEarly(checkpoints, snapshots);
+		return snapshots;
+	}
+
+	/**
+	 * Trains the network for a number of epochs, carrying on from its current weights. Training
+	 * for a number of epochs in several calls gives the same results as a single call. The
+	 * early stopping and the training checkpoint are not used.
+	 *
+	 * @param data The training data
+	 * @param epochs The number of epochs
+	 *
+	 * @throws IllegalStateException if the network shares its weights
+	 */
+	public void train(double[] data, int epochs){
+		if(shared)
+			throw new IllegalStateException("A network which shares its weights cannot be trained");
+		windows = new SeriesWindows(data, inputs, wrapping);
+		epoch = 0;
+		if(telemetry != null)
+			telemetry.start(fileID);
+		while(epoch < epochs)
+			trainingStep();
+	}
+
+	/**
+	 * Propagates the next sample, calculates its error and back propagates it, moving on to
+	 * the next sample
+	 *
+	 * @return true if the sample was the last of an epoch
+	 */
+	private boolean trainingStep(){
+		if(telemetry != null && telemetry.isTimingPhases())
+			timedTrainingStep();
+		else{
+			propagate();
+			totalNetworkError += calculateError();
+			backPropagate();
+		}
+		if (nextInput >= (windows.size() - 1)){
+			if(telemetry != null)
+				telemetry.endEpoch(epoch + 1, totalNetworkError, windows.size());
+			nextInput = 0;
+			totalNetworkError = 0;
+			epoch++;
+			return true;
+		}
+		nextInput++;
+		return false;
+	}
+
+	/**
+	 * Carries on from the training checkpoint, if there is one. A checkpoint which cannot be
+	 * read is reported and training starts from the beginning.
+	 *
+	 * @param snapshots The array to hold the snapshots taken before the checkpoint
+	 *
+	 * @return true if training carries on from a checkpoint
+	 */
+	private boolean resume(FlatNetwork[] snapshots){
+		if(trainingCheckpoint == null)
+			return false;
+		try{
+			if(!trainingCheckpoint.load(snapshots.length))
+				return false;
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+			return false;
+		}
+		restore(trainingCheckpoint.getNetwork());
+		epoch = trainingCheckpoint.getEpoch();
+		nextInput = 0;
+		totalNetworkError = 0;
+		for(int i = 0; i < snapshots.length; i++)
+			snapshots[i] = configure(trainingCheckpoint.getSnapshots()[i]);
+		if(earlyStopping != null)
+			earlyStopping.resume(configure(trainingCheckpoint.getBest()), trainingCheckpoint.getBestError(), trainingCheckpoint.getBestEpoch(), trainingCheckpoint.getWaiting());
+		return true;
+	}
+
+	/**
+	 * Gives a network loaded from a checkpoint the settings of this network
+	 *
+	 * @param network The loaded network, or null
+	 *
+	 * @return the network
+	 */
+	private FlatNetwork configure(FlatNetwork network){
+		if(network != null){
+			network.setActivation(activation);
+			network.setKernel(kernel);
+			network.setCompressDetails(compressDetails);
+			network.setWritingDetails(writingDetails);
+			network.setWrapping(wrapping);
+		}
+		return network;
+	}
+
+	/**
+	 * Saves the training state to the training checkpoint. A checkpoint which cannot be saved
+	 * is reported and training carries on.
+	 *
+	 * @param snapshots The snapshots taken so far
+	 */
+	private void saveCheckpoint(FlatNetwork[] snapshots){
+		try{
+			trainingCheckpoint.save(epoch, this, snapshots, earlyStopping);
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+		}
+	}
+
+	/**
+	 * Records the epoch at which training stopped and restores the weights with the best
+	 * score. Every checkpoint at or after that epoch gets a snapshot of the restored network.
+	 *
+	 * @param checkpoints The epoch counts at which to take snapshots
+	 * @param snapshots The snapshots taken so far
+	 */
+	private void stopEarly(int[] checkpoints, FlatNetwork[] snapshots){
+		earlyStopping.stop(epoch);
+		FlatNetwork best = earlyStopping.getBest();
+		if(best == null)
+			return;
+		if(earlyStopping.getBestEpoch() != epoch)
+			restore(best);
+		for(int i = 0; i < checkpoints.length; i++){
+			if(checkpoints[i] >= epoch)
+				snapshots[i] = snapshot();
+		}
+	}
+
+	/**
+	 * Takes a snapshot for each checkpoint at the current epoch
+	 *
+	 * @param checkpoints The epoch counts at which to take snapshots
+	 * @param snapshots The snapshots taken so far
+	 */
+	private void takeSnapshots(int[] checkpoints, FlatNetwork[] snapshots){
+		for(int i = 0; i < checkpoints.length; i++){
+			if(checkpoints[i] == epoch)
+				snapshots[i] = snapshot();
+		}
+	}
+
+	/**
+	 * Trains the network once on each window of a series starting at positions <code>from</code>
+	 * up to but not including <code>to</code>, carrying on from its current weights, weight
+	 * changes, delays and context. The training position is left unchanged, even if it fails.
+	 *
+	 * @param series The series
+	 * @param from The start of the first window
+	 * @param to The start of the window after the last
+	 *
+	 * @return the total error over the windows, each before its adjustment
+	 *
+	 * @throws IllegalStateException if the network shares its weights
+	 */
+	protected double learn(double[] series, int from, int to){
+		if(shared)
+			throw new IllegalStateException("A network which shares its weights cannot be trained");
+		SeriesWindows data = windows;
+		int next = nextInput;
+		double error = 0;
+		this.series.setData(series);
+		windows = this.series;
+		try{
+			for(nextInput = from; nextInput < to; nextInput++){
+				propagate();
+				error += calculateError();
+				backPropagate();
+			}
+		}
+		finally{
+			windows = data;
+			nextInput = next;
+		}
+		return error;
+	}
+
+	/**
+	 * Propagates a sample, calculates its error and back propagates it, timing each phase
+	 */
+	private void timedTrainingStep(){
+		telemetry.startSample();
+		initialise();
+		telemetry.endPhase(Telemetry.INITIALISE);
+		sendToHidden();
+		telemetry.endPhase(Telemetry.SEND_TO_HIDDEN);
+		calculateHiddenOutput();
+		telemetry.endPhase(Telemetry.CALCULATE_HIDDEN_OUTPUT);
+		sendToOutput();
+		telemetry.endPhase(Telemetry.SEND_TO_OUTPUT);
+		totalNetworkError += calculateError();
+		telemetry.endPhase(Telemetry.CALCULATE_ERROR);
+		calculateOutputError();
+		telemetry.endPhase(Telemetry.CALCULATE_OUTPUT_ERROR);
+		calculateOutputWeightChange();
+		telemetry.endPhase(Telemetry.CALCULATE_OUTPUT_WEIGHT_CHANGE);
+		calculateHiddenError();
+		telemetry.endPhase(Telemetry.CALCULATE_HIDDEN_ERROR);
+		calculateHiddenWeightChange();
+		telemetry.endPhase(Telemetry.CALCULATE_HIDDEN_WEIGHT_CHANGE);
+		adjustOutputWeights();
+		telemetry.endPhase(Telemetry.ADJUST_OUTPUT_WEIGHTS);
+		adjustHiddenWeights();
+		telemetry.endPhase(Telemetry.ADJUST_HIDDEN_WEIGHTS);
+	}
+
+	/**
+	 * Tests the network with the required test type
+	 */
+	private Evaluation beginTest(double[] data, String testType, Evaluation evaluation){
+		if(writingDetails)
+			detailFile = new AsyncOutputFile("output/"+ fileID + testType + "_" +"details.csv" + (compressDetails ? ".gz" : ""), compressDetails);
+		windows = new SeriesWindows(data, inputs, wrapping);
+		evaluation.start(windows.size());
+		totalEpochs = 1;
+		nextInput = 0;
+		while(nextInput <= (windows.size() - 1)){
+			propagate();
+			totalNetworkError = evaluation.add(targetOutput, outputValue);
+			if(writingDetails)
+				detailFile.writeToFile("Error", totalNetworkError);
+			nextInput++;
+		}
+		if(writingDetails)
+			detailFile.closeFile();
+		return evaluation;
+	}
+
+	/**
+	 * Starts testing the network
+	 *
+	 * @param data The testing data
+	 *
+	 * @return the evaluation, with every metric
+	 */
+	public Evaluation test(double[] data){
+		return test(data, new Evaluation());
+	}
+
+	/**
+	 * Starts testing the network, measuring the results with an existing evaluation, which
+	 * is cleared first
+	 *
+	 * @param data The testing data
+	 * @param evaluation The evaluation
+	 *
+	 * @return evaluation
+	 */
+	public Evaluation test(double[] data, Evaluation evaluation){
+		return beginTest(data, "T", evaluation);
+	}
+
+	/**
+	 * Starts validating the network
+	 *
+	 * @param data The validating data
+	 *
+	 * @return the evaluation, with every metric
+	 */
+	public Evaluation validate(double[] data){
+		return validate(data, new Evaluation());
+	}
+
+	/**
+	 * Starts validating the network, measuring the results with an existing evaluation,
+	 * which is cleared first
+	 *
+	 * @param data The validating data
+	 * @param evaluation The evaluation
+	 *
+	 * @return evaluation
+	 */
+	public Evaluation validate(double[] data, Evaluation evaluation){
+		return beginTest(data, "V", evaluation);
+	}
+
+	/**
+	 * Predicts the output for one window of inputs. Nothing is written to file and nothing is
+	 * allocated. The window must hold one value per Input Neuron. A TDNN or RNN carries its
+	 * delays or context over from one prediction to the next, as it does while testing.
+	 *
+	 * @param window The input values
+	 *
+	 * @return the output of the Output Neuron
+	 */
+	public double predict(double[] window){
+		if(window.length != inputs)
+			throw new IllegalArgumentException("Expected " + inputs + " inputs but got " + window.length);
+		return predict(window, 0);
+	}
+
+	/**
+	 * Predicts the output for each of a number of windows of inputs
+	 *
+	 * @param windows The windows of input values
+	 * @param outputs The array to hold the output for each window
+	 */
+	public void predictBatch(double[][] windows, double[] outputs){
+		if(outputs.length < windows.length)
+			throw new IllegalArgumentException("Expected room for " + windows.length + " outputs but got " + outputs.length);
+		for(int i = 0; i < windows.length; i++)
+			outputs[i] = predict(windows[i]);
+	}
+
+	/**
+	 * Predicts the output for each window of a series, starting at positions <code>from</code> up to
+	 * but not including <code>to</code>. As when testing, a window that runs past the end of the
+	 * series wraps around to its start, unless wrapping is turned off.
+	 *
+	 * @param series The series
+	 * @param from The start of the first window
+	 * @param to The start of the window after the last
+	 * @param outputs The array to hold the output for each window
+	 *
+	 * @throws IllegalArgumentException if the range is not within the windows of the series
+	 */
+	public void predictBatch(double[] series, int from, int to, double[] outputs){
+		this.series.setData(series);
+		int size = this.series.size();
+		if(from < 0 || to > size || from > to)
+			throw new IllegalArgumentException("Invalid range " + from + " to " + to + " of " + size + " windows");
+		if(outputs.length < to - from)
+			throw new IllegalArgumentException("Expected room for " + (to - from) + " outputs but got " + outputs.length);
+		for(int i = from; i < to; i++)
+			outputs[i - from] = predict(series, i);
+	}
+
+	/**
+	 * Passes the window of a series starting at a given position forward, leaving the
+	 * training or testing position unchanged even if it fails
+	 *
+	 * @return the output of the Output Neuron
+	 */
+	private double predict(double[] series, int position){
+		SeriesWindows data = windows;
+		int next = nextInput;
+		this.series.setData(series);
+		windows = this.series;
+		nextInput = position;
+		try{
+			propagate();
+		}
+		finally{
+			windows = data;
+			nextInput = next;
+		}
+		return outputValue;
+	}
+
+	/**
+	 * Calculates the mean error over every window of a series, including those which wrap
+	 * around unless wrapping is turned off. Nothing is written to file and nothing is
+	 * allocated. A TDNN or RNN carries on from its current delays or context.
+	 *
+	 * @param series The series
+	 *
+	 * @return the mean error
+	 */
+	protected double score(double[] series){
+		this.series.setData(series);
+		int size = this.series.size();
+		double error = 0;
+		for(int i = 0; i < size; i++){
+			predict(series, i);
+			error += calculateError();
+		}
+		return error / size;
+	}
+
+	/**
+	 * Sets the implementation of the sigmoid activation function. The default is
+	 * <code>Activation.EXACT</code>.
+	 *
+	 * @param activation The activation
+	 */
+	protected void setActivation(Activation activation){
+		this.activation = activation;
+	}
+
+	/**
+	 * Gets the implementation of the sigmoid activation function
+	 *
+	 * @return activation
+	 */
+	protected Activation getActivation(){
+		return activation;
+	}
+
+	/**
+	 * Sets the kernel which runs the dense loops between the Input and Hidden layers. The
+	 * default is <code>Kernel.SCALAR</code>.
+	 *
+	 * @param kernel The kernel
+	 */
+	protected void setKernel(Kernel kernel){
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Gets the kernel which runs the dense loops between the Input and Hidden layers
+	 *
+	 * @return kernel
+	 */
+	protected Kernel getKernel(){
+		return kernel;
+	}
+
+	/**
+	 * Sets the telemetry which records each training epoch, or null to record nothing
+	 *
+	 * @param telemetry The telemetry
+	 */
+	public void setTelemetry(Telemetry telemetry){
+		this.telemetry = telemetry;
+	}
+
+	/**
+	 * Sets the early stopping used while training, or null to always train for every epoch
+	 *
+	 * @param earlyStopping The early stopping
+	 */
+	public void setEarlyStopping(EarlyStopping earlyStopping){
+		this.earlyStopping = earlyStopping;
+	}
+
+	/**
+	 * Gets the early stopping used while training
+	 *
+	 * @return earlyStopping, or null if there is none
+	 */
+	public EarlyStopping getEarlyStopping(){
+		return earlyStopping;
+	}
+
+	/**
+	 * Sets the training checkpoint, or null to save no checkpoints. Training saves the
+	 * checkpoint every few epochs, and carries on from it if it already exists.
+	 *
+	 * @param trainingCheckpoint The training checkpoint
+	 */
+	public void setTrainingCheckpoint(TrainingCheckpoint trainingCheckpoint){
+		this.trainingCheckpoint = trainingCheckpoint;
+	}
+
+	/**
+	 * Gets the training checkpoint
+	 *
+	 * @return trainingCheckpoint, or null if there is none
+	 */
+	public TrainingCheckpoint getTrainingCheckpoint(){
+		return trainingCheckpoint;
+	}
+
+	/**
+	 * Gets the network topology id used for the log files
+	 *
+	 * @return fileID
+	 */
+	public String getFileID(){
+		return fileID;
+	}
+
+	/**
+	 * Sets the network topology id used for the log files
+	 *
+	 * @param fileID The network topology id
+	 */
+	public void setFileID(String fileID){
+		this.fileID = fileID;
+	}
+
+	/**
+	 * Gets the number of Input Neurons
+	 *
+	 * @return inputs
+	 */
+	protected int getInputs(){
+		return inputs;
+	}
+
+	/**
+	 * Gets the number of Hidden Neurons
+	 *
+	 * @return hiddens
+	 */
+	protected int getHiddens(){
+		return hiddens;
+	}
+
+	/**
+	 * Sets whether the test and validation details files are compressed with gzip
+	 *
+	 * @param compressDetails true to compress the details files
+	 */
+	public void setCompressDetails(boolean compressDetails){
+		this.compressDetails = compressDetails;
+	}
+
+	/**
+	 * Sets whether testing and validating write the error of each sample to a details file.
+	 * The default is true. The returned <code>Evaluation</code> holds the results either way.
+	 *
+	 * @param writingDetails true to write the details files
+	 */
+	public void setWritingDetails(boolean writingDetails){
+		this.writingDetails = writingDetails;
+	}
+
+	/**
+	 * Gets whether testing and validating write the error of each sample to a details file
+	 *
+	 * @return writingDetails
+	 */
+	public boolean isWritingDetails(){
+		return writingDetails;
+	}
+
+	/**
+	 * Sets whether the windows near the end of a series wrap around to its start when training,
+	 * testing and predicting. The default is true. Without wrapping, an epoch covers only the
+	 * windows which lie wholly inside the series.
+	 *
+	 * @param wrapping true if the windows wrap around
+	 */
+	public void setWrapping(boolean wrapping){
+		this.wrapping = wrapping;
+		series = new SeriesWindows(null, inputs, wrapping);
+	}
+
+	/**
+	 * Gets whether the windows near the end of a series wrap around to its start
+	 *
+	 * @return wrapping
+	 */
+	public boolean isWrapping(){
+		return wrapping;
+	}
+
+	/**
+	 * Gets whether the test and validation details files are compressed with gzip
+	 *
+	 * @return compressDetails
+	 */
+	protected boolean getCompressDetails(){
+		return compressDetails;
+	}
+
+	/**
+	 * Gets the slope
+	 *
+	 * @return slope
+	 */
+	protected int getSlope(){
+		return slope;
+	}
+
+	/**
+	 * Gets the learning rate
+	 *
+	 * @return learningRate
+	 */
+	protected double getLearningRate(){
+		return learningRate;
+	}
+
+	/**
+	 * Gets the momentum
+	 *
+	 * @return momentum
+	 */
+	protected double getMomentum(){
+		return momentum;
+	}
+
+	/**
+	 * Gets the output errorTerm
+	 *
+	 * @return outputErrorTerm
+	 */
+	protected double getOutputErrorTerm(){
+		return outputErrorTerm;
+	}
+
+	/**
+	 * Sets the target output
+	 *
+	 * @param targetOutput the target output
+	 */
+	protected void setTargetOutput(double targetOutput){
+		this.targetOutput = targetOutput;
+	}
+
+	/**
+	 * Gets the output value of the Output Neuron
+	 *
+	 * @return outputValue
+	 */
+	protected double getOutputValue(){
+		return outputValue;
+	}
+
+	/**
+	 * Gets the weights between the Input and Hidden Neurons
+	 *
+	 * @return inputToHidden the row major weight matrix
+	 */
+	protected double[] getInputToHidden(){
+		return inputToHidden;
+	}
+
+	/**
+	 * Gets the weight changes between the Input and Hidden Neurons
+	 *
+	 * @return inputToHiddenChange the row major weight change matrix
+	 */
+	protected double[] getInputToHiddenChange(){
+		return inputToHiddenChange;
+	}
+
+	/**
+	 * Gets the weights between the Bias Neuron and the Hidden Neurons
+	 *
+	 * @return biasToHidden
+	 */
+	protected double[] getBiasToHidden(){
+		return biasToHidden;
+	}
+
+	/**
+	 * Gets the weight changes between the Bias Neuron and the Hidden Neurons
+	 *
+	 * @return biasToHiddenChange
+	 */
+	protected double[] getBiasToHiddenChange(){
+		return biasToHiddenChange;
+	}
+
+	/**
+	 * Gets the weights between the Hidden Neurons and the Output Neuron
+	 *
+	 * @return hiddenToOutput
+	 */
+	protected double[] getHiddenToOutput(){
+		return hiddenToOutput;
+	}
+
+	/**
+	 * Gets the weight changes between the Hidden Neurons and the Output Neuron
+	 *
+	 * @return hiddenToOutputChange
+	 */
+	protected double[] getHiddenToOutputChange(){
+		return hiddenToOutputChange;
+	}
+
+	/**
+	 * Gets the weight between the Bias Neuron and the Output Neuron
+	 *
+	 * @return biasToOutput
+	 */
+	protected double getBiasToOutput(){
+		return biasToOutput;
+	}
+
+	/**
+	 * Gets the weight change between the Bias Neuron and the Output Neuron
+	 *
+	 * @return biasToOutputChange
+	 */
+	protected double getBiasToOutputChange(){
+		return biasToOutputChange;
+	}
+
+	/**
+	 * Sets the weight change between the Bias Neuron and the Output Neuron
+	 *
+	 * @param biasToOutputChange the new weight change
+	 */
+	protected void setBiasToOutputChange(double biasToOutputChange){
+		this.biasToOutputChange = biasToOutputChange;
+	}
+
+	/**
+	 * Gets the output values of the Input Neurons
+	 *
+	 * @return inputOutput
+	 */
+	protected double[] getInputOutput(){
+		return inputOutput;
+	}
+
+	/**
+	 * Gets the summed inputs of the Hidden Neurons
+	 *
+	 * @return hiddenSum
+	 */
+	protected double[] getHiddenSum(){
+		return hiddenSum;
+	}
+
+	/**
+	 * Gets the output values of the Hidden Neurons
+	 *
+	 * @return hiddenOutput
+	 */
+	protected double[] getHiddenOutput(){
+		return hiddenOutput;
+	}
+
+	/**
+	 * Gets the hidden error terms
+	 *
+	 * @return hiddenErrorTerm
+	 */
+	protected double[] getHiddenErrorTerm(){
+		return hiddenErrorTerm;
+	}
+
+	/**
+	 * Gets the learning rate multiplied by each hidden error term
+	 *
+	 * @return hiddenRate
+	 */
+	protected double[] getHiddenRate(){
+		return hiddenRate;
+	}
+
+	/**
+	 * Gets the next input position
+	 *
+	 * @return nextInput
+	 */
+	protected int getNextInput(){
+		return nextInput;
+	}
+
+	/**
+	 * Sets the next input position
+	 *
+	 * @param nextInput the next input position
+	 */
+	protected void setNextInput(int nextInput){
+		this.nextInput = nextInput;
+	}
+
+	/**
+	 * Copies the window of input data starting at the next input position
+	 *
+	 * @param window The array to copy the window into
+	 */
+	protected void copyWindow(double[] window){
+		windows.copyWindow(nextInput, window);
+	}
+
+	/**
+	 * Gets the target output of the window starting at the next input position
+	 *
+	 * @return the newest value of the window
+	 */
+	protected double getTarget(){
+		return windows.getTarget(nextInput);
+	}
+
+	/**
+	 * Sets the input data
+	 *
+	 * @param inputData the input data
+	 */
+	protected void setInputData(double[] inputData){
+		windows = new SeriesWindows(inputData, inputs, wrapping);
+	}
+
+	/**
+	 * Gets the input data
+	 *
+	 * @return inputData
+	 */
+	protected double[] getInputData(){
+		return windows.getData();
+	}
+}
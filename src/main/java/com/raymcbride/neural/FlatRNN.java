@@ -0,0 +1,238 @@
+package com.raymcbride.neural;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * The FlatRNN class is the flat engine equivalent of the <code>RNN</code>. The Context
+ * Neurons are kept as arrays of input values and memory contents.
+ *
+ * In the <code>RNN</code> each Hidden Neuron has one input slot per Input Neuron, so the value
+ * from its Context Neuron replaces the value from the first Input Neuron, and the slots are
+ * summed starting from a position that moves on by one every step. The FlatRNN sums in the
+ * same order so that it produces the same results.
+ *
+ * @see RNN
+ *
+ * @author Ray McBride
+ */
+public class FlatRNN extends FlatNetwork{
+
+	/**
+	 * The fixed weight of the Context Synapses
+	 */
+	private static final double CONTEXT_WEIGHT = 1.0;
+
+	private double memoryDepth;
+	private double[] contextInput;
+	private double[] contextMemory;
+	private double[] contextOutput;
+	private int nextFree;
+
+	/**
+	 * This constructor for the <code>FlatRNN</code> creates a new <code>RNN</code> and compiles it.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param memoryDepth The memory depth
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 */
+	public FlatRNN(int inputs, int hiddens, double memoryDepth, int slope, double learningRate, double momentum, int totalEpochs, String fileID){
+		this(new RNN(inputs, hiddens, memoryDepth, slope, learningRate, momentum, totalEpochs, fileID));
+	}
+
+	/**
+	 * This constructor for the <code>FlatRNN</code> compiles an existing <code>RNN</code>
+	 *
+	 * @param rnn The RNN to compile
+	 */
+	public FlatRNN(RNN rnn){
+		super(rnn);
+		contextInput = new double[getHiddens()];
+		contextMemory = new double[getHiddens()];
+		contextOutput = new double[getHiddens()];
+		for(int i = 0; i < getHiddens(); i++){
+			ContextNeuron contextNeuron = rnn.getContextNeuron(i);
+			memoryDepth = contextNeuron.getMemoryDepth();
+			contextInput[i] = contextNeuron.getInputValue();
+			contextMemory[i] = contextNeuron.getMemoryContents();
+			contextOutput[i] = contextNeuron.getOutputValue();
+		}
+		nextFree = rnn.getHiddenNeuron(0).getNextFree();
+	}
+
+	/**
+	 * This constructor for the <code>FlatRNN</code> reads a network and its context written by
+	 * <code>write</code>
+	 *
+	 * @param buffer The buffer, positioned at the start of the network
+	 * @param fileID The network topology id
+	 */
+	protected FlatRNN(ByteBuffer buffer, String fileID){
+		super(buffer, fileID);
+		nextFree = buffer.getInt();
+		buffer.getInt();
+		memoryDepth = buffer.getDouble();
+		contextInput = new double[getHiddens()];
+		contextMemory = new double[getHiddens()];
+		contextOutput = new double[getHiddens()];
+		read(buffer, contextInput);
+		read(buffer, contextMemory);
+		read(buffer, contextOutput);
+	}
+
+	/**
+	 * Writes the network and its context to a buffer
+	 *
+	 * @param buffer The buffer
+	 */
+	protected void write(ByteBuffer buffer){
+		super.write(buffer);
+		buffer.putInt(nextFree).putInt(0);
+		buffer.putDouble(memoryDepth);
+		write(buffer, contextInput);
+		write(buffer, contextMemory);
+		write(buffer, contextOutput);
+	}
+
+	/**
+	 * Gets the number of bytes written by <code>write</code>
+	 *
+	 * @return the size in bytes
+	 */
+	protected int getSize(){
+		return super.getSize() + 16 + 8 * 3 * getHiddens();
+	}
+
+	/**
+	 * Gets the memory depth
+	 *
+	 * @return memoryDepth
+	 */
+	protected double getMemoryDepth(){
+		return memoryDepth;
+	}
+
+	/**
+	 * Gets the input values of the Context Neurons
+	 *
+	 * @return contextInput
+	 */
+	protected double[] getContextInput(){
+		return contextInput;
+	}
+
+	/**
+	 * Gets the memory contents of the Context Neurons
+	 *
+	 * @return contextMemory
+	 */
+	protected double[] getContextMemory(){
+		return contextMemory;
+	}
+
+	/**
+	 * Gets the output values of the Context Neurons
+	 *
+	 * @return contextOutput
+	 */
+	protected double[] getContextOutput(){
+		return contextOutput;
+	}
+
+	/**
+	 * Gets the position of the next free input slot of the Hidden Neurons
+	 *
+	 * @return nextFree
+	 */
+	protected int getNextFree(){
+		return nextFree;
+	}
+
+	/**
+	 * This constructor for the <code>FlatRNN</code> creates a copy for inference only, which
+	 * shares the weights of another <code>FlatRNN</code> and starts from a copy of its context
+	 *
+	 * @param rnn The FlatRNN whose weights are shared
+	 */
+	protected FlatRNN(FlatRNN rnn){
+		super(rnn);
+		memoryDepth = rnn.memoryDepth;
+		contextInput = rnn.contextInput.clone();
+		contextMemory = rnn.contextMemory.clone();
+		contextOutput = rnn.contextOutput.clone();
+		nextFree = rnn.nextFree;
+	}
+
+	/**
+	 * Creates a copy for inference only, which shares the weights of this network
+	 *
+	 * @return the copy
+	 */
+	protected FlatNetwork shareWeights(){
+		return new FlatRNN(this);
+	}
+
+	/**
+	 * Copies the context of another FlatRNN
+	 *
+	 * @param network The FlatRNN to copy from
+	 */
+	protected void copyState(FlatNetwork network){
+		FlatRNN rnn = (FlatRNN)network;
+		System.arraycopy(rnn.contextInput, 0, contextInput, 0, contextInput.length);
+		System.arraycopy(rnn.contextMemory, 0, contextMemory, 0, contextMemory.length);
+		System.arraycopy(rnn.contextOutput, 0, contextOutput, 0, contextOutput.length);
+		nextFree = rnn.nextFree;
+	}
+
+	/**
+	 * Transfers the weighted values and the Context Neuron values to the Hidden Neurons
+	 */
+	protected void sendToHidden(){
+		double[] inputOutput = getInputOutput();
+		double[] hiddenSum = getHiddenSum();
+		int inputs = inputOutput.length;
+		Arrays.fill(hiddenSum, 0);
+		for(int k = 0; k < inputs; k++){
+			int i = k - nextFree;
+			if(i < 0)
+				i += inputs;
+			if(i == 0){
+				for(int j = 0; j < hiddenSum.length; j++)
+					hiddenSum[j] += contextOutput[j] * CONTEXT_WEIGHT;
+			}
+			else addRow(inputOutput[i], i * hiddenSum.length);
+		}
+		addBias();
+		nextFree = (nextFree + 1)%inputs;
+	}
+
+	/**
+	 * Transfers the weighted values to the Output Neuron and the Hidden Neuron values to the
+	 * Context Neurons
+	 */
+	protected void sendToOutput(){
+		super.sendToOutput();
+		double[] hiddenOutput = getHiddenOutput();
+		for(int j = 0; j < hiddenOutput.length; j++){
+			contextMemory[j] = contextInput[j];
+			contextInput[j] = hiddenOutput[j] * CONTEXT_WEIGHT;
+		}
+	}
+
+	/**
+	 * Initialises the network with data
+	 */
+	protected void initialise(){
+		double[] inputOutput = getInputOutput();
+		copyWindow(inputOutput);
+		for(int j = 0; j < contextOutput.length; j++)
+			contextOutput[j] = contextInput[j] + contextMemory[j]*memoryDepth;
+		setTargetOutput(getTarget());
+	}
+}
@@ -0,0 +1,347 @@
+package com.raymcbride.neural;
+
+import java.nio.*;
+
+/**
+ * The FlatTDNN class is the flat engine equivalent of the <code>TDNN</code>. The delay lines
+ * of the Input and Hidden Neurons are kept in two arrays, one circular buffer of
+ * <code>delays</code> values per Neuron, with the running sums of each line alongside. Every
+ * line of a layer takes a new value each step, so the lines of a layer share the position of
+ * their newest value. The lines are updated in the same way as a <code>DelayLine</code>.
+ *
+ * @see TDNN
+ * @see DelayLine
+ *
+ * @author Ray McBride
+ */
+public class FlatTDNN extends FlatNetwork{
+
+	private int delays;
+	private double[] inputDelay;
+	private double[] hiddenDelay;
+	private int inputHead;
+	private int hiddenHead;
+	private double[] inputDelaySum;
+	private double[] hiddenDelaySum;
+	private double[] hiddenDerivativeSum;
+
+	/**
+	 * This constructor for the <code>FlatTDNN</code> creates a new <code>TDNN</code> and compiles it.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param delays The number of delays
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 */
+	public FlatTDNN(int inputs, int hiddens, int delays, int slope, double learningRate, double momentum, int totalEpochs, String fileID){
+		this(new TDNN(inputs, hiddens, delays, slope, learningRate, momentum, totalEpochs, fileID));
+	}
+
+	/**
+	 * This constructor for the <code>FlatTDNN</code> compiles an existing <code>TDNN</code>
+	 *
+	 * @param tdnn The TDNN to compile
+	 */
+	public FlatTDNN(TDNN tdnn){
+		super(tdnn);
+		delays = tdnn.getDelays();
+		allocate();
+		for(int i = 0; i < getInputs(); i++){
+			DelayLine delayLine = tdnn.getInputNeuron(i).getDelayLine();
+			System.arraycopy(delayLine.getValues(), 0, inputDelay, i * delays, delays);
+			inputHead = delayLine.getHead();
+			inputDelaySum[i] = delayLine.getSum();
+		}
+		for(int i = 0; i < getHiddens(); i++){
+			DelayLine delayLine = tdnn.getHiddenNeuron(i).getDelayLine();
+			System.arraycopy(delayLine.getValues(), 0, hiddenDelay, i * delays, delays);
+			hiddenHead = delayLine.getHead();
+			hiddenDelaySum[i] = delayLine.getSum();
+			hiddenDerivativeSum[i] = delayLine.getDerivativeSum();
+		}
+	}
+
+	/**
+	 * This constructor for the <code>FlatTDNN</code> reads a network and its delays written by
+	 * <code>write</code>
+	 *
+	 * @param buffer The buffer, positioned at the start of the network
+	 * @param fileID The network topology id
+	 */
+	protected FlatTDNN(ByteBuffer buffer, String fileID){
+		super(buffer, fileID);
+		delays = buffer.getInt();
+		inputHead = buffer.getInt();
+		hiddenHead = buffer.getInt();
+		buffer.getInt();
+		allocate();
+		read(buffer, inputDelay);
+		read(buffer, hiddenDelay);
+		read(buffer, inputDelaySum);
+		read(buffer, hiddenDelaySum);
+		read(buffer, hiddenDerivativeSum);
+	}
+
+	/**
+	 * This constructor for the <code>FlatTDNN</code> creates a copy for inference only, which
+	 * shares the weights of another <code>FlatTDNN</code> and starts from a copy of its delays
+	 *
+	 * @param tdnn The FlatTDNN whose weights are shared
+	 */
+	protected FlatTDNN(FlatTDNN tdnn){
+		super(tdnn);
+		delays = tdnn.delays;
+		inputDelay = tdnn.inputDelay.clone();
+		hiddenDelay = tdnn.hiddenDelay.clone();
+		inputHead = tdnn.inputHead;
+		hiddenHead = tdnn.hiddenHead;
+		inputDelaySum = tdnn.inputDelaySum.clone();
+		hiddenDelaySum = tdnn.hiddenDelaySum.clone();
+		hiddenDerivativeSum = tdnn.hiddenDerivativeSum.clone();
+	}
+
+	/**
+	 * Allocates the delay lines and their sums
+	 */
+	private void allocate(){
+		inputDelay = new double[getInputs() * delays];
+		hiddenDelay = new double[getHiddens() * delays];
+		inputDelaySum = new double[getInputs()];
+		hiddenDelaySum = new double[getHiddens()];
+		hiddenDerivativeSum = new double[getHiddens()];
+	}
+
+	/**
+	 * Writes the network and its delays to a buffer
+	 *
+	 * @param buffer The buffer
+	 */
+	protected void write(ByteBuffer buffer){
+		super.write(buffer);
+		buffer.putInt(delays).putInt(inputHead).putInt(hiddenHead).putInt(0);
+		write(buffer, inputDelay);
+		write(buffer, hiddenDelay);
+		write(buffer, inputDelaySum);
+		write(buffer, hiddenDelaySum);
+		write(buffer, hiddenDerivativeSum);
+	}
+
+	/**
+	 * Gets the number of bytes written by <code>write</code>
+	 *
+	 * @return the size in bytes
+	 */
+	protected int getSize(){
+		return super.getSize() + 16 + 8 * (inputDelay.length + hiddenDelay.length + inputDelaySum.length + 2 * hiddenDelaySum.length);
+	}
+
+	/**
+	 * Gets the number of delays
+	 *
+	 * @return delays
+	 */
+	protected int getDelays(){
+		return delays;
+	}
+
+	/**
+	 * Gets the circular buffers of the delay lines of the Input Neurons
+	 *
+	 * @return inputDelay
+	 */
+	protected double[] getInputDelay(){
+		return inputDelay;
+	}
+
+	/**
+	 * Gets the circular buffers of the delay lines of the Hidden Neurons
+	 *
+	 * @return hiddenDelay
+	 */
+	protected double[] getHiddenDelay(){
+		return hiddenDelay;
+	}
+
+	/**
+	 * Gets the position of the newest value in the delay lines of the Input Neurons
+	 *
+	 * @return inputHead
+	 */
+	protected int getInputHead(){
+		return inputHead;
+	}
+
+	/**
+	 * Gets the position of the newest value in the delay lines of the Hidden Neurons
+	 *
+	 * @return hiddenHead
+	 */
+	protected int getHiddenHead(){
+		return hiddenHead;
+	}
+
+	/**
+	 * Gets the sums of the delay lines of the Input Neurons
+	 *
+	 * @return inputDelaySum
+	 */
+	protected double[] getInputDelaySum(){
+		return inputDelaySum;
+	}
+
+	/**
+	 * Gets the sums of the delay lines of the Hidden Neurons
+	 *
+	 * @return hiddenDelaySum
+	 */
+	protected double[] getHiddenDelaySum(){
+		return hiddenDelaySum;
+	}
+
+	/**
+	 * Gets the sums of <code>v(1 - v)</code> over the delay lines of the Hidden Neurons
+	 *
+	 * @return hiddenDerivativeSum
+	 */
+	protected double[] getHiddenDerivativeSum(){
+		return hiddenDerivativeSum;
+	}
+
+	/**
+	 * Creates a copy for inference only, which shares the weights of this network
+	 *
+	 * @return the copy
+	 */
+	protected FlatNetwork shareWeights(){
+		return new FlatTDNN(this);
+	}
+
+	/**
+	 * Copies the delay lines of another FlatTDNN
+	 *
+	 * @param network The FlatTDNN to copy from
+	 */
+	protected void copyState(FlatNetwork network){
+		FlatTDNN tdnn = (FlatTDNN)network;
+		System.arraycopy(tdnn.inputDelay, 0, inputDelay, 0, inputDelay.length);
+		System.arraycopy(tdnn.hiddenDelay, 0, hiddenDelay, 0, hiddenDelay.length);
+		System.arraycopy(tdnn.inputDelaySum, 0, inputDelaySum, 0, inputDelaySum.length);
+		System.arraycopy(tdnn.hiddenDelaySum, 0, hiddenDelaySum, 0, hiddenDelaySum.length);
+		System.arraycopy(tdnn.hiddenDerivativeSum, 0, hiddenDerivativeSum, 0, hiddenDerivativeSum.length);
+		inputHead = tdnn.inputHead;
+		hiddenHead = tdnn.hiddenHead;
+	}
+
+	/**
+	 * Gets the position of the newest value once the lines of a layer have taken a new value
+	 *
+	 * @param head The position of the newest value
+	 *
+	 * @return the new position
+	 */
+	private int advance(int head){
+		return head == 0 ? delays - 1 : head - 1;
+	}
+
+	/**
+	 * Replaces the oldest value of a delay line with a new value and updates its sums, in the
+	 * same way as <code>DelayLine.add</code>
+	 *
+	 * @param delay The delay lines
+	 * @param line The number of the delay line
+	 * @param head The position of the oldest value, which becomes the newest
+	 * @param sums The sums of the delay lines
+	 * @param derivativeSums The sums of <code>v(1 - v)</code>, or null if they are not needed
+	 * @param value The new value
+	 *
+	 * @return the sum of the delay line
+	 */
+	private double delay(double[] delay, int line, int head, double[] sums, double[] derivativeSums, double value){
+		int offset = line * delays;
+		double oldest = delay[offset + head];
+		delay[offset + head] = value;
+		if(head == 0){
+			double sum = 0;
+			double derivativeSum = 0;
+			for(int k = offset; k < offset + delays; k++){
+				sum += delay[k];
+				derivativeSum += delay[k] * (1 - delay[k]);
+			}
+			sums[line] = sum;
+			if(derivativeSums != null)
+				derivativeSums[line] = derivativeSum;
+		}
+		else{
+			sums[line] += value - oldest;
+			if(derivativeSums != null)
+				derivativeSums[line] += value * (1 - value) - oldest * (1 - oldest);
+		}
+		return sums[line];
+	}
+
+	/**
+	 * Calculates the output of the Hidden Neurons
+	 */
+	protected void calculateHiddenOutput(){
+		double[] hiddenSum = getHiddenSum();
+		double[] hiddenOutput = getHiddenOutput();
+		hiddenHead = advance(hiddenHead);
+		for(int j = 0; j < hiddenOutput.length; j++)
+			hiddenOutput[j] = delay(hiddenDelay, j, hiddenHead, hiddenDelaySum, hiddenDerivativeSum, sigmoidActivation(hiddenSum[j]));
+	}
+
+	/**
+	 * Calculates the weight change to be made to the weights between the Output and Hidden
+	 * Neurons and Bias Neuron, from the means of the delay lines of the Hidden Neurons
+	 */
+	protected void calculateOutputWeightChange(){
+		double[] hiddenToOutputChange = getHiddenToOutputChange();
+		double rate = getLearningRate() * getOutputErrorTerm();
+		for(int j = 0; j < hiddenToOutputChange.length; j++)
+			hiddenToOutputChange[j] = (rate * (hiddenDelaySum[j] / delays)) + (getMomentum() * hiddenToOutputChange[j]);
+		setBiasToOutputChange((rate * BIAS) + (getMomentum() * getBiasToOutputChange()));
+	}
+
+	/**
+	 * Calculates the hidden error term, averaged over the delays
+	 */
+	protected void calculateHiddenError(){
+		double[] hiddenErrorTerm = getHiddenErrorTerm();
+		double[] hiddenToOutput = getHiddenToOutput();
+		for(int j = 0; j < hiddenErrorTerm.length; j++)
+			hiddenErrorTerm[j] = getSlope() * hiddenDerivativeSum[j] * getOutputErrorTerm() * hiddenToOutput[j] / delays;
+	}
+
+	/**
+	 * Calculates the weight change to be made to the weights between the Hidden and Input
+	 * Neurons and Bias Neuron, from the means of the delay lines of the Input Neurons
+	 */
+	protected void calculateHiddenWeightChange(){
+		double[] hiddenRate = getHiddenRate();
+		double[] hiddenErrorTerm = getHiddenErrorTerm();
+		double[] inputToHiddenChange = getInputToHiddenChange();
+		double momentum = getMomentum();
+		int hiddens = getHiddens();
+		for(int j = 0; j < hiddens; j++)
+			hiddenRate[j] = getLearningRate() * hiddenErrorTerm[j];
+		for(int i = 0; i < getInputs(); i++)
+			getKernel().calculateRowChange(inputDelaySum[i] / delays, hiddenRate, momentum, inputToHiddenChange, i * hiddens);
+		calculateBiasToHiddenChange();
+	}
+
+	/**
+	 * Initialises the network with data
+	 */
+	protected void initialise(){
+		double[] inputOutput = getInputOutput();
+		copyWindow(inputOutput);
+		inputHead = advance(inputHead);
+		for(int i = 0; i < inputOutput.length; i++)
+			inputOutput[i] = delay(inputDelay, i, inputHead, inputDelaySum, null, inputOutput[i]);
+		setTargetOutput(getTarget());
+	}
+}
@@ -0,0 +1,118 @@
+package com.raymcbride.neural;
+
+import jdk.jfr.*;
+
+/**
+ * The FlightRecorderListener class emits a JDK Flight Recorder event for each training epoch.
+ * It needs Java 11 or later, so it is left out of the build on older JDKs and is only loaded
+ * through <code>Telemetry.createFlightRecorderListener</code>. When no recording is running
+ * the events are discarded straight away.
+ *
+ * @see Telemetry
+ *
+ * @author Ray McBride
+ */
+public class FlightRecorderListener implements TrainingListener{
+
+	/**
+	 * The Flight Recorder event for a training epoch
+	 */
+	@Name("com.raymcbride.neural.TrainingEpoch")
+	@Label("Training Epoch")
+	@Category("Neural Networks")
+	@StackTrace(false)
+	public static class TrainingEpochEvent extends Event{
+
+		@Label("File ID")
+		String fileID;
+
+		@Label("Epoch")
+		int epoch;
+
+		@Label("Samples")
+		int samples;
+
+		@Label("Loss")
+		double loss;
+
+		@Label("Samples per Second")
+		double samplesPerSecond;
+
+		@Label("Elapsed Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsedTime;
+
+		@Label("initialise")
+		@Timespan(Timespan.NANOSECONDS)
+		long initialise;
+
+		@Label("sendToHidden")
+		@Timespan(Timespan.NANOSECONDS)
+		long sendToHidden;
+
+		@Label("calculateHiddenOutput")
+		@Timespan(Timespan.NANOSECONDS)
+		long calculateHiddenOutput;
+
+		@Label("sendToOutput")
+		@Timespan(Timespan.NANOSECONDS)
+		long sendToOutput;
+
+		@Label("calculateError")
+		@Timespan(Timespan.NANOSECONDS)
+		long calculateError;
+
+		@Label("calculateOutputError")
+		@Timespan(Timespan.NANOSECONDS)
+		long calculateOutputError;
+
+		@Label("calculateOutputWeightChange")
+		@Timespan(Timespan.NANOSECONDS)
+		long calculateOutputWeightChange;
+
+		@Label("calculateHiddenError")
+		@Timespan(Timespan.NANOSECONDS)
+		long calculateHiddenError;
+
+		@Label("calculateHiddenWeightChange")
+		@Timespan(Timespan.NANOSECONDS)
+		long calculateHiddenWeightChange;
+
+		@Label("adjustOutputWeights")
+		@Timespan(Timespan.NANOSECONDS)
+		long adjustOutputWeights;
+
+		@Label("adjustHiddenWeights")
+		@Timespan(Timespan.NANOSECONDS)
+		long adjustHiddenWeights;
+	}
+
+	/**
+	 * Emits an event for the epoch if a recording is running
+	 *
+	 * @param telemetry The telemetry of the epoch
+	 */
+	public void epochCompleted(Telemetry telemetry){
+		TrainingEpochEvent event = new TrainingEpochEvent();
+		if(!event.shouldCommit())
+			return;
+		event.fileID = telemetry.getFileID();
+		event.epoch = telemetry.getEpoch();
+		event.samples = telemetry.getSamples();
+		event.loss = telemetry.getLoss();
+		event.samplesPerSecond = telemetry.getSamplesPerSecond();
+		event.elapsedTime = telemetry.getElapsedTime();
+		event.initialise = telemetry.getPhaseTime(Telemetry.INITIALISE);
+		event.sendToHidden = telemetry.getPhaseTime(Telemetry.SEND_TO_HIDDEN);
+		event.calculateHiddenOutput = telemetry.getPhaseTime(Telemetry.CALCULATE_HIDDEN_OUTPUT);
+		event.sendToOutput = telemetry.getPhaseTime(Telemetry.SEND_TO_OUTPUT);
+		event.calculateError = telemetry.getPhaseTime(Telemetry.CALCULATE_ERROR);
+		event.calculateOutputError = telemetry.getPhaseTime(Telemetry.CALCULATE_OUTPUT_ERROR);
+		event.calculateOutputWeightChange = telemetry.getPhaseTime(Telemetry.CALCULATE_OUTPUT_WEIGHT_CHANGE);
+		event.calculateHiddenError = telemetry.getPhaseTime(Telemetry.CALCULATE_HIDDEN_ERROR);
+		event.calculateHiddenWeightChange = telemetry.getPhaseTime(Telemetry.CALCULATE_HIDDEN_WEIGHT_CHANGE);
+		event.adjustOutputWeights = telemetry.getPhaseTime(Telemetry.ADJUST_OUTPUT_WEIGHTS);
+		event.adjustHiddenWeights = telemetry.getPhaseTime(Telemetry.ADJUST_HIDDEN_WEIGHTS);
+		event.commit();
+	}
+}
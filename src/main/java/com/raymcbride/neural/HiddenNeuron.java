@@ -7,7 +7,7 @@ package com.raymcbride.neural;
  */
 public class HiddenNeuron extends Neuron{
 
-	private double[] timeDelay;
+	private DelayLine delayLine;
 
     /**
 	 * This constructor for the <code>HiddenNeuron</code> sets the slope of it's activation function
@@ -30,7 +30,7 @@ public class HiddenNeuron extends Neuron{
 	 */
 	public HiddenNeuron(int slope, int numberOfInputs, int delays){
 		super(slope, numberOfInputs);
-		timeDelay = new double[delays];
+		delayLine = new DelayLine(delays);
 	}
 
 	/**
@@ -38,22 +38,27 @@ public class HiddenNeuron extends Neuron{
 	 */
 	public void calculateDelayedOutput(){
 		super.calculateOutput();
-		for(int i = timeDelay.length - 1; i > 0; i--)
-			timeDelay[i] = timeDelay[i-1];
-		timeDelay[0] = getOutputValue();
-		double tempOutput = 0;
-		for(int i = 0; i < timeDelay.length; i++){
-			tempOutput += timeDelay[i];
-		}
-		setOutputValue(tempOutput);
+		setOutputValue(delayLine.add(getOutputValue()));
 	}
 
 	/**
 	 * gets the delayed output values
 	 *
-	 * @return a double array of delayed output values
+	 * @return a new double array of delayed output values, newest first
 	 */
 	public double[] getOutputs(){
-		return timeDelay;
+		double[] outputs = new double[delayLine.size()];
+		for(int i = 0; i < outputs.length; i++)
+			outputs[i] = delayLine.get(i);
+		return outputs;
+	}
+
+	/**
+	 * Gets the delay line of output values
+	 *
+	 * @return delayLine
+	 */
+	protected DelayLine getDelayLine(){
+		return delayLine;
 	}
 }
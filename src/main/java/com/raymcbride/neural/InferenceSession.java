@@ -0,0 +1,141 @@
+package com.raymcbride.neural;
+
+/**
+ * The InferenceSession class forecasts a live series one observation at a time. It holds the
+ * window of the most recent observations and, through a copy of the network which shares the
+ * model's weights, the context of an <code>RNN</code> or the delays of a <code>TDNN</code>.
+ * Each new observation moves the window on by one and passes it forward once, so the context
+ * is carried from tick to tick and never has to be rebuilt by replaying the series.
+ *
+ * A session can be forked, giving an independent session which carries on from the same
+ * state, for example to try out a number of possible next observations. A fork which is kept
+ * rather than advanced is a checkpoint, and <code>restore</code> returns a session to it.
+ *
+ * Observations are scaled in the same way as the training data. A session must only be used
+ * by one thread at a time.
+ *
+ * @see Model#newSession()
+ *
+ * @author Ray McBride
+ */
+public class InferenceSession{
+
+	private FlatNetwork network;
+	private double[] window;
+	private long observations;
+	private double forecast;
+
+	/**
+	 * This constructor for the <code>InferenceSession</code> wraps a network which shares the
+	 * weights of a model, starting with an empty window
+	 *
+	 * @param network The network
+	 */
+	InferenceSession(FlatNetwork network){
+		this(network, new double[network.getInputs()], 0, Double.NaN);
+	}
+
+	/**
+	 * This constructor for the <code>InferenceSession</code> sets its whole state
+	 *
+	 * @param network The network
+	 * @param window The most recent observations, oldest first
+	 * @param observations The number of observations so far
+	 * @param forecast The latest forecast
+	 */
+	private InferenceSession(FlatNetwork network, double[] window, long observations, double forecast){
+		this.network = network;
+		this.window = window;
+		this.observations = observations;
+		this.forecast = forecast;
+	}
+
+	/**
+	 * Adds an observation and passes the new window forward. Until the window is full the
+	 * network is not used and its context is left unchanged.
+	 *
+	 * @param observation The scaled observation
+	 *
+	 * @return the forecast, or NaN until there have been as many observations as inputs
+	 */
+	public double advance(double observation){
+		System.arraycopy(window, 1, window, 0, window.length - 1);
+		window[window.length - 1] = observation;
+		observations++;
+		if(observations >= window.length)
+			forecast = network.predict(window);
+		return forecast;
+	}
+
+	/**
+	 * Adds a number of observations in order
+	 *
+	 * @param observations The scaled observations, oldest first
+	 *
+	 * @return the forecast after the last, or NaN until there have been as many observations
+	 * as inputs
+	 */
+	public double advance(double[] observations){
+		for(int i = 0; i < observations.length; i++)
+			advance(observations[i]);
+		return forecast;
+	}
+
+	/**
+	 * Creates an independent session which carries on from the same window and context
+	 *
+	 * @return the fork
+	 */
+	public InferenceSession fork(){
+		return new InferenceSession(network.shareWeights(), window.clone(), observations, forecast);
+	}
+
+	/**
+	 * Takes a checkpoint of the session, to be restored later. A checkpoint is a fork which is
+	 * kept rather than advanced.
+	 *
+	 * @return the checkpoint
+	 */
+	public InferenceSession checkpoint(){
+		return fork();
+	}
+
+	/**
+	 * Returns the session to the state of a checkpoint or fork of the same model
+	 *
+	 * @param checkpoint The checkpoint
+	 */
+	public void restore(InferenceSession checkpoint){
+		network.copyState(checkpoint.network);
+		System.arraycopy(checkpoint.window, 0, window, 0, window.length);
+		observations = checkpoint.observations;
+		forecast = checkpoint.forecast;
+	}
+
+	/**
+	 * Gets the latest forecast
+	 *
+	 * @return forecast, or NaN until there have been as many observations as inputs
+	 */
+	public double getForecast(){
+		return forecast;
+	}
+
+	/**
+	 * Gets the number of observations so far
+	 *
+	 * @return observations
+	 */
+	public long getObservations(){
+		return observations;
+	}
+
+	/**
+	 * Gets a copy of the window of the most recent observations
+	 *
+	 * @return the observations, oldest first
+	 */
+	public double[] getWindow(){
+		return window.clone();
+	}
+}
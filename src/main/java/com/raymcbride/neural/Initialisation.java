@@ -0,0 +1,90 @@
+package com.raymcbride.neural;
+
+import java.util.*;
+
+/**
+ * The Initialisation class is the abstract base class for the distributions the initial
+ * weights of a network are drawn from. <code>UNIFORM</code> draws between 0 and 1 and is the
+ * default. <code>SYMMETRIC</code> draws between -0.5 and 0.5, and <code>XAVIER</code> draws
+ * from a symmetric range which narrows as the number of Synapses into and out of a layer
+ * grows.
+ *
+ * @see Network
+ * @see Configuration#setInitialisation(Initialisation)
+ *
+ * @author Ray McBride
+ */
+public abstract class Initialisation{
+
+	/**
+	 * Weights drawn uniformly between 0 and 1
+	 */
+	public static final Initialisation UNIFORM = new Initialisation(){
+		public double nextWeight(SplittableRandom random, int fanIn, int fanOut){
+			return random.nextDouble();
+		}
+		public String getName(){
+			return "UNIFORM";
+		}
+	};
+
+	/**
+	 * Weights drawn uniformly between -0.5 and 0.5
+	 */
+	public static final Initialisation SYMMETRIC = new Initialisation(){
+		public double nextWeight(SplittableRandom random, int fanIn, int fanOut){
+			return random.nextDouble() - 0.5;
+		}
+		public String getName(){
+			return "SYMMETRIC";
+		}
+	};
+
+	/**
+	 * Weights drawn uniformly between plus and minus <code>sqrt(6 / (fanIn + fanOut))</code>
+	 */
+	public static final Initialisation XAVIER = new Initialisation(){
+		public double nextWeight(SplittableRandom random, int fanIn, int fanOut){
+			double limit = Math.sqrt(6.0 / (fanIn + fanOut));
+			return (2 * random.nextDouble() - 1) * limit;
+		}
+		public String getName(){
+			return "XAVIER";
+		}
+	};
+
+	/**
+	 * Gets an initialisation by name
+	 *
+	 * @param name The name, one of UNIFORM, SYMMETRIC or XAVIER
+	 *
+	 * @return the initialisation
+	 */
+	public static Initialisation forName(String name){
+		if(name.equals(UNIFORM.getName()))
+			return UNIFORM;
+		if(name.equals(SYMMETRIC.getName()))
+			return SYMMETRIC;
+		if(name.equals(XAVIER.getName()))
+			return XAVIER;
+		throw new IllegalArgumentException("Unknown initialisation " + name);
+	}
+
+	/**
+	 * Draws the initial weight of a Synapse
+	 *
+	 * @param random The random number generator of the network
+	 * @param fanIn The number of Synapses into the Neuron the Synapse leads to, including its bias
+	 * @param fanOut The number of Synapses out of the layer the Synapse leads from, per Neuron
+	 *
+	 * @return the weight
+	 */
+	public abstract double nextWeight(SplittableRandom random, int fanIn, int fanOut);
+
+	/**
+	 * Gets the name of the initialisation
+	 *
+	 * @return the name
+	 */
+	public abstract String getName();
+}
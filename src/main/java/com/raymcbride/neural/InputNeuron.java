@@ -7,7 +7,7 @@ package com.raymcbride.neural;
  */
 public class InputNeuron extends Neuron{
 
-	private double[] timeDelay;
+	private DelayLine delayLine;
 
 	/**
 	 * This constructor for the <code>InputNeuron</code> sets the slope of it's activation function
@@ -27,7 +27,7 @@ public class InputNeuron extends Neuron{
 	 */
 	public InputNeuron(int slope, int delays){
 		super(slope);
-		timeDelay = new double[delays];
+		delayLine = new DelayLine(delays);
 	}
 
 	/**
@@ -50,22 +50,27 @@ public class InputNeuron extends Neuron{
 	 * Calculates the summation of the delayed output values
 	 */
 	public void calculateDelayedOutput(){
-		for(int i = timeDelay.length - 1; i > 0; i--)
-			timeDelay[i] = timeDelay[i-1];
-		timeDelay[0] = getInputValue();
-		double tempOutput = 0;
-		for(int i = 0; i < timeDelay.length; i++){
-			tempOutput += timeDelay[i];
-		}
-		setOutputValue(tempOutput);
+		setOutputValue(delayLine.add(getInputValue()));
 	}
 
 	/**
 	 * gets the delayed output values
 	 *
-	 * @return a double array of delayed output values
+	 * @return a new double array of delayed output values, newest first
 	 */
 	public double[] getOutputs(){
-		return timeDelay;
+		double[] outputs = new double[delayLine.size()];
+		for(int i = 0; i < outputs.length; i++)
+			outputs[i] = delayLine.get(i);
+		return outputs;
+	}
+
+	/**
+	 * Gets the delay line of output values
+	 *
+	 * @return delayLine
+	 */
+	protected DelayLine getDelayLine(){
+		return delayLine;
 	}
 }
@@ -0,0 +1,104 @@
+package com.raymcbride.neural;
+
+/**
+ * The Kernel class is the abstract base class for the dense loops of the flat engine between
+ * the Input and Hidden layers: the weighted sums of the Hidden Neurons, the weight changes
+ * with momentum and the weight adjustments. <code>SCALAR</code> works one weight at a time
+ * and is the default. <code>VECTOR</code> works on several weights at once with the
+ * <code>jdk.incubator.vector</code> module.
+ *
+ * Both kernels multiply and add each weight in the same order, without fusing, so they give
+ * exactly the same results.
+ *
+ * @see ScalarKernel
+ * @see VectorKernel
+ * @see FlatNetwork
+ *
+ * @author Ray McBride
+ */
+public abstract class Kernel{
+
+	private static final String VECTOR_KERNEL = "com.raymcbride.neural.VectorKernel";
+
+	/**
+	 * The kernel which works one weight at a time
+	 */
+	public static final Kernel SCALAR = new ScalarKernel();
+
+	/**
+	 * The kernel which works on several weights at once. It needs Java 16 or later, started
+	 * with <code>--add-modules jdk.incubator.vector</code>; otherwise it is <code>SCALAR</code>.
+	 */
+	public static final Kernel VECTOR = createVectorKernel();
+
+	/**
+	 * Creates the vector kernel
+	 *
+	 * @return the kernel, or <code>SCALAR</code> if the Vector API is not available on this JVM
+	 */
+	private static Kernel createVectorKernel(){
+		try{
+			return (Kernel)Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e){
+			return SCALAR;
+		}
+		catch(LinkageError e){
+			return SCALAR;
+		}
+	}
+
+	/**
+	 * Gets a kernel by name
+	 *
+	 * @param name The name, either SCALAR or VECTOR
+	 *
+	 * @return the kernel, which is <code>SCALAR</code> for VECTOR if the Vector API is not available
+	 */
+	public static Kernel forName(String name){
+		if(name.equals("SCALAR"))
+			return SCALAR;
+		if(name.equals("VECTOR"))
+			return VECTOR;
+		throw new IllegalArgumentException("Unknown kernel " + name);
+	}
+
+	/**
+	 * Adds one weighted row of weights to a set of summations, so that
+	 * <code>sums[j] += value * weights[row + j]</code>
+	 *
+	 * @param value The value the row is weighted by
+	 * @param weights The weights
+	 * @param row The offset of the row of weights
+	 * @param sums The summations, one for each weight in the row
+	 */
+	public abstract void addRow(double value, double[] weights, int row, double[] sums);
+
+	/**
+	 * Calculates the weight changes of one row of weights, so that
+	 * <code>changes[row + j] = (rates[j] * value) + (momentum * changes[row + j])</code>
+	 *
+	 * @param value The output value feeding the row
+	 * @param rates The learning rate times the error term, one for each weight in the row
+	 * @param momentum The momentum
+	 * @param changes The weight changes
+	 * @param row The offset of the row of weight changes
+	 */
+	public abstract void calculateRowChange(double value, double[] rates, double momentum, double[] changes, int row);
+
+	/**
+	 * Adds the weight changes to the weights, so that
+	 * <code>weights[k] = weights[k] + changes[k]</code>
+	 *
+	 * @param weights The weights
+	 * @param changes The weight changes, the same length as the weights
+	 */
+	public abstract void adjustWeights(double[] weights, double[] changes);
+
+	/**
+	 * Gets the name of the kernel
+	 *
+	 * @return the name
+	 */
+	public abstract String getName();
+}
@@ -0,0 +1,87 @@
+package com.raymcbride.neural;
+
+import java.util.*;
+
+/**
+ * The Leaderboard class ranks the <code>Trial</code>s of a successive halving sweep. Trials
+ * which reached a later rung rank above those eliminated earlier, and trials on the same
+ * rung are ranked by their validation error. Diverged trials, whose error is not a number,
+ * rank last on their rung.
+ *
+ * @see Sweep
+ *
+ * @author Ray McBride
+ */
+public class Leaderboard{
+
+	private List<Trial> trials;
+
+	/**
+	 * Constructor for the <code>Leaderboard</code>
+	 *
+	 * @param trials The trials to rank
+	 */
+	public Leaderboard(List<Trial> trials){
+		this.trials = new ArrayList<Trial>(trials);
+		Collections.sort(this.trials, new Comparator<Trial>(){
+			public int compare(Trial a, Trial b){
+				if(a.getRung() != b.getRung())
+					return Integer.compare(b.getRung(), a.getRung());
+				return Double.compare(a.getValidationError(), b.getValidationError());
+			}
+		});
+	}
+
+	/**
+	 * Gets the number of trials
+	 *
+	 * @return the number of trials
+	 */
+	public int size(){
+		return trials.size();
+	}
+
+	/**
+	 * Gets a trial by rank
+	 *
+	 * @param rank The rank, starting from 0 for the best trial
+	 *
+	 * @return the trial
+	 */
+	public Trial get(int rank){
+		return trials.get(rank);
+	}
+
+	/**
+	 * Prints the best trials
+	 *
+	 * @param count The number of trials to print
+	 */
+	public void print(int count){
+		for(int i = 0; i < Math.min(count, trials.size()); i++)
+			System.out.println((i + 1) + " " + format(trials.get(i)));
+	}
+
+	/**
+	 * Writes every trial to a CSV file, best first
+	 *
+	 * @param fileName The name of the file
+	 */
+	public void writeToFile(String fileName){
+		OutputFile outputFile = new OutputFile(fileName);
+		outputFile.writeToFile("Rank,FileID,Type,Inputs,Hiddens,Delays,MemoryDepth,LearningRate,Momentum,Epochs,Rung,ValidationError,TestError");
+		for(int i = 0; i < trials.size(); i++)
+			outputFile.writeToFile((i + 1) + "," + format(trials.get(i)).replace(' ', ','));
+		outputFile.closeFile();
+	}
+
+	/**
+	 * Formats a trial as a line of space separated fields
+	 *
+	 * @return the formatted trial
+	 */
+	private static String format(Trial trial){
+		Configuration configuration = trial.getConfiguration();
+		return configuration.getFileID() + " " + configuration.getType() + " " + configuration.getInputs() + " " + configuration.getHiddens() + " " + configuration.getDelays() + " " + configuration.getMemoryDepth() + " " + configuration.getLearningRate() + " " + configuration.getMomentum() + " " + trial.getEpochs() + " " + trial.getRung() + " " + trial.getValidationError() + " " + trial.getTestError();
+	}
+}
@@ -26,16 +26,63 @@ public class MLP extends Network{
         connectNeurons();
 	}
 
+	/**
+	 * This constructor for the <code>MLP</code> also specifies the seed used to create the initial weights.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 */
+	public MLP(int inputs, int hiddens, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed){
+		super(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID, seed);
+		createNeurons();
+        connectNeurons();
+	}
+
+	/**
+	 * This constructor for the <code>MLP</code> also specifies the distribution the initial weights are drawn from.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 * @param initialisation The distribution of the initial weights
+	 */
+	public MLP(int inputs, int hiddens, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed, Initialisation initialisation){
+		super(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID, seed, initialisation);
+		createNeurons();
+        connectNeurons();
+	}
+
+	/**
+	 * Takes a snapshot of the network
+	 *
+	 * @return a <code>FlatMLP</code> copy of the network
+	 */
+	public FlatNetwork snapshot(){
+		return new FlatMLP(this);
+	}
+
 	/**
 	 * Initialises the network with data
 	 */
 	protected void initialise(){
+		double[] window = getWindow();
 		for(int i = 0; i < getInputNeurons().length; i++){
-			getInputNeuron(i).input(getInputData((getNextInput() + i + getInputData().length)%getInputData().length));
+			getInputNeuron(i).input(window[i]);
 			getInputNeuron(i).calculateOutput();
 		}
 		getBiasHidden().calculateOutput();
     	getBiasOutput().calculateOutput();
-		setTargetOutput(getInputData((getNextInput() + getInputNeurons().length - 1)%getInputData().length));
+		setTargetOutput(getTarget());
 	}
 }
\ No newline at end of file
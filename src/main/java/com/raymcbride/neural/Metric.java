@@ -0,0 +1,249 @@
+package com.raymcbride.neural;
+
+/**
+ * The Metric class is a streaming measure of the accuracy of a network's outputs, which is
+ * updated with the target and output of each sample in turn as a network is tested or
+ * validated, and allocates nothing while it does so. Each of the factory methods creates a
+ * new metric, since a metric holds the running totals of one evaluation. Other metrics can
+ * be added by extending this class.
+ *
+ * The measures are of whatever targets and outputs the Evaluation passes in, which are
+ * unscaled if the Evaluation was given the DataProcessor and scaled otherwise.
+ *
+ * @see Evaluation
+ *
+ * @author Ray McBride
+ */
+public abstract class Metric{
+
+	/**
+	 * Creates the mean of the squared errors
+	 *
+	 * @return the metric
+	 */
+	public static Metric meanSquaredError(){
+		return new Metric(){
+			private double total;
+			private int count;
+
+			public void reset(){
+				total = 0;
+				count = 0;
+			}
+
+			public void add(double target, double output){
+				total += (target - output) * (target - output);
+				count++;
+			}
+
+			public double getValue(){
+				return total / count;
+			}
+
+			public String getName(){
+				return "MSE";
+			}
+		};
+	}
+
+	/**
+	 * Creates the square root of the mean of the squared errors
+	 *
+	 * @return the metric
+	 */
+	public static Metric rootMeanSquaredError(){
+		return new Metric(){
+			private Metric meanSquaredError = meanSquaredError();
+
+			public void reset(){
+				meanSquaredError.reset();
+			}
+
+			public void add(double target, double output){
+				meanSquaredError.add(target, output);
+			}
+
+			public double getValue(){
+				return Math.sqrt(meanSquaredError.getValue());
+			}
+
+			public String getName(){
+				return "RMSE";
+			}
+		};
+	}
+
+	/**
+	 * Creates the mean of the absolute errors
+	 *
+	 * @return the metric
+	 */
+	public static Metric meanAbsoluteError(){
+		return new Metric(){
+			private double total;
+			private int count;
+
+			public void reset(){
+				total = 0;
+				count = 0;
+			}
+
+			public void add(double target, double output){
+				total += Math.abs(target - output);
+				count++;
+			}
+
+			public double getValue(){
+				return total / count;
+			}
+
+			public String getName(){
+				return "MAE";
+			}
+		};
+	}
+
+	/**
+	 * Creates the mean of the absolute errors as a percentage of the targets. Samples whose
+	 * target is 0 are left out.
+	 *
+	 * @return the metric
+	 */
+	public static Metric meanAbsolutePercentageError(){
+		return new Metric(){
+			private double total;
+			private int count;
+
+			public void reset(){
+				total = 0;
+				count = 0;
+			}
+
+			public void add(double target, double output){
+				if(target != 0){
+					total += Math.abs((target - output) / target);
+					count++;
+				}
+			}
+
+			public double getValue(){
+				return 100 * total / count;
+			}
+
+			public String getName(){
+				return "MAPE";
+			}
+		};
+	}
+
+	/**
+	 * Creates the fraction of samples for which the output moves in the same direction from
+	 * the previous target as the target does. The first sample has no previous target and is
+	 * left out.
+	 *
+	 * @return the metric
+	 */
+	public static Metric directionalAccuracy(){
+		return new Metric(){
+			private double previous = Double.NaN;
+			private int hits;
+			private int count;
+
+			public void reset(){
+				previous = Double.NaN;
+				hits = 0;
+				count = 0;
+			}
+
+			public void add(double target, double output){
+				if(!Double.isNaN(previous)){
+					if(Math.signum(output - previous) == Math.signum(target - previous))
+						hits++;
+					count++;
+				}
+				previous = target;
+			}
+
+			public double getValue(){
+				return (double)hits / count;
+			}
+
+			public String getName(){
+				return "DA";
+			}
+		};
+	}
+
+	/**
+	 * Creates Theil's U, the root of the squared errors divided by the root of the squared
+	 * errors of the naive forecast that each target equals the previous one. A value below 1
+	 * beats the naive forecast. The first sample has no previous target and is left out.
+	 *
+	 * @return the metric
+	 */
+	public static Metric theilsU(){
+		return new Metric(){
+			private double previous = Double.NaN;
+			private double error;
+			private double naiveError;
+
+			public void reset(){
+				previous = Double.NaN;
+				error = 0;
+				naiveError = 0;
+			}
+
+			public void add(double target, double output){
+				if(!Double.isNaN(previous)){
+					error += (target - output) * (target - output);
+					naiveError += (target - previous) * (target - previous);
+				}
+				previous = target;
+			}
+
+			public double getValue(){
+				return Math.sqrt(error) / Math.sqrt(naiveError);
+			}
+
+			public String getName(){
+				return "TheilU";
+			}
+		};
+	}
+
+	/**
+	 * Creates one of each of the metrics
+	 *
+	 * @return the metrics
+	 */
+	public static Metric[] all(){
+		return new Metric[]{meanSquaredError(), rootMeanSquaredError(), meanAbsoluteError(), meanAbsolutePercentageError(), directionalAccuracy(), theilsU()};
+	}
+
+	/**
+	 * Abstract method to clear the running totals before an evaluation
+	 */
+	public abstract void reset();
+
+	/**
+	 * Abstract method to add a sample
+	 *
+	 * @param target The target output
+	 * @param output The output of the network
+	 */
+	public abstract void add(double target, double output);
+
+	/**
+	 * Abstract method to get the value of the metric over the samples added so far
+	 *
+	 * @return the value, or NaN if there are no samples it can use
+	 */
+	public abstract double getValue();
+
+	/**
+	 * Abstract method to get the name of the metric
+	 *
+	 * @return the name
+	 */
+	public abstract String getName();
+}
@@ -0,0 +1,74 @@
+package com.raymcbride.neural;
+
+/**
+ * The Model class is an immutable copy of a trained network, which any number of threads
+ * can use at once. It holds the weights, which are never changed, and creates a cheap
+ * <code>ModelState</code> for each thread, holding only that thread's activations, delays
+ * and context.
+ *
+ * @see Network#export()
+ * @see ModelState
+ *
+ * @author Ray McBride
+ */
+public final class Model{
+
+	private final FlatNetwork network;
+
+	/**
+	 * This constructor for the <code>Model</code> takes ownership of a snapshot of a network,
+	 * which must not be used by anything else
+	 *
+	 * @param network The snapshot
+	 */
+	Model(FlatNetwork network){
+		this.network = network;
+	}
+
+	/**
+	 * Creates the state for one thread to make predictions with. Each state starts from the
+	 * delays or context the network had when it was exported.
+	 *
+	 * @return a new state
+	 */
+	public ModelState newState(){
+		return new ModelState(network.shareWeights());
+	}
+
+	/**
+	 * Creates a session which forecasts a live series one observation at a time. The session
+	 * starts from the delays or context the network had when it was exported.
+	 *
+	 * @return a new session
+	 */
+	public InferenceSession newSession(){
+		return new InferenceSession(network.shareWeights());
+	}
+
+	/**
+	 * Gets the snapshot holding the weights, which must not be changed
+	 *
+	 * @return the snapshot
+	 */
+	FlatNetwork getNetwork(){
+		return network;
+	}
+
+	/**
+	 * Gets the number of inputs in each window
+	 *
+	 * @return the number of Input Neurons
+	 */
+	public int getInputs(){
+		return network.getInputs();
+	}
+
+	/**
+	 * Gets the number of Hidden Neurons
+	 *
+	 * @return the number of Hidden Neurons
+	 */
+	public int getHiddens(){
+		return network.getHiddens();
+	}
+}
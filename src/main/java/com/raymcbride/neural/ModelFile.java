@@ -0,0 +1,252 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * The ModelFile class saves a trained network to a compact binary file and loads it again.
+ * The file is a header holding the type of network, the minimum and maximum used to scale
+ * its data, its topology id and the name of its activation, followed by the topology, training parameters, weights and
+ * weight changes packed as little endian values, and the delay lines or context of a
+ * <code>TDNN</code> or <code>RNN</code>. Loading maps the file read only and copies the
+ * weights straight out of the mapping, so no parsing is needed. The minimum and maximum are
+ * those of a fitted <code>DataProcessor</code>, which <code>getProcessor</code> restores. A
+ * loaded network uses the activation it was saved with.
+ *
+ * A file is written to a temporary file and renamed into place, so a reader never sees a
+ * partly written model.
+ *
+ * @see Model
+ *
+ * @author Ray McBride
+ */
+public class ModelFile{
+
+	private static final int MAGIC = 0x464D4E4E;
+	private static final int VERSION = 3;
+	private static final int HEADER_SIZE = 40;
+	private static final int MLP = 0;
+	private static final int TDNN = 1;
+	private static final int RNN = 2;
+
+	private Path path;
+	private double minimum;
+	private double maximum;
+
+	/**
+	 * Constructor for the <code>ModelFile</code>
+	 *
+	 * @param location The location of the model file
+	 */
+	public ModelFile(String location){
+		path = Paths.get(location);
+	}
+
+	/**
+	 * Saves a model with the minimum and maximum used to scale its data
+	 *
+	 * @param model The model to save
+	 * @param minimum The minimum of the unscaled data
+	 * @param maximum The maximum of the unscaled data
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Model model, double minimum, double maximum) throws IOException{
+		save(model.getNetwork(), minimum, maximum);
+	}
+
+	/**
+	 * Saves a model with the data processor fitted to its training data
+	 *
+	 * @param model The model to save
+	 * @param processor The data processor
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Model model, DataProcessor processor) throws IOException{
+		save(model.getNetwork(), processor);
+	}
+
+	/**
+	 * Saves the current weights of a network with the minimum and maximum used to scale its
+	 * data
+	 *
+	 * @param network The network to save
+	 * @param minimum The minimum of the unscaled data
+	 * @param maximum The maximum of the unscaled data
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Network network, double minimum, double maximum) throws IOException{
+		save(network.snapshot(), minimum, maximum);
+	}
+
+	/**
+	 * Saves a network with the minimum and maximum of a data processor
+	 */
+	void save(FlatNetwork network, DataProcessor processor) throws IOException{
+		save(network, processor.getMinimum(), processor.getMaximum());
+	}
+
+	/**
+	 * Writes a network to a temporary file and renames it into place
+	 */
+	void save(FlatNetwork network, double minimum, double maximum) throws IOException{
+		byte[] fileID = network.getFileID() == null ? new byte[0] : network.getFileID().getBytes(StandardCharsets.UTF_8);
+		byte[] activation = network.getActivation().getName().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate((int)(HEADER_SIZE + padded(fileID.length) + padded(activation.length)) + network.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(getType(network)).putInt(fileID.length);
+		buffer.putInt(activation.length).putInt(0);
+		buffer.putDouble(minimum).putDouble(maximum);
+		buffer.put(fileID).put(new byte[(int)padded(fileID.length) - fileID.length]);
+		buffer.put(activation).put(new byte[(int)padded(activation.length) - activation.length]);
+		network.write(buffer);
+		buffer.rewind();
+		AtomicFile.write(path, buffer);
+		this.minimum = minimum;
+		this.maximum = maximum;
+	}
+
+	/**
+	 * Gets the type code of a network
+	 *
+	 * @return the type code
+	 */
+	static int getType(FlatNetwork network){
+		if(network instanceof FlatTDNN)
+			return TDNN;
+		if(network instanceof FlatRNN)
+			return RNN;
+		return MLP;
+	}
+
+	/**
+	 * Loads the model
+	 *
+	 * @return the model
+	 *
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public Model load() throws IOException{
+		return new Model(loadNetwork());
+	}
+
+	/**
+	 * Maps the file and reads the network from it
+	 *
+	 * @return the network
+	 *
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	FlatNetwork loadNetwork() throws IOException{
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			if(channel.size() < HEADER_SIZE)
+				throw new IOException(path + " is not a model file");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.getInt() != MAGIC)
+			throw new IOException(path + " is not a model file");
+		int version = buffer.getInt();
+		if(version != VERSION)
+			throw new IOException(path + " has unsupported version " + version);
+		int type = buffer.getInt();
+		int fileIDLength = buffer.getInt();
+		int activationLength = buffer.getInt();
+		buffer.getInt();
+		minimum = buffer.getDouble();
+		maximum = buffer.getDouble();
+		if(fileIDLength < 0 || activationLength < 0)
+			throw new IOException(path + " is corrupt");
+		if(padded(fileIDLength) + padded(activationLength) > buffer.remaining())
+			throw new IOException(path + " is truncated");
+		byte[] fileID = new byte[fileIDLength];
+		buffer.get(fileID);
+		buffer.position(buffer.position() + (int)padded(fileIDLength) - fileIDLength);
+		byte[] activation = new byte[activationLength];
+		buffer.get(activation);
+		buffer.position(buffer.position() + (int)padded(activationLength) - activationLength);
+		String name = new String(activation, StandardCharsets.UTF_8);
+		FlatNetwork network = read(buffer, type, new String(fileID, StandardCharsets.UTF_8), path);
+		try{
+			network.setActivation(Activation.forName(name));
+		}
+		catch(IllegalArgumentException e){
+			throw new IOException(path + " has unknown activation " + name);
+		}
+		return network;
+	}
+
+	/**
+	 * Gets the length of a string in the header once it is padded to a multiple of 8 bytes
+	 *
+	 * @param length The length of the string in bytes
+	 *
+	 * @return the padded length
+	 */
+	private static long padded(int length){
+		return length + (8 - length % 8) % 8;
+	}
+
+	/**
+	 * Reads a network of a given type from a buffer written by <code>FlatNetwork.write</code>
+	 *
+	 * @param buffer The buffer, positioned at the start of the network
+	 * @param type The type code of the network
+	 * @param id The network topology id
+	 * @param path The file the buffer was read from, for the error messages
+	 *
+	 * @return the network
+	 *
+	 * @throws IOException if the type is unknown or the buffer is truncated or corrupt
+	 */
+	static FlatNetwork read(ByteBuffer buffer, int type, String id, Path path) throws IOException{
+		try{
+			switch(type){
+				case MLP: return new FlatMLP(buffer, id);
+				case TDNN: return new FlatTDNN(buffer, id);
+				case RNN: return new FlatRNN(buffer, id);
+				default: throw new IOException(path + " has unknown network type " + type);
+			}
+		}
+		catch(BufferUnderflowException e){
+			throw new IOException(path + " is truncated");
+		}
+		catch(NegativeArraySizeException e){
+			throw new IOException(path + " is corrupt");
+		}
+	}
+
+	/**
+	 * Gets a data processor with the minimum and maximum of the unscaled data, once the model
+	 * has been saved or loaded, to scale new data as the training data was scaled and to reverse
+	 * the scaling of forecasts
+	 *
+	 * @return the data processor
+	 */
+	public DataProcessor getProcessor(){
+		return new DataProcessor(minimum, maximum);
+	}
+
+	/**
+	 * Gets the minimum of the unscaled data, once the model has been saved or loaded
+	 *
+	 * @return minimum
+	 */
+	public double getMinimum(){
+		return minimum;
+	}
+
+	/**
+	 * Gets the maximum of the unscaled data, once the model has been saved or loaded
+	 *
+	 * @return maximum
+	 */
+	public double getMaximum(){
+		return maximum;
+	}
+}
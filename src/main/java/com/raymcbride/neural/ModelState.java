@@ -0,0 +1,79 @@
+package com.raymcbride.neural;
+
+/**
+ * The ModelState class holds the activations, delays and context of one thread making
+ * predictions with a <code>Model</code>. The weights are shared with the model. A state
+ * must only be used by one thread at a time.
+ *
+ * @see Model
+ *
+ * @author Ray McBride
+ */
+public class ModelState{
+
+	private FlatNetwork network;
+
+	/**
+	 * This constructor for the <code>ModelState</code> wraps a network which shares the
+	 * weights of a model
+	 *
+	 * @param network The network
+	 */
+	ModelState(FlatNetwork network){
+		this.network = network;
+	}
+
+	/**
+	 * Sets the implementation of the sigmoid activation function used by this state. The
+	 * default is the activation the model was trained with.
+	 *
+	 * @param activation The activation
+	 */
+	public void setActivation(Activation activation){
+		network.setActivation(activation);
+	}
+
+	/**
+	 * Sets the kernel used by this state. The default is the kernel of the model it was
+	 * created from.
+	 *
+	 * @param kernel The kernel
+	 */
+	public void setKernel(Kernel kernel){
+		network.setKernel(kernel);
+	}
+
+	/**
+	 * Predicts the output for one window of inputs
+	 *
+	 * @param window The input values
+	 *
+	 * @return the output
+	 */
+	public double predict(double[] window){
+		return network.predict(window);
+	}
+
+	/**
+	 * Predicts the output for each of a number of windows of inputs
+	 *
+	 * @param windows The windows of input values
+	 * @param outputs The array to hold the output for each window
+	 */
+	public void predictBatch(double[][] windows, double[] outputs){
+		network.predictBatch(windows, outputs);
+	}
+
+	/**
+	 * Predicts the output for each window of a series, starting at positions <code>from</code> up to
+	 * but not including <code>to</code>
+	 *
+	 * @param series The series
+	 * @param from The start of the first window
+	 * @param to The start of the window after the last
+	 * @param outputs The array to hold the output for each window
+	 */
+	public void predictBatch(double[] series, int from, int to, double[] outputs){
+		network.predictBatch(series, from, to, outputs);
+	}
+}
@@ -20,12 +20,13 @@ abstract class Network{
     private Neuron outputNeuron;
     private double learningRate;
     private double momentum;
-    private int epoch;
     private int slope;
     private double targetOutput;
     private double outputErrorTerm;
     private double[] hiddenErrorTerm;
-    private double[] inputData;
+    private SeriesWindows windows;
+    private boolean wrapping = true;
+    private double[] window;
     private BiasNeuron biasHidden;
     private BiasNeuron biasOutput;
     private Synapse[][] inputToHidden;
@@ -33,10 +34,18 @@ abstract class Network{
     private Synapse[] biasToHidden;
     private Synapse biasToOutput;
     private int nextInput;
-    private double totalNetworkError;
-    private OutputFile detailFile;
+    private boolean compressDetails;
+    private boolean writingDetails = true;
     private int totalEpochs;
     private String fileID;
+    private SplittableRandom random;
+    private Initialisation initialisation = Initialisation.UNIFORM;
+    private EarlyStopping earlyStopping;
+    private TrainingCheckpoint trainingCheckpoint;
+    private Telemetry telemetry;
+    private Activation activation = Activation.EXACT;
+    private Kernel kernel = Kernel.SCALAR;
+    private FlatNetwork compiled;
 
     /**
 	 * This constructor for the <code>MLP</code> specifies the number of Input Neurons and Hidden Neurons
@@ -58,15 +67,53 @@ abstract class Network{
 		hiddenToOutput = new Synapse[hiddens];
 		hiddenErrorTerm = new double[hiddens];
 		biasToHidden = new Synapse[hiddens];
+		window = new double[inputs];
 		this.slope = slope;
 		this.learningRate = learningRate;
 		this.momentum = momentum;
         nextInput = 0;
-        totalNetworkError = 0;
         this.totalEpochs = totalEpochs;
         this.fileID = fileID;
+        random = new SplittableRandom();
     }
 
+    /**
+	 * This constructor for the <code>Network</code> also specifies the seed used to create the
+	 * initial weights, so that the same seed always gives the same network.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 */
+	public Network(int inputs, int hiddens, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed){
+		this(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID);
+		random = new SplittableRandom(seed);
+	}
+
+    /**
+	 * This constructor for the <code>Network</code> also specifies the distribution the initial
+	 * weights are drawn from.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 * @param initialisation The distribution of the initial weights
+	 */
+	public Network(int inputs, int hiddens, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed, Initialisation initialisation){
+		this(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID, seed);
+		this.initialisation = initialisation;
+	}
+
     /**
      * Creates the Neurons
      */
@@ -84,16 +131,51 @@ abstract class Network{
      * Connects the Neurons
      */
     protected void connectNeurons(){
-		for(int i = 0; i < inputNeurons.length; i++){
-			for(int j = 0; j < hiddenNeurons.length; j++){
-				inputToHidden[i][j] = new Synapse(inputNeurons[i], hiddenNeurons[j]);
+		int inputs = inputNeurons.length;
+		int hiddens = hiddenNeurons.length;
+		for(int i = 0; i < inputs; i++){
+			for(int j = 0; j < hiddens; j++){
+				inputToHidden[i][j] = createSynapse(inputNeurons[i], hiddenNeurons[j], inputs + 1, hiddens);
 			}
 		}
-		for(int i = 0; i < hiddenNeurons.length; i++){
-			hiddenToOutput[i] = new Synapse(hiddenNeurons[i], outputNeuron);
-			biasToHidden[i] = new Synapse(biasHidden, hiddenNeurons[i]);
+		for(int i = 0; i < hiddens; i++){
+			hiddenToOutput[i] = createSynapse(hiddenNeurons[i], outputNeuron, hiddens + 1, 1);
+			biasToHidden[i] = createSynapse(biasHidden, hiddenNeurons[i], inputs + 1, hiddens);
 		}
-		biasToOutput = new Synapse(biasOutput, outputNeuron);
+		biasToOutput = createSynapse(biasOutput, outputNeuron, hiddens + 1, 1);
+	}
+
+	/**
+	 * Creates a Synapse with a weight drawn from the network's own random number generator,
+	 * which is seeded if the network was given a seed
+	 *
+	 * @param inputNeuron The input Neuron
+	 * @param outputNeuron The output Neuron
+	 * @param fanIn The number of Synapses into the output Neuron, including its bias
+	 * @param fanOut The number of Synapses out of each Neuron of the input layer
+	 *
+	 * @return the new Synapse
+	 */
+	protected Synapse createSynapse(Neuron inputNeuron, Neuron outputNeuron, int fanIn, int fanOut){
+		return new Synapse(inputNeuron, outputNeuron, initialisation.nextWeight(random, fanIn, fanOut));
+	}
+
+	/**
+	 * Abstract method to take a snapshot of the network, its weights and its state in
+	 * a <code>FlatNetwork</code>
+	 *
+	 * @return the snapshot
+	 */
+	public abstract FlatNetwork snapshot();
+
+	/**
+	 * Exports the trained network as an immutable <code>Model</code> which many threads can
+	 * use at once
+	 *
+	 * @return the model
+	 */
+	public Model export(){
+		return new Model(snapshot());
 	}
 
 	/**
@@ -205,68 +287,352 @@ abstract class Network{
 	    biasToOutput.transferValue();
     }
 
+    /**
+     * Initialises the network with the next input and passes it forward to the OutputNeuron
+     */
+    protected void propagate(){
+		compiled = null;
+		initialise();
+		sendToHidden();
+		calculateHiddenOutput();
+		sendToOutput();
+		outputNeuron.calculateOutput();
+    }
+
+    /**
+     * Passes the error back from the OutputNeuron and adjusts the weights
+     */
+    protected void backPropagate(){
+		calculateOutputError();
+		calculateOutputWeightChange();
+		calculateHiddenError();
+		calculateHiddenWeightChange();
+		adjustOutputWeights();
+		adjustHiddenWeights();
+    }
+
     /**
      * Trains the network
      */
     public void train(double[] data){
-		inputData = data;
-		epoch = 0;
-		double error;
-		while((epoch < totalEpochs)){
-			initialise();
-			sendToHidden();
-			calculateHiddenOutput();
-			sendToOutput();
-			outputNeuron.calculateOutput();
-			totalNetworkError += calculateError();
-			calculateOutputError();
-			calculateOutputWeightChange();
-			calculateHiddenError();
-			calculateHiddenWeightChange();
-			adjustOutputWeights();
-			adjustHiddenWeights();
-			if (nextInput >= (inputData.length - 1)){
-				nextInput = 0;
-				totalNetworkError = 0;
-		        epoch++;
-			}
-			else nextInput++;
-		}
+		train(data, new int[0]);
+	}
+
+    /**
+     * Trains the network, taking a snapshot each time the number of completed epochs reaches
+     * one of the checkpoints. A single training run can then be tested and validated at several
+     * epoch counts, with the same results as training a new network to each count. The network
+     * is compiled into a <code>FlatNetwork</code>, which trains it, and its trained weights,
+     * weight changes and state are then restored to this network.
+     *
+     * @param data The training data
+     * @param checkpoints The epoch counts at which to take snapshots
+     *
+     * @return the snapshots, in the order of the checkpoints, or null for a checkpoint after
+     * the last training epoch
+     */
+    public FlatNetwork[] train(double[] data, int[] checkpoints){
+		FlatNetwork network = snapshot();
+		network.setEarlyStopping(earlyStopping);
+		network.setTrainingCheckpoint(trainingCheckpoint);
+		network.setTelemetry(telemetry);
+		FlatNetwork[] snapshots = network.train(data, checkpoints);
+		restore(network);
+		return snapshots;
     }
 
     /**
-     * Tests the network with the required test type
+     * Sets the weights, the weight changes and the state of the network from a snapshot, and
+     * drops the network compiled for predictions
+     *
+     * @param network The snapshot
      */
-    private void beginTest(double[] data, String testType){
-		detailFile = new OutputFile("output/"+ fileID + testType + "_" +"details.csv");
-		inputData = data;
-		totalEpochs = 1;
-		nextInput = 0;
-		while(nextInput <= (inputData.length - 1)){
-			initialise();
-			sendToHidden();
-			calculateHiddenOutput();
-			sendToOutput();
-			outputNeuron.calculateOutput();
-			totalNetworkError = calculateError();
-			detailFile.writeToFile("Error" + "," + totalNetworkError);
-			nextInput++;
+    protected void restore(FlatNetwork network){
+		compiled = null;
+		int hiddens = hiddenNeurons.length;
+		double[] weights = network.getInputToHidden();
+		double[] changes = network.getInputToHiddenChange();
+		for(int i = 0; i < inputNeurons.length; i++){
+			for(int j = 0; j < hiddens; j++)
+				inputToHidden[i][j].setWeight(weights[i * hiddens + j], changes[i * hiddens + j]);
+		}
+		for(int j = 0; j < hiddens; j++){
+			hiddenToOutput[j].setWeight(network.getHiddenToOutput()[j], network.getHiddenToOutputChange()[j]);
+			biasToHidden[j].setWeight(network.getBiasToHidden()[j], network.getBiasToHiddenChange()[j]);
 		}
-		detailFile.closeFile();
+		biasToOutput.setWeight(network.getBiasToOutput(), network.getBiasToOutputChange());
+		restoreState(network);
     }
 
+    /**
+     * Sets the delays or context of the network from a snapshot. An MLP has neither.
+     *
+     * @param network The snapshot
+     */
+    protected void restoreState(FlatNetwork network){
+    }
+
+	/**
+	 * Gets the network compiled for predictions, compiling it again if the weights, the state
+	 * or the settings of this network have changed since it was last compiled
+	 *
+	 * @return the compiled network
+	 */
+	private FlatNetwork getCompiled(){
+		if(compiled == null)
+			compiled = snapshot();
+		return compiled;
+	}
+
     /**
 	 * Starts testing the network
+	 *
+	 * @param data The testing data
+	 *
+	 * @return the evaluation, with every metric
+	 */
+	 public Evaluation test(double[] data){
+		return test(data, new Evaluation());
+	}
+
+	/**
+	 * Starts testing the network, measuring the results with an existing evaluation, which
+	 * is cleared first. The network is compiled into a <code>FlatNetwork</code> to be tested,
+	 * and its delays or context are then restored to this network.
+	 *
+	 * @param data The testing data
+	 * @param evaluation The evaluation
+	 *
+	 * @return evaluation
 	 */
-	 public void test(double[] data){
-		beginTest(data, "T");
+	public Evaluation test(double[] data, Evaluation evaluation){
+		FlatNetwork network = snapshot();
+		network.test(data, evaluation);
+		restore(network);
+		return evaluation;
 	}
 
     /**
      * Starts validating the network
+     *
+     * @param data The validating data
+     *
+     * @return the evaluation, with every metric
      */
-    public void validate(double[] data){
-		beginTest(data, "V");
+    public Evaluation validate(double[] data){
+		return validate(data, new Evaluation());
+	}
+
+	/**
+	 * Starts validating the network, measuring the results with an existing evaluation,
+	 * which is cleared first. The network is compiled into a <code>FlatNetwork</code> to be
+	 * validated, and its delays or context are then restored to this network.
+	 *
+	 * @param data The validating data
+	 * @param evaluation The evaluation
+	 *
+	 * @return evaluation
+	 */
+	public Evaluation validate(double[] data, Evaluation evaluation){
+		FlatNetwork network = snapshot();
+		network.validate(data, evaluation);
+		restore(network);
+		return evaluation;
+	}
+
+	/**
+	 * Predicts the output for one window of inputs. Nothing is written to file. The window
+	 * must hold one value per Input Neuron. A TDNN or RNN carries its delays or context over
+	 * from one prediction to the next, as it does while testing. The network is compiled into a
+	 * <code>FlatNetwork</code> once and kept until it is trained, tested or changed, so a
+	 * prediction copies back only the delays or context and allocates nothing.
+	 *
+	 * @param window The input values
+	 *
+	 * @return the output of the OutputNeuron
+	 */
+	public double predict(double[] window){
+		FlatNetwork network = getCompiled();
+		double output = network.predict(window);
+		restoreState(network);
+		return output;
+	}
+
+	/**
+	 * Predicts the output for each of a number of windows of inputs
+	 *
+	 * @param windows The windows of input values
+	 * @param outputs The array to hold the output for each window
+	 */
+	public void predictBatch(double[][] windows, double[] outputs){
+		FlatNetwork network = getCompiled();
+		network.predictBatch(windows, outputs);
+		restoreState(network);
+	}
+
+	/**
+	 * Predicts the output for each window of a series, starting at positions <code>from</code> up to
+	 * but not including <code>to</code>. As when testing, a window that runs past the end of the
+	 * series wraps around to its start, unless wrapping is turned off.
+	 *
+	 * @param series The series
+	 * @param from The start of the first window
+	 * @param to The start of the window after the last
+	 * @param outputs The array to hold the output for each window
+	 */
+	public void predictBatch(double[] series, int from, int to, double[] outputs){
+		FlatNetwork network = getCompiled();
+		network.predictBatch(series, from, to, outputs);
+		restoreState(network);
+	}
+
+	/**
+	 * Sets the early stopping used while training, or null to always train for every epoch
+	 *
+	 * @param earlyStopping The early stopping
+	 */
+	public void setEarlyStopping(EarlyStopping earlyStopping){
+		this.earlyStopping = earlyStopping;
+	}
+
+	/**
+	 * Gets the early stopping used while training
+	 *
+	 * @return earlyStopping, or null if there is none
+	 */
+	public EarlyStopping getEarlyStopping(){
+		return earlyStopping;
+	}
+
+	/**
+	 * Sets the training checkpoint, or null to save no checkpoints. Training saves the
+	 * checkpoint every few epochs, and carries on from it if it already exists.
+	 *
+	 * @param trainingCheckpoint The training checkpoint
+	 */
+	public void setTrainingCheckpoint(TrainingCheckpoint trainingCheckpoint){
+		this.trainingCheckpoint = trainingCheckpoint;
+	}
+
+	/**
+	 * Gets the training checkpoint
+	 *
+	 * @return trainingCheckpoint, or null if there is none
+	 */
+	public TrainingCheckpoint getTrainingCheckpoint(){
+		return trainingCheckpoint;
+	}
+
+	/**
+	 * Sets the implementation of the sigmoid activation function of every Neuron. The default
+	 * is <code>Activation.EXACT</code>.
+	 *
+	 * @param activation The activation
+	 */
+	public void setActivation(Activation activation){
+		this.activation = activation;
+		compiled = null;
+		for(int i = 0; i < inputNeurons.length; i++)
+			inputNeurons[i].setActivation(activation);
+		for(int i = 0; i < hiddenNeurons.length; i++)
+			hiddenNeurons[i].setActivation(activation);
+		outputNeuron.setActivation(activation);
+	}
+
+	/**
+	 * Gets the implementation of the sigmoid activation function
+	 *
+	 * @return activation
+	 */
+	protected Activation getActivation(){
+		return activation;
+	}
+
+	/**
+	 * Sets the kernel used by the flat engine compiled from this network, by
+	 * <code>snapshot</code>. The default is <code>Kernel.SCALAR</code>.
+	 *
+	 * @param kernel The kernel
+	 */
+	public void setKernel(Kernel kernel){
+		this.kernel = kernel;
+		compiled = null;
+	}
+
+	/**
+	 * Gets the kernel used by the flat engine compiled from this network
+	 *
+	 * @return kernel
+	 */
+	protected Kernel getKernel(){
+		return kernel;
+	}
+
+	/**
+	 * Sets the telemetry which records each training epoch, or null to record nothing
+	 *
+	 * @param telemetry The telemetry
+	 */
+	public void setTelemetry(Telemetry telemetry){
+		this.telemetry = telemetry;
+	}
+
+	/**
+	 * Sets whether the test and validation details files are compressed with gzip
+	 *
+	 * @param compressDetails true to compress the details files
+	 */
+	public void setCompressDetails(boolean compressDetails){
+		this.compressDetails = compressDetails;
+	}
+
+	/**
+	 * Gets whether the test and validation details files are compressed with gzip
+	 *
+	 * @return compressDetails
+	 */
+	protected boolean getCompressDetails(){
+		return compressDetails;
+	}
+
+	/**
+	 * Sets whether testing and validating write the error of each sample to a details file.
+	 * The default is true. The returned <code>Evaluation</code> holds the results either way.
+	 *
+	 * @param writingDetails true to write the details files
+	 */
+	public void setWritingDetails(boolean writingDetails){
+		this.writingDetails = writingDetails;
+	}
+
+	/**
+	 * Gets whether testing and validating write the error of each sample to a details file
+	 *
+	 * @return writingDetails
+	 */
+	public boolean isWritingDetails(){
+		return writingDetails;
+	}
+
+	/**
+	 * Sets whether the windows near the end of a series wrap around to its start when training,
+	 * testing and predicting. The default is true. Without wrapping, an epoch covers only the
+	 * windows which lie wholly inside the series.
+	 *
+	 * @param wrapping true if the windows wrap around
+	 */
+	public void setWrapping(boolean wrapping){
+		this.wrapping = wrapping;
+		compiled = null;
+	}
+
+	/**
+	 * Gets whether the windows near the end of a series wrap around to its start
+	 *
+	 * @return wrapping
+	 */
+	public boolean isWrapping(){
+		return wrapping;
 	}
 
 	/**
@@ -296,6 +662,24 @@ abstract class Network{
 		return momentum;
 	}
 
+	/**
+	 * Gets the number of training epochs
+	 *
+	 * @return totalEpochs
+	 */
+	protected int getTotalEpochs(){
+		return totalEpochs;
+	}
+
+	/**
+	 * Gets the network topology id
+	 *
+	 * @return fileID
+	 */
+	protected String getFileID(){
+		return fileID;
+	}
+
 	/**
 	 * Sets the target output
 	 *
@@ -353,6 +737,15 @@ abstract class Network{
 		return nextInput;
 	}
 
+	/**
+	 * Sets the next input position
+	 *
+	 * @param nextInput the next input position
+	 */
+	protected void setNextInput(int nextInput){
+		this.nextInput = nextInput;
+	}
+
 	/**
 	 * Gets the Synapse connecting the BiasNeuron to the OutputNeuron
 	 *
@@ -531,14 +924,31 @@ abstract class Network{
 	}
 
 	/**
-	 * Gets input data at a given position
+	 * Gets the window of input data starting at the next input position
 	 *
-	 * @param i its position
+	 * @return the window, which is overwritten by the next call
+	 */
+	protected double[] getWindow(){
+		windows.copyWindow(nextInput, window);
+		return window;
+	}
+
+	/**
+	 * Gets the target output of the window starting at the next input position
+	 *
+	 * @return the newest value of the window
+	 */
+	protected double getTarget(){
+		return windows.getTarget(nextInput);
+	}
+
+	/**
+	 * Sets the input data
 	 *
-	 * @return the double at that position
+	 * @param inputData the input data
 	 */
-	protected double getInputData(int i){
-		return inputData[i];
+	protected void setInputData(double[] inputData){
+		windows = new SeriesWindows(inputData, inputNeurons.length, wrapping);
 	}
 
 	/**
@@ -547,7 +957,7 @@ abstract class Network{
 	 * @return inputData
 	 */
 	protected double[] getInputData(){
-		return inputData;
+		return windows.getData();
 	}
 
 }
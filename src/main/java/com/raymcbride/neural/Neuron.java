@@ -19,6 +19,7 @@ abstract class Neuron{
     private double bias;
     private int slope;
     private int nextFree;
+    private Activation activation;
 
 	/**
 	 * This constructor for the <code>Neuron</code> sets the slope of it's activation function to 1
@@ -34,6 +35,7 @@ abstract class Neuron{
 	 */
 	public Neuron(int slope){
 		this.slope = slope;
+		activation = Activation.EXACT;
 	}
 
 	/**
@@ -98,9 +100,18 @@ abstract class Neuron{
 	 * @return the activated value
 	 */
 	protected double sigmoidActivation(double summation){
-        return 1/(1 + Math.exp(-slope*summation));
+        return activation.sigmoid(slope*summation);
     }
 
+    /**
+	 * Sets the implementation of the sigmoid activation function
+	 *
+	 * @param activation The activation
+	 */
+	protected void setActivation(Activation activation){
+		this.activation = activation;
+	}
+
     /**
 	 * Gets the input value
 	 *
@@ -119,6 +130,33 @@ abstract class Neuron{
 		this.inputValue = inputValue;
 	}
 
+	/**
+	 * Gets the delay line of output values
+	 *
+	 * @return the delay line, or null if the Neuron has no delays
+	 */
+	protected DelayLine getDelayLine(){
+		return null;
+	}
+
+	/**
+	 * Gets the position of the next free input slot
+	 *
+	 * @return the next free position
+	 */
+	protected int getNextFree(){
+		return nextFree;
+	}
+
+	/**
+	 * Sets the position of the next free input slot
+	 *
+	 * @param nextFree the next free position
+	 */
+	protected void setNextFree(int nextFree){
+		this.nextFree = nextFree;
+	}
+
 	/**
 	 * Gets the output value
 	 *
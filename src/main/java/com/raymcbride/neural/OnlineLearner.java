@@ -0,0 +1,223 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+
+/**
+ * The OnlineLearner class keeps a trained network up to date as new observations arrive,
+ * without training it again from the start. It holds a rolling series of the most recent
+ * observations, and each update appends the new ones and trains the network on only the
+ * windows which end in them, for a fixed number of passes. The weight changes carry on
+ * from training, so momentum is kept from one update to the next, and a <code>TDNN</code>
+ * or <code>RNN</code> carries on from its current delays or context.
+ *
+ * If a new observation falls outside the minimum and maximum used to scale the data, the
+ * range is widened to take it in and the rolling series is scaled again. The weights are
+ * left as they are, so the updates that follow adapt the network to the new scaling. The
+ * learner widens its own copy of the data processor, never the one it was given.
+ *
+ * Predictions are made by a copy which shares the weights of the network and is kept for
+ * the life of the learner, so a prediction allocates nothing.
+ *
+ * @see DataProcessor
+ * @see ModelFile
+ *
+ * @author Ray McBride
+ */
+public class OnlineLearner{
+
+	private FlatNetwork network;
+	private FlatNetwork predictor;
+	private double[] window;
+	private DataProcessor processor;
+	private int capacity;
+	private int passes;
+	private double[] values;
+	private double[] series;
+	private int steps;
+
+	/**
+	 * Constructor for the <code>OnlineLearner</code>
+	 *
+	 * @param network The trained network, which is compiled into the network the learner
+	 * trains and is itself left unchanged
+	 * @param processor The data processor which scaled the training data, which is copied
+	 * @param history The most recent unscaled observations, oldest first
+	 * @param capacity The number of observations to keep in the rolling series
+	 * @param passes The number of passes over the new windows in each update
+	 *
+	 * @throws IllegalArgumentException if the capacity is smaller than a window or passes is
+	 * less than 1
+	 */
+	public OnlineLearner(Network network, DataProcessor processor, double[] history, int capacity, int passes){
+		this(network.snapshot(), processor, history, capacity, passes);
+	}
+
+	/**
+	 * This constructor for the <code>OnlineLearner</code> trains a compiled network
+	 *
+	 * @param network The trained network, which is trained further by each update
+	 * @param processor The data processor which scaled the training data, which is copied
+	 * @param history The most recent unscaled observations, oldest first
+	 * @param capacity The number of observations to keep in the rolling series
+	 * @param passes The number of passes over the new windows in each update
+	 *
+	 * @throws IllegalArgumentException if the capacity is smaller than a window or passes is
+	 * less than 1
+	 */
+	OnlineLearner(FlatNetwork network, DataProcessor processor, double[] history, int capacity, int passes){
+		if(capacity < network.getInputs())
+			throw new IllegalArgumentException("Expected a capacity of at least " + network.getInputs() + " but got " + capacity);
+		if(passes < 1)
+			throw new IllegalArgumentException("Expected at least 1 pass but got " + passes);
+		this.network = network;
+		this.processor = new DataProcessor(processor.getMinimum(), processor.getMaximum());
+		this.capacity = capacity;
+		this.passes = passes;
+		int length = Math.min(history.length, capacity);
+		values = new double[length];
+		System.arraycopy(history, history.length - length, values, 0, length);
+		for(int i = 0; i < length; i++)
+			this.processor.extend(values[i]);
+		series = new double[length];
+		for(int i = 0; i < length; i++)
+			series[i] = this.processor.transform(values[i]);
+		predictor = network.shareWeights();
+		window = new double[network.getInputs()];
+	}
+
+	/**
+	 * This constructor for the <code>OnlineLearner</code> carries on from a network saved in a
+	 * model file, scaling with the minimum and maximum saved with it
+	 *
+	 * @param file The model file
+	 * @param history The most recent unscaled observations, oldest first
+	 * @param capacity The number of observations to keep in the rolling series
+	 * @param passes The number of passes over the new windows in each update
+	 *
+	 * @throws IOException if the model file cannot be read
+	 */
+	public OnlineLearner(ModelFile file, double[] history, int capacity, int passes) throws IOException{
+		this(file.loadNetwork(), file, history, capacity, passes);
+	}
+
+	/**
+	 * Reads the minimum and maximum once the network has been loaded
+	 */
+	private OnlineLearner(FlatNetwork network, ModelFile file, double[] history, int capacity, int passes){
+		this(network, file.getProcessor(), history, capacity, passes);
+	}
+
+	/**
+	 * Appends new observations to the rolling series and trains the network on the windows
+	 * which end in them
+	 *
+	 * @param observations The new unscaled observations, oldest first
+	 *
+	 * @return the mean error over the training steps, or NaN if there were none
+	 */
+	public double update(double... observations){
+		boolean extended = false;
+		for(int i = 0; i < observations.length; i++)
+			extended |= processor.extend(observations[i]);
+		int length = Math.min(values.length + observations.length, capacity);
+		int added = Math.min(observations.length, length);
+		int kept = length - added;
+		double[] nextValues = new double[length];
+		double[] nextSeries = new double[length];
+		System.arraycopy(values, values.length - kept, nextValues, 0, kept);
+		System.arraycopy(observations, observations.length - added, nextValues, kept, added);
+		if(extended){
+			for(int i = 0; i < length; i++)
+				nextSeries[i] = processor.transform(nextValues[i]);
+		}
+		else{
+			System.arraycopy(series, series.length - kept, nextSeries, 0, kept);
+			for(int i = kept; i < length; i++)
+				nextSeries[i] = processor.transform(nextValues[i]);
+		}
+		values = nextValues;
+		series = nextSeries;
+		int from = Math.max(0, kept - network.getInputs() + 1);
+		int to = length - network.getInputs() + 1;
+		if(to <= from)
+			return Double.NaN;
+		double error = 0;
+		for(int i = 0; i < passes; i++)
+			error += network.learn(series, from, to);
+		steps += passes * (to - from);
+		return error / (passes * (to - from));
+	}
+
+	/**
+	 * Predicts the output for the newest window of the rolling series, starting from a copy of
+	 * the network's delays or context, which are left unchanged
+	 *
+	 * @return the unscaled output
+	 *
+	 * @throws IllegalStateException if the rolling series is shorter than a window
+	 */
+	public double predict(){
+		int inputs = window.length;
+		if(series.length < inputs)
+			throw new IllegalStateException("Expected at least " + inputs + " observations but got " + series.length);
+		System.arraycopy(series, series.length - inputs, window, 0, inputs);
+		predictor.refresh(network);
+		return processor.inverseTransform(predictor.predict(window));
+	}
+
+	/**
+	 * Saves the network with the current minimum and maximum
+	 *
+	 * @param file The model file
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(ModelFile file) throws IOException{
+		file.save(network, processor);
+	}
+
+	/**
+	 * Gets the number of observations in the rolling series
+	 *
+	 * @return the number of observations
+	 */
+	public int size(){
+		return values.length;
+	}
+
+	/**
+	 * Gets a copy of the unscaled rolling series
+	 *
+	 * @return the observations, oldest first
+	 */
+	public double[] getValues(){
+		return values.clone();
+	}
+
+	/**
+	 * Gets the data processor holding the current minimum and maximum
+	 *
+	 * @return processor
+	 */
+	public DataProcessor getProcessor(){
+		return processor;
+	}
+
+	/**
+	 * Gets the total number of training steps taken by the updates
+	 *
+	 * @return steps
+	 */
+	public int getSteps(){
+		return steps;
+	}
+
+	/**
+	 * Gets the network
+	 *
+	 * @return network
+	 */
+	protected FlatNetwork getNetwork(){
+		return network;
+	}
+}
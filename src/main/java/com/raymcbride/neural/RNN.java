@@ -35,6 +35,76 @@ public class RNN extends Network{
         connectNeurons();
 	}
 
+	/**
+	 * This constructor for the <code>RNN</code> also specifies the seed used to create the initial weights.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param memoryDepth The memory depth
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 */
+	public RNN(int inputs, int hiddens, double memoryDepth, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed){
+		super(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID, seed);
+		contextNeurons = new Neuron[hiddens];
+		contextToHidden = new ContextSynapse[hiddens];
+		hiddenToContext = new ContextSynapse[hiddens];
+		createNeurons(memoryDepth);
+        connectNeurons();
+	}
+
+	/**
+	 * This constructor for the <code>RNN</code> also specifies the distribution the initial weights are drawn from.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param memoryDepth The memory depth
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 * @param initialisation The distribution of the initial weights
+	 */
+	public RNN(int inputs, int hiddens, double memoryDepth, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed, Initialisation initialisation){
+		super(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID, seed, initialisation);
+		contextNeurons = new Neuron[hiddens];
+		contextToHidden = new ContextSynapse[hiddens];
+		hiddenToContext = new ContextSynapse[hiddens];
+		createNeurons(memoryDepth);
+        connectNeurons();
+	}
+
+	/**
+	 * Takes a snapshot of the network
+	 *
+	 * @return a <code>FlatRNN</code> copy of the network
+	 */
+	public FlatNetwork snapshot(){
+		return new FlatRNN(this);
+	}
+
+	/**
+	 * Sets the context of the network from a snapshot
+	 *
+	 * @param network The snapshot
+	 */
+	protected void restoreState(FlatNetwork network){
+		FlatRNN rnn = (FlatRNN)network;
+		for(int i = 0; i < getHiddenNeurons().length; i++){
+			ContextNeuron contextNeuron = getContextNeuron(i);
+			contextNeuron.setInputValue(rnn.getContextInput()[i]);
+			contextNeuron.setMemoryContents(rnn.getContextMemory()[i]);
+			contextNeuron.setOutputValue(rnn.getContextOutput()[i]);
+			getHiddenNeuron(i).setNextFree(rnn.getNextFree());
+		}
+	}
+
 	/**
      * Creates the Neurons
      *
@@ -79,8 +149,9 @@ public class RNN extends Network{
 	 * Initialises the network with data
 	 */
 	protected void initialise(){
+		double[] window = getWindow();
 		for(int i = 0; i < getInputNeurons().length; i++){
-		    getInputNeuron(i).input(getInputData((getNextInput() + i + getInputData().length)%getInputData().length));
+		    getInputNeuron(i).input(window[i]);
 		    getInputNeuron(i).calculateOutput();
 		}
 		getBiasHidden().calculateOutput();
@@ -88,6 +159,17 @@ public class RNN extends Network{
     	for(int i = 0; i < contextNeurons.length; i++){
 			contextNeurons[i].calculateOutput();
 		}
-		setTargetOutput(getInputData((getNextInput() + getInputNeurons().length - 1)%getInputData().length));
+		setTargetOutput(getTarget());
+	}
+
+	/**
+	 * Gets a ContextNeuron
+	 *
+	 * @param i its position
+	 *
+	 * @return the ContextNeuron
+	 */
+	protected ContextNeuron getContextNeuron(int i){
+		return (ContextNeuron)contextNeurons[i];
 	}
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.raymcbride.neural;
+
+/**
+ * The RationalActivation class calculates the sigmoid as 0.5 + 0.5 tanh(x/2), using the
+ * [7/6] Pade approximation of tanh. It needs no table and no <code>Math.exp</code>, only a
+ * few multiplications and one division. The approximation reaches 1 at about 4.97, so tanh
+ * is clamped to 1 beyond that, giving a measured maximum error of 4.82E-5 near x = 10.
+ *
+ * @see Activation
+ *
+ * @author Ray McBride
+ */
+class RationalActivation extends Activation{
+
+	private static final double CLAMP = 4.97;
+
+	/**
+	 * Calculates the sigmoid of a value from the rational approximation
+	 *
+	 * @param x The value
+	 *
+	 * @return the sigmoid
+	 */
+	public double sigmoid(double x){
+		double y = 0.5 * x;
+		if(y >= CLAMP)
+			return 1;
+		if(y <= -CLAMP)
+			return 0;
+		double y2 = y * y;
+		double tanh = y * (135135 + y2 * (17325 + y2 * (378 + y2))) / (135135 + y2 * (62370 + y2 * (3150 + y2 * 28)));
+		return 0.5 + 0.5 * tanh;
+	}
+
+	/**
+	 * Gets the maximum error
+	 *
+	 * @return the maximum error
+	 */
+	public double getMaximumError(){
+		return 5E-5;
+	}
+
+	/**
+	 * Gets the name of the activation
+	 *
+	 * @return RATIONAL
+	 */
+	public String getName(){
+		return "RATIONAL";
+	}
+}
@@ -0,0 +1,511 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The ResultsStore class records the results of a sweep in a directory of append-only
+ * column files, in place of a details file per network. Each row holds the parameters of a
+ * configuration, which are its key, the epoch count, and the number of samples, the mean
+ * error, the largest error and the value of each of the <code>METRICS</code> on the testing
+ * and validating data. Each column is a file of little endian values of a fixed width, so
+ * ranking a sweep reads a single column. The errors of every sample can also be kept,
+ * packed into a separate file.
+ *
+ * A row is appended to every column in turn. If a crash leaves the columns with different
+ * numbers of rows, the partly written row is discarded when the store is next opened.
+ * Several processes may append to one store, such as the workers of a sweep sharing a work
+ * queue. Each append holds an exclusive lock on the lock file of the store and counts the
+ * rows again under it, so the rows of one process are never written over by another. A file
+ * lock is held for a whole process, so the stores of one process also take turns through a
+ * shared monitor.
+ *
+ * A row is keyed by the id of its configuration and its epoch count, and a row whose key the
+ * store already holds is not appended again. A sweep which stops after recording the rows of
+ * a configuration, but before recording that the configuration is complete, can so be run
+ * again without duplicating them.
+ *
+ * @see Sweep
+ * @see Leaderboard
+ *
+ * @author Ray McBride
+ */
+public class ResultsStore{
+
+	/**
+	 * The names of the metrics recorded for the testing and validating data
+	 */
+	public static final String[] METRICS = {"MSE", "RMSE", "MAE", "MAPE", "DA", "TheilU"};
+
+	private static final String VERSION = "2";
+	private static final String[] TYPES = {Configuration.MLP, Configuration.TDNN, Configuration.RNN};
+	private static final int TYPE = 0;
+	private static final int INPUTS = 1;
+	private static final int HIDDENS = 2;
+	private static final int DELAYS = 3;
+	private static final int MEMORY_DEPTH = 4;
+	private static final int SLOPE = 5;
+	private static final int LEARNING_RATE = 6;
+	private static final int MOMENTUM = 7;
+	private static final int EPOCHS = 8;
+	private static final int SEED = 9;
+	private static final int FILE_ID = 10;
+	private static final int FILE_ID_LENGTH = 11;
+	private static final int TEST_SAMPLES = 12;
+	private static final int TEST_MEAN_ERROR = 13;
+	private static final int TEST_MAX_ERROR = 14;
+	private static final int TEST_ERRORS = 15;
+	private static final int VALIDATION_SAMPLES = 16;
+	private static final int VALIDATION_MEAN_ERROR = 17;
+	private static final int VALIDATION_MAX_ERROR = 18;
+	private static final int VALIDATION_ERRORS = 19;
+	private static final int TEST_METRICS = 20;
+	private static final int VALIDATION_METRICS = 26;
+	private static final String[] NAMES = {"type", "inputs", "hiddens", "delays", "memoryDepth", "slope", "learningRate", "momentum", "epochs", "seed", "fileID", "fileIDLength", "testSamples", "testMeanError", "testMaxError", "testErrors", "validationSamples", "validationMeanError", "validationMaxError", "validationErrors", "testMSE", "testRMSE", "testMAE", "testMAPE", "testDA", "testTheilU", "validationMSE", "validationRMSE", "validationMAE", "validationMAPE", "validationDA", "validationTheilU"};
+	private static final int[] WIDTHS = {4, 4, 4, 4, 8, 4, 8, 8, 4, 8, 8, 4, 4, 8, 8, 8, 4, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8, 8};
+
+	private static final Object LOCK = new Object();
+
+	private FileChannel[] columns;
+	private FileChannel lockFile;
+	private FileChannel fileIDs;
+	private FileChannel errors;
+	private ByteBuffer[] row;
+	private boolean samples;
+	private int size;
+	private Set<String> keys;
+	private int indexed;
+
+	/**
+	 * Constructor for the <code>ResultsStore</code>, which opens the store in a directory,
+	 * creating it if needed
+	 *
+	 * @param location The directory of the store
+	 * @param samples true to keep the error of every sample as well as the summaries
+	 *
+	 * @throws IOException if the store cannot be opened or was written by another version
+	 */
+	public ResultsStore(String location, boolean samples) throws IOException{
+		Path directory = Files.createDirectories(Paths.get(location));
+		Path version = directory.resolve("version");
+		if(!Files.exists(version))
+			AtomicFile.write(version, ByteBuffer.wrap(VERSION.getBytes(StandardCharsets.UTF_8)));
+		else if(!new String(Files.readAllBytes(version), StandardCharsets.UTF_8).equals(VERSION))
+			throw new IOException(directory + " is not a results store of version " + VERSION);
+		this.samples = samples;
+		columns = new FileChannel[NAMES.length];
+		row = new ByteBuffer[NAMES.length];
+		for(int i = 0; i < NAMES.length; i++){
+			columns[i] = open(directory.resolve(NAMES[i] + ".bin"));
+			row[i] = ByteBuffer.allocate(WIDTHS[i]).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		lockFile = open(directory.resolve("lock"));
+		fileIDs = open(directory.resolve("fileIDs.bin"));
+		errors = open(directory.resolve("errors.bin"));
+		synchronized(LOCK){
+			FileLock lock = lockFile.lock();
+			try{
+				size = rows();
+				for(int i = 0; i < NAMES.length; i++)
+					columns[i].truncate((long)size * WIDTHS[i]);
+			}
+			finally{
+				lock.release();
+			}
+		}
+		keys = new HashSet<String>();
+		index();
+	}
+
+	/**
+	 * Opens a column file for reading and writing
+	 *
+	 * @return the channel
+	 */
+	private static FileChannel open(Path path) throws IOException{
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Counts the complete rows, those written to every column
+	 *
+	 * @return the number of rows
+	 */
+	private int rows() throws IOException{
+		long rows = Integer.MAX_VALUE;
+		for(int i = 0; i < NAMES.length; i++)
+			rows = Math.min(rows, columns[i].size() / WIDTHS[i]);
+		return (int)rows;
+	}
+
+	/**
+	 * Adds the keys of the rows appended since the last call
+	 */
+	private void index() throws IOException{
+		for(; indexed < size; indexed++)
+			keys.add(key(readFileID(indexed), read(EPOCHS, indexed).getInt()));
+	}
+
+	/**
+	 * Gets the key of a row
+	 *
+	 * @return the id of the configuration and the epoch count
+	 */
+	private static String key(String fileID, int epochs){
+		return fileID + ":" + epochs;
+	}
+
+	/**
+	 * Appends the results of a configuration at one of its epoch counts, holding the lock on
+	 * the store, unless the store already holds a row for them. A metric which an evaluation
+	 * does not measure is recorded as NaN. The errors of every sample are kept only if the
+	 * evaluations kept them.
+	 *
+	 * @param configuration The configuration
+	 * @param epochs The epoch count
+	 * @param test The evaluation on the testing data
+	 * @param validation The evaluation on the validating data
+	 *
+	 * @return true if the row was appended, or false if the store already held it
+	 *
+	 * @throws IOException if the row cannot be written
+	 */
+	public synchronized boolean append(Configuration configuration, int epochs, Evaluation test, Evaluation validation) throws IOException{
+		String key = key(configuration.getFileID(), epochs);
+		synchronized(LOCK){
+			FileLock lock = lockFile.lock();
+			try{
+				size = rows();
+				index();
+				if(!keys.add(key))
+					return false;
+				write(configuration, epochs, test, validation);
+				indexed = size;
+				return true;
+			}
+			finally{
+				lock.release();
+			}
+		}
+	}
+
+	/**
+	 * Writes a row after the last complete row
+	 */
+	private void write(Configuration configuration, int epochs, Evaluation test, Evaluation validation) throws IOException{
+		byte[] fileID = configuration.getFileID().getBytes(StandardCharsets.UTF_8);
+		long fileIDOffset = fileIDs.size();
+		write(fileIDs, ByteBuffer.wrap(fileID), fileIDOffset);
+		row[TYPE].putInt(Arrays.asList(TYPES).indexOf(configuration.getType()));
+		row[INPUTS].putInt(configuration.getInputs());
+		row[HIDDENS].putInt(configuration.getHiddens());
+		row[DELAYS].putInt(configuration.getDelays());
+		row[MEMORY_DEPTH].putDouble(configuration.getMemoryDepth());
+		row[SLOPE].putInt(configuration.getSlope());
+		row[LEARNING_RATE].putDouble(configuration.getLearningRate());
+		row[MOMENTUM].putDouble(configuration.getMomentum());
+		row[EPOCHS].putInt(epochs);
+		row[SEED].putLong(configuration.getSeed());
+		row[FILE_ID].putLong(fileIDOffset);
+		row[FILE_ID_LENGTH].putInt(fileID.length);
+		summarise(test, TEST_SAMPLES, TEST_MEAN_ERROR, TEST_MAX_ERROR, TEST_ERRORS, TEST_METRICS);
+		summarise(validation, VALIDATION_SAMPLES, VALIDATION_MEAN_ERROR, VALIDATION_MAX_ERROR, VALIDATION_ERRORS, VALIDATION_METRICS);
+		for(int i = 0; i < NAMES.length; i++){
+			row[i].flip();
+			write(columns[i], row[i], (long)size * WIDTHS[i]);
+			row[i].clear();
+		}
+		size++;
+	}
+
+	/**
+	 * Puts the number of samples, the mean error, the largest error and the metrics of an
+	 * evaluation into the row, and packs the errors if every sample is kept
+	 */
+	private void summarise(Evaluation evaluation, int count, int mean, int max, int offset, int metrics) throws IOException{
+		row[count].putInt(evaluation.getSamples());
+		row[mean].putDouble(evaluation.getMeanError());
+		row[max].putDouble(evaluation.getMaxError());
+		for(int i = 0; i < METRICS.length; i++)
+			row[metrics + i].putDouble(evaluation.getValue(METRICS[i]));
+		double[] values = evaluation.getErrors();
+		if(samples && values != null){
+			long position = errors.size();
+			ByteBuffer buffer = ByteBuffer.allocate(8 * evaluation.getSamples()).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.asDoubleBuffer().put(values, 0, evaluation.getSamples());
+			write(errors, buffer, position);
+			row[offset].putLong(position);
+		}
+		else row[offset].putLong(-1);
+	}
+
+	/**
+	 * Writes the whole of a buffer at a position
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException{
+		while(buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+
+	/**
+	 * Forces the appended rows to disk
+	 *
+	 * @throws IOException if the store cannot be written
+	 */
+	public synchronized void flush() throws IOException{
+		fileIDs.force(false);
+		errors.force(false);
+		for(int i = 0; i < NAMES.length; i++)
+			columns[i].force(false);
+	}
+
+	/**
+	 * Forces the appended rows to disk and closes the store
+	 *
+	 * @throws IOException if the store cannot be written
+	 */
+	public synchronized void close() throws IOException{
+		flush();
+		lockFile.close();
+		fileIDs.close();
+		errors.close();
+		for(int i = 0; i < NAMES.length; i++)
+			columns[i].close();
+	}
+
+	/**
+	 * Gets the number of rows, including those appended by other processes
+	 *
+	 * @return size
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized int size() throws IOException{
+		size = rows();
+		return size;
+	}
+
+	/**
+	 * Ranks the rows by their mean validation error, reading only that column, and gets the
+	 * best of them. Rows whose error is not a number rank last.
+	 *
+	 * @param count The number of rows to rank
+	 *
+	 * @return the leaderboard of the best rows
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized Leaderboard getLeaderboard(int count) throws IOException{
+		size = rows();
+		DoubleBuffer column = map(VALIDATION_MEAN_ERROR).asDoubleBuffer();
+		PriorityQueue<double[]> best = new PriorityQueue<double[]>(Math.max(1, count), new Comparator<double[]>(){
+			public int compare(double[] a, double[] b){
+				int order = Double.compare(b[0], a[0]);
+				return order != 0 ? order : Double.compare(b[1], a[1]);
+			}
+		});
+		for(int i = 0; i < size; i++){
+			double[] entry = {column.get(i), i};
+			if(best.size() < count)
+				best.add(entry);
+			else if(count > 0 && best.comparator().compare(entry, best.peek()) > 0){
+				best.poll();
+				best.add(entry);
+			}
+		}
+		List<Trial> trials = new ArrayList<Trial>();
+		for(double[] entry : best)
+			trials.add(get((int)entry[1]));
+		return new Leaderboard(trials);
+	}
+
+	/**
+	 * Gets a row
+	 *
+	 * @param i The position of the row
+	 *
+	 * @return a trial holding the configuration, the epoch count and the mean errors
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized Trial get(int i) throws IOException{
+		if(i >= size)
+			size = rows();
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("No row " + i + " of " + size);
+		int epochs = read(EPOCHS, i).getInt();
+		Configuration configuration = new Configuration(TYPES[read(TYPE, i).getInt()], read(INPUTS, i).getInt(), read(HIDDENS, i).getInt(), read(DELAYS, i).getInt(), read(MEMORY_DEPTH, i).getDouble(), read(SLOPE, i).getInt(), read(LEARNING_RATE, i).getDouble(), read(MOMENTUM, i).getDouble(), new int[]{epochs}, readFileID(i), read(SEED, i).getLong());
+		return new Trial(configuration, epochs, read(VALIDATION_MEAN_ERROR, i).getDouble(), read(TEST_MEAN_ERROR, i).getDouble());
+	}
+
+	/**
+	 * Reads the id of the configuration of a row
+	 *
+	 * @return the id
+	 */
+	private String readFileID(int i) throws IOException{
+		byte[] fileID = new byte[read(FILE_ID_LENGTH, i).getInt()];
+		ByteBuffer buffer = ByteBuffer.wrap(fileID);
+		long position = read(FILE_ID, i).getLong();
+		while(buffer.hasRemaining()){
+			int read = fileIDs.read(buffer, position);
+			if(read < 0)
+				throw new EOFException("The id of row " + i + " is missing");
+			position += read;
+		}
+		return new String(fileID, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the largest error on the testing data of a row
+	 *
+	 * @param i The position of the row
+	 *
+	 * @return the largest error
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized double getTestMaxError(int i) throws IOException{
+		return read(TEST_MAX_ERROR, i).getDouble();
+	}
+
+	/**
+	 * Gets the largest error on the validating data of a row
+	 *
+	 * @param i The position of the row
+	 *
+	 * @return the largest error
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized double getValidationMaxError(int i) throws IOException{
+		return read(VALIDATION_MAX_ERROR, i).getDouble();
+	}
+
+	/**
+	 * Gets the value of a metric on the testing data of a row
+	 *
+	 * @param i The position of the row
+	 * @param metric The name of the metric, one of <code>METRICS</code>
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized double getTestMetric(int i, String metric) throws IOException{
+		return read(TEST_METRICS + indexOf(metric), i).getDouble();
+	}
+
+	/**
+	 * Gets the value of a metric on the validating data of a row
+	 *
+	 * @param i The position of the row
+	 * @param metric The name of the metric, one of <code>METRICS</code>
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized double getValidationMetric(int i, String metric) throws IOException{
+		return read(VALIDATION_METRICS + indexOf(metric), i).getDouble();
+	}
+
+	/**
+	 * Gets the position of a metric in <code>METRICS</code>
+	 *
+	 * @return the position
+	 */
+	private static int indexOf(String metric){
+		int index = Arrays.asList(METRICS).indexOf(metric);
+		if(index < 0)
+			throw new IllegalArgumentException("Unknown metric " + metric);
+		return index;
+	}
+
+	/**
+	 * Gets whether the error of every sample is kept
+	 *
+	 * @return samples
+	 */
+	public boolean isKeepingSamples(){
+		return samples;
+	}
+
+	/**
+	 * Gets the error of each sample of the testing data of a row
+	 *
+	 * @param i The position of the row
+	 *
+	 * @return the errors, or null if they were not kept
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized double[] getTestErrors(int i) throws IOException{
+		return readErrors(read(TEST_ERRORS, i).getLong(), read(TEST_SAMPLES, i).getInt());
+	}
+
+	/**
+	 * Gets the error of each sample of the validating data of a row
+	 *
+	 * @param i The position of the row
+	 *
+	 * @return the errors, or null if they were not kept
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized double[] getValidationErrors(int i) throws IOException{
+		return readErrors(read(VALIDATION_ERRORS, i).getLong(), read(VALIDATION_SAMPLES, i).getInt());
+	}
+
+	/**
+	 * Reads packed errors
+	 *
+	 * @return the errors, or null if the offset is -1
+	 */
+	private double[] readErrors(long position, int count) throws IOException{
+		if(position < 0)
+			return null;
+		ByteBuffer buffer = ByteBuffer.allocate(8 * count).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()){
+			int read = errors.read(buffer, position);
+			if(read < 0)
+				throw new EOFException("The errors at " + position + " are missing");
+			position += read;
+		}
+		buffer.flip();
+		double[] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		return values;
+	}
+
+	/**
+	 * Reads the value of a column in a row
+	 *
+	 * @return a buffer holding the value
+	 */
+	private ByteBuffer read(int column, int i) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(WIDTHS[column]).order(ByteOrder.LITTLE_ENDIAN);
+		long position = (long)i * WIDTHS[column];
+		while(buffer.hasRemaining()){
+			int read = columns[column].read(buffer, position);
+			if(read < 0)
+				throw new EOFException("Row " + i + " of " + NAMES[column] + " is missing");
+			position += read;
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Maps the rows of a column read only
+	 *
+	 * @return the mapping
+	 */
+	private ByteBuffer map(int column) throws IOException{
+		return columns[column].map(FileChannel.MapMode.READ_ONLY, 0, (long)size * WIDTHS[column]).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
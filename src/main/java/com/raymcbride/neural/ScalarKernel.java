@@ -0,0 +1,58 @@
+package com.raymcbride.neural;
+
+/**
+ * The ScalarKernel class runs the dense loops of the flat engine one weight at a time
+ *
+ * @see Kernel
+ *
+ * @author Ray McBride
+ */
+class ScalarKernel extends Kernel{
+
+	/**
+	 * Adds one weighted row of weights to a set of summations
+	 *
+	 * @param value The value the row is weighted by
+	 * @param weights The weights
+	 * @param row The offset of the row of weights
+	 * @param sums The summations
+	 */
+	public void addRow(double value, double[] weights, int row, double[] sums){
+		for(int j = 0; j < sums.length; j++)
+			sums[j] += value * weights[row + j];
+	}
+
+	/**
+	 * Calculates the weight changes of one row of weights
+	 *
+	 * @param value The output value feeding the row
+	 * @param rates The learning rate times the error term
+	 * @param momentum The momentum
+	 * @param changes The weight changes
+	 * @param row The offset of the row of weight changes
+	 */
+	public void calculateRowChange(double value, double[] rates, double momentum, double[] changes, int row){
+		for(int j = 0; j < rates.length; j++)
+			changes[row + j] = (rates[j] * value) + (momentum * changes[row + j]);
+	}
+
+	/**
+	 * Adds the weight changes to the weights
+	 *
+	 * @param weights The weights
+	 * @param changes The weight changes
+	 */
+	public void adjustWeights(double[] weights, double[] changes){
+		for(int k = 0; k < weights.length; k++)
+			weights[k] = weights[k] + changes[k];
+	}
+
+	/**
+	 * Gets the name of the kernel
+	 *
+	 * @return SCALAR
+	 */
+	public String getName(){
+		return "SCALAR";
+	}
+}
@@ -0,0 +1,246 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * The SeriesCache class keeps a binary copy of a series read from an XML file, so that the
+ * XML only has to be parsed once. The cache file is a header holding the number of values,
+ * their minimum and maximum and the length, modification time and checksum of the XML file,
+ * followed by the values packed as little endian doubles. It is memory mapped read only, so
+ * any number of processes can share one copy.
+ *
+ * The cache is rebuilt from the XML file when its length or checksum no longer match. When
+ * only the modification time of the XML file has changed, the new time is recorded in the
+ * header, so the checksum is only calculated once. A new cache is written to a temporary file
+ * and renamed into place, so a reader never sees a partly written cache.
+ *
+ * @see SeriesReader
+ *
+ * @author Ray McBride
+ */
+public class SeriesCache{
+
+	private static final int MAGIC = 0x4E4E5343;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 56;
+	private static final String SUFFIX = ".series";
+
+	private int size;
+	private double minimum;
+	private double maximum;
+	private DoubleBuffer values;
+
+	/**
+	 * This constructor for the <code>SeriesCache</code> maps the cache of the values of every
+	 * element with a given name, building it first if it is missing or out of date. The cache
+	 * is kept next to the XML file.
+	 *
+	 * @param location The location of the XML file
+	 * @param field The XML node tag containing the values
+	 */
+	public SeriesCache(String location, String field){
+		this(location, field, location + "." + field + SUFFIX);
+	}
+
+	/**
+	 * This constructor for the <code>SeriesCache</code> maps the cache of the values of every
+	 * element with a given name, building it first if it is missing or out of date
+	 *
+	 * @param location The location of the XML file
+	 * @param field The XML node tag containing the values
+	 * @param cacheLocation The location of the cache file
+	 */
+	public SeriesCache(String location, String field, String cacheLocation){
+		Path source = Paths.get(location);
+		Path cache = Paths.get(cacheLocation);
+		try{
+			if(!load(source, cache))
+				build(source, cache, field);
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+			double[] data = new SeriesReader(location, field).getValues();
+			setValues(DoubleBuffer.wrap(data).asReadOnlyBuffer());
+		}
+	}
+
+	/**
+	 * Maps the cache file if it exists and matches the XML file
+	 *
+	 * @return true if the cache was mapped
+	 */
+	private boolean load(Path source, Path cache) throws IOException{
+		if(!Files.exists(cache))
+			return false;
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)){
+			if(channel.size() < HEADER_SIZE)
+				return false;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			return false;
+		int count = buffer.getInt(8);
+		if(buffer.capacity() != HEADER_SIZE + (long)count * 8)
+			return false;
+		long sourceLength = buffer.getLong(32);
+		long sourceModified = buffer.getLong(40);
+		long sourceChecksum = buffer.getLong(48);
+		if(Files.size(source) != sourceLength)
+			return false;
+		long modified = Files.getLastModifiedTime(source).toMillis();
+		if(modified != sourceModified){
+			if(checksum(source) != sourceChecksum)
+				return false;
+			refresh(cache, modified);
+		}
+		minimum = buffer.getDouble(16);
+		maximum = buffer.getDouble(24);
+		buffer.position(HEADER_SIZE);
+		setValues(buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+		return true;
+	}
+
+	/**
+	 * Reads the XML file, writes a new cache file and maps it
+	 */
+	private void build(Path source, Path cache, String field) throws IOException{
+		long sourceLength = Files.size(source);
+		long sourceModified = Files.getLastModifiedTime(source).toMillis();
+		long sourceChecksum = checksum(source);
+		double[] data = new SeriesReader(source.toString(), field).getValues();
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + data.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(data.length).putInt(0);
+		buffer.putDouble(data.length > 0 ? min(data) : 0).putDouble(data.length > 0 ? max(data) : 0);
+		buffer.putLong(sourceLength).putLong(sourceModified).putLong(sourceChecksum);
+		buffer.asDoubleBuffer().put(data);
+		buffer.rewind();
+		AtomicFile.write(cache, buffer);
+		if(!load(source, cache))
+			throw new IOException("Cannot load " + cache + " after building it");
+	}
+
+	/**
+	 * Records a new modification time of the XML file in the header of the cache, once the
+	 * checksum has shown that its contents are unchanged. A cache which cannot be written is
+	 * reported and used as it is.
+	 */
+	private static void refresh(Path cache, long sourceModified){
+		ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putLong(sourceModified).flip();
+		try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)){
+			long position = 40;
+			while(buffer.hasRemaining())
+				position += channel.write(buffer, position);
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+		}
+	}
+
+	/**
+	 * Calculates the CRC32 checksum of a file
+	 *
+	 * @return the checksum
+	 */
+	private static long checksum(Path path) throws IOException{
+		CRC32 crc = new CRC32();
+		byte[] block = new byte[65536];
+		try(InputStream inputStream = Files.newInputStream(path)){
+			int read;
+			while((read = inputStream.read(block)) > 0)
+				crc.update(block, 0, read);
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Finds the smallest value
+	 *
+	 * @return the minimum
+	 */
+	private static double min(double[] data){
+		double minimum = data[0];
+		for(int i = 1; i < data.length; i++)
+			minimum = Math.min(minimum, data[i]);
+		return minimum;
+	}
+
+	/**
+	 * Finds the largest value
+	 *
+	 * @return the maximum
+	 */
+	private static double max(double[] data){
+		double maximum = data[0];
+		for(int i = 1; i < data.length; i++)
+			maximum = Math.max(maximum, data[i]);
+		return maximum;
+	}
+
+	/**
+	 * Sets the values and works out their size, minimum and maximum when they were not read
+	 * from a cache header
+	 */
+	private void setValues(DoubleBuffer values){
+		this.values = values;
+		size = values.remaining();
+		if(!values.isDirect()){
+			double[] data = toArray();
+			minimum = data.length > 0 ? min(data) : 0;
+			maximum = data.length > 0 ? max(data) : 0;
+		}
+	}
+
+	/**
+	 * Gets the number of values
+	 *
+	 * @return size
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Gets the smallest value
+	 *
+	 * @return minimum
+	 */
+	public double getMinimum(){
+		return minimum;
+	}
+
+	/**
+	 * Gets the largest value
+	 *
+	 * @return maximum
+	 */
+	public double getMaximum(){
+		return maximum;
+	}
+
+	/**
+	 * Gets a read only view of the values
+	 *
+	 * @return a new view of the mapped values
+	 */
+	public DoubleBuffer getValues(){
+		return values.duplicate();
+	}
+
+	/**
+	 * Copies the values into an array
+	 *
+	 * @return a double array containing the values
+	 */
+	public double[] toArray(){
+		double[] data = new double[size];
+		values.duplicate().get(data);
+		return data;
+	}
+}
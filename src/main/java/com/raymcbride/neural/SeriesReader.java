@@ -0,0 +1,178 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import javax.xml.stream.*;
+
+/**
+ * The SeriesReader class reads a series of values, and optionally their dates, from an XML
+ * file. Unlike the <code>XMLParser</code> it streams through the file without building a
+ * <code>Document</code>, reading each value straight into a growing array of doubles, so it
+ * needs no more memory than the values themselves.
+ *
+ * @see XMLParser
+ *
+ * @author Ray McBride
+ */
+public class SeriesReader{
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+	private double[] values;
+	private long[] dates;
+	private int size;
+
+	/**
+	 * This constructor for the <code>SeriesReader</code> reads the values of every element
+	 * with a given name
+	 *
+	 * @param location The location of the XML file
+	 * @param valueField The XML node tag containing the values
+	 */
+	public SeriesReader(String location, String valueField){
+		this(location, valueField, null);
+	}
+
+	/**
+	 * This constructor for the <code>SeriesReader</code> reads the values of every element
+	 * with a given name, and the date of each value. The date of a value is the last date
+	 * read before it, in milliseconds since 1970-01-01 UTC, or <code>Long.MIN_VALUE</code>
+	 * if there was none.
+	 *
+	 * @param location The location of the XML file
+	 * @param valueField The XML node tag containing the values
+	 * @param dateField The XML node tag containing the dates, or null to skip them
+	 *
+	 * @throws IllegalArgumentException if the file cannot be read or a value or date is malformed
+	 */
+	public SeriesReader(String location, String valueField, String dateField){
+		values = new double[INITIAL_CAPACITY];
+		if(dateField != null)
+			dates = new long[INITIAL_CAPACITY];
+		SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		long date = Long.MIN_VALUE;
+		InputStream inputStream = null;
+		XMLStreamReader reader = null;
+		try{
+			inputStream = new BufferedInputStream(new FileInputStream(location));
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			reader = factory.createXMLStreamReader(inputStream);
+			while(reader.hasNext()){
+				if(reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+				String name = reader.getLocalName();
+				if(name.equals(valueField)){
+					int line = reader.getLocation().getLineNumber();
+					String text = reader.getElementText();
+					if(text.length() > 0){
+						add(parseValue(text, location, line), date);
+						date = Long.MIN_VALUE;
+					}
+				}
+				else if(name.equals(dateField)){
+					int line = reader.getLocation().getLineNumber();
+					date = parseDate(dateFormat, reader.getElementText(), location, line);
+				}
+			}
+		}
+		catch(IOException e){
+			throw new IllegalArgumentException("Cannot read " + location, e);
+		}
+		catch(XMLStreamException e){
+			throw new IllegalArgumentException("Malformed XML in " + location, e);
+		}
+		finally{
+			close(reader, inputStream);
+		}
+	}
+
+	/**
+	 * Parses a value
+	 *
+	 * @return the value
+	 */
+	private double parseValue(String text, String location, int line){
+		try{
+			return Double.parseDouble(text);
+		}
+		catch(NumberFormatException e){
+			throw new IllegalArgumentException("Malformed value '" + text + "' at line " + line + " of " + location, e);
+		}
+	}
+
+	/**
+	 * Parses a date
+	 *
+	 * @return the date in milliseconds since 1970-01-01 UTC
+	 */
+	private long parseDate(DateFormat dateFormat, String text, String location, int line){
+		ParsePosition position = new ParsePosition(0);
+		Date date = dateFormat.parse(text.trim(), position);
+		if(date == null || position.getIndex() != text.trim().length())
+			throw new IllegalArgumentException("Malformed date '" + text + "' at line " + line + " of " + location);
+		return date.getTime();
+	}
+
+	/**
+	 * Adds a value and its date, growing the arrays when they are full
+	 */
+	private void add(double value, long date){
+		if(size == values.length){
+			values = Arrays.copyOf(values, size * 2);
+			if(dates != null)
+				dates = Arrays.copyOf(dates, size * 2);
+		}
+		values[size] = value;
+		if(dates != null)
+			dates[size] = date;
+		size++;
+	}
+
+	/**
+	 * Closes the reader and the file
+	 */
+	private void close(XMLStreamReader reader, InputStream inputStream){
+		try{
+			if(reader != null)
+				reader.close();
+			if(inputStream != null)
+				inputStream.close();
+		}
+		catch(Exception e){
+			System.out.println(e.toString());
+		}
+	}
+
+	/**
+	 * Gets the number of values read
+	 *
+	 * @return size
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Gets the values
+	 *
+	 * @return a double array containing the values
+	 */
+	public double[] getValues(){
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Gets the dates
+	 *
+	 * @return a long array containing the date of each value, or null if no dates were read
+	 */
+	public long[] getDates(){
+		if(dates == null)
+			return null;
+		return Arrays.copyOf(dates, size);
+	}
+}
@@ -0,0 +1,145 @@
+package com.raymcbride.neural;
+
+/**
+ * The SeriesWindows class is a view of a series as a sequence of overlapping windows of
+ * inputs, one starting at each position. The series is never copied: a window is read in
+ * place, or copied in bulk into an input layer, and its target is read from the series.
+ *
+ * The target of each window is its newest value, which the networks are trained to
+ * reproduce. With wrapping, there is a window starting at every position of the series, and
+ * the windows near the end run on past it into its start, as the networks have always
+ * trained and tested. Without wrapping, there are only the windows which lie wholly inside
+ * the series, and asking for any other is an error.
+ *
+ * @see FlatNetwork
+ *
+ * @author Ray McBride
+ */
+public class SeriesWindows{
+
+	private double[] data;
+	private int window;
+	private boolean wrapping;
+
+	/**
+	 * Constructor for the <code>SeriesWindows</code>
+	 *
+	 * @param data The series
+	 * @param window The number of values in each window
+	 * @param wrapping true if the windows near the end wrap around to the start of the series
+	 */
+	public SeriesWindows(double[] data, int window, boolean wrapping){
+		this.data = data;
+		this.window = window;
+		this.wrapping = wrapping;
+	}
+
+	/**
+	 * Gets the number of windows
+	 *
+	 * @return the number of windows, or 0 if the series is shorter than a window and does not wrap
+	 */
+	public int size(){
+		return wrapping ? data.length : Math.max(0, data.length - window + 1);
+	}
+
+	/**
+	 * Gets whether the window starting at a position lies wholly inside the series, so that it
+	 * can be read in place from <code>getData</code>
+	 *
+	 * @param position The start of the window
+	 *
+	 * @return true if the window does not wrap around
+	 */
+	public boolean isContiguous(int position){
+		return position + window <= data.length;
+	}
+
+	/**
+	 * Copies the window starting at a position
+	 *
+	 * @param position The start of the window
+	 * @param destination The array to copy the window into, with room for a whole window
+	 *
+	 * @throws IndexOutOfBoundsException if there is no window at the position
+	 */
+	public void copyWindow(int position, double[] destination){
+		check(position);
+		if(isContiguous(position)){
+			System.arraycopy(data, position, destination, 0, window);
+			return;
+		}
+		int copied = 0;
+		while(copied < window){
+			int length = Math.min(window - copied, data.length - position);
+			System.arraycopy(data, position, destination, copied, length);
+			copied += length;
+			position = 0;
+		}
+	}
+
+	/**
+	 * Gets the target of the window starting at a position, which is its newest value
+	 *
+	 * @param position The start of the window
+	 *
+	 * @return the target
+	 *
+	 * @throws IndexOutOfBoundsException if there is no window at the position
+	 */
+	public double getTarget(int position){
+		check(position);
+		int index = position + window - 1;
+		if(index >= data.length)
+			index %= data.length;
+		return data[index];
+	}
+
+	/**
+	 * Checks that there is a window at a position
+	 *
+	 * @param position The start of the window
+	 *
+	 * @throws IndexOutOfBoundsException if there is no window at the position
+	 */
+	private void check(int position){
+		if(position < 0 || position >= size())
+			throw new IndexOutOfBoundsException("No window of " + window + " values starts at " + position + " of " + data.length + (wrapping ? "" : " without wrapping"));
+	}
+
+	/**
+	 * Gets the series
+	 *
+	 * @return data
+	 */
+	public double[] getData(){
+		return data;
+	}
+
+	/**
+	 * Points the view at another series, so that the view can be reused
+	 *
+	 * @param data The series
+	 */
+	protected void setData(double[] data){
+		this.data = data;
+	}
+
+	/**
+	 * Gets the number of values in each window
+	 *
+	 * @return window
+	 */
+	public int getWindow(){
+		return window;
+	}
+
+	/**
+	 * Gets whether the windows near the end wrap around to the start of the series
+	 *
+	 * @return wrapping
+	 */
+	public boolean isWrapping(){
+		return wrapping;
+	}
+}
@@ -0,0 +1,621 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * The Sweep class trains, tests and validates a set of <code>Configuration</code>s on a
+ * fixed size pool of threads. Each configuration is an independent task, and the tasks are
+ * started in order of decreasing cost so that the longest jobs do not hold up the end of
+ * the sweep.
+ *
+ * With checkpoints, each network saves a <code>TrainingCheckpoint</code> as it trains, and the
+ * id of each configuration is appended to a log of the completed configurations when it
+ * finishes. A sweep which is
+ * stopped and run again skips the completed configurations and carries on the others from
+ * their last checkpoints, with the same results as if it had never stopped.
+ *
+ * A sweep can also be spread over several processes through a <code>WorkQueue</code>: one
+ * process publishes the configurations and awaits the results, and any number of others
+ * work on them.
+ *
+ * @see Configuration
+ * @see Test
+ *
+ * @author Ray McBride
+ */
+public class Sweep{
+
+	/**
+	 * The time in milliseconds between the touches of the tasks held by a worker
+	 */
+	public static final long HEARTBEAT = 5000;
+
+	/**
+	 * The time in milliseconds after which a claimed task which has not been touched is
+	 * returned to the work queue
+	 */
+	public static final long STALE = 60000;
+
+	private int threads;
+	private List<Configuration> configurations;
+	private ThreadPoolExecutor executor;
+	private volatile boolean stopping;
+	private AtomicInteger completed;
+	private long startTime;
+	private TrainingListener listener;
+	private boolean timingPhases;
+	private Path checkpointDirectory;
+	private int checkpointInterval;
+	private FileChannel completedLog;
+	private ResultsStore resultsStore;
+	private DataProcessor processor;
+
+	/**
+	 * This constructor for the <code>Sweep</code> specifies the number of threads
+	 *
+	 * @param threads The maximum number of configurations trained at once
+	 */
+	public Sweep(int threads){
+		this.threads = threads;
+		configurations = new ArrayList<Configuration>();
+		completed = new AtomicInteger();
+	}
+
+	/**
+	 * Adds a configuration to the sweep
+	 *
+	 * @param configuration The configuration
+	 */
+	public void add(Configuration configuration){
+		configurations.add(configuration);
+	}
+
+	/**
+	 * Sets a listener to receive the telemetry of every training epoch of every network, or
+	 * null to record nothing
+	 *
+	 * @param listener The listener, which must be thread safe
+	 * @param timingPhases true to time each phase of training
+	 */
+	public void setTrainingListener(TrainingListener listener, boolean timingPhases){
+		this.listener = listener;
+		this.timingPhases = timingPhases;
+	}
+
+	/**
+	 * Saves checkpoints to a directory, so that a stopped sweep can be run again from where it
+	 * left off. Only <code>run</code> uses the checkpoints.
+	 *
+	 * @param directory The directory for the checkpoint files
+	 * @param interval The number of epochs between the checkpoints of each network
+	 */
+	public void setCheckpoints(String directory, int interval){
+		if(interval < 1)
+			throw new IllegalArgumentException("Invalid interval " + interval);
+		checkpointDirectory = Paths.get(directory);
+		checkpointInterval = interval;
+	}
+
+	/**
+	 * Records the results of each configuration in a results store instead of writing the
+	 * testing and validating details files, or null to write the details files
+	 *
+	 * @param resultsStore The results store
+	 */
+	public void setResultsStore(ResultsStore resultsStore){
+		this.resultsStore = resultsStore;
+	}
+
+	/**
+	 * Sets the data processor fitted to the training data, so that the metrics recorded in the
+	 * results store are measured on the unscaled values, or null to measure them on the scaled
+	 * values
+	 *
+	 * @param processor The data processor
+	 */
+	public void setProcessor(DataProcessor processor){
+		this.processor = processor;
+	}
+
+	/**
+	 * Creates the telemetry for a network
+	 *
+	 * @return the telemetry, or null if there is no listener
+	 */
+	protected Telemetry createTelemetry(){
+		return listener == null ? null : new Telemetry(listener, timingPhases);
+	}
+
+	/**
+	 * Gets the number of configurations in the sweep
+	 *
+	 * @return the number of configurations
+	 */
+	public int size(){
+		return configurations.size();
+	}
+
+	/**
+	 * Runs every configuration in the sweep, longest first, and waits for them to finish
+	 *
+	 * @param trainingData The training data
+	 * @param testingData The testing data
+	 * @param validatingData The validating data
+	 */
+	public void run(final double[] trainingData, final double[] testingData, final double[] validatingData){
+		List<Configuration> queue = new ArrayList<Configuration>(configurations);
+		Collections.sort(queue, new Comparator<Configuration>(){
+			public int compare(Configuration a, Configuration b){
+				return Long.compare(b.getCost(), a.getCost());
+			}
+		});
+		startTime = System.currentTimeMillis();
+		completed.set(0);
+		if(checkpointDirectory != null){
+			Set<String> done = loadCompleted();
+			for(Iterator<Configuration> i = queue.iterator(); i.hasNext(); ){
+				if(done.contains(i.next().getFileID())){
+					i.remove();
+					completed.incrementAndGet();
+				}
+			}
+			if(completed.get() > 0)
+				System.out.println("Skipping " + completed.get() + " completed configurations");
+		}
+		startExecutor();
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for(final Configuration configuration : queue){
+			tasks.add(new Runnable(){
+				public void run(){
+					process(configuration, trainingData, testingData, validatingData);
+					if(checkpointDirectory != null)
+						saveCompleted(configuration);
+					progress(configuration);
+				}
+			});
+		}
+		execute(tasks);
+		executor.shutdown();
+		if(checkpointDirectory != null)
+			closeCompleted();
+	}
+
+	/**
+	 * Runs the sweep by successive halving. Every configuration is trained for
+	 * <code>minEpochs</code> epochs and scored on the validating data, then the best
+	 * <code>1/eta</code> of them are trained on to <code>eta</code> times as many epochs, and so
+	 * on until the survivors reach their full number of epochs. Diverging configurations are
+	 * dropped after the first rung, so the sweep costs a fraction of running every
+	 * configuration in full. The survivors of the last rung are also scored on the testing
+	 * data. Nothing is written to the details files.
+	 *
+	 * @param trainingData The training data
+	 * @param testingData The testing data
+	 * @param validatingData The validating data
+	 * @param minEpochs The number of epochs of the first rung
+	 * @param eta The factor by which the number of configurations falls and the number of
+	 * epochs rises at each rung
+	 *
+	 * @return the leaderboard of every configuration
+	 */
+	public Leaderboard halve(final double[] trainingData, double[] testingData, final double[] validatingData, int minEpochs, int eta){
+		if(minEpochs < 1 || eta < 2)
+			throw new IllegalArgumentException("Invalid minimum epochs " + minEpochs + " or eta " + eta);
+		List<Trial> trials = new ArrayList<Trial>();
+		int maxEpochs = 0;
+		for(Configuration configuration : configurations){
+			trials.add(new Trial(configuration, createTelemetry()));
+			maxEpochs = Math.max(maxEpochs, configuration.getTotalEpochs());
+		}
+		startTime = System.currentTimeMillis();
+		startExecutor();
+		List<Trial> survivors = new ArrayList<Trial>(trials);
+		int budget = Math.min(minEpochs, maxEpochs);
+		for(int rung = 0; ; rung++){
+			Collections.sort(survivors, new Comparator<Trial>(){
+				public int compare(Trial a, Trial b){
+					return Long.compare(b.getConfiguration().getCost(), a.getConfiguration().getCost());
+				}
+			});
+			List<Runnable> tasks = new ArrayList<Runnable>();
+			final int epochs = budget;
+			final int current = rung;
+			for(final Trial trial : survivors){
+				tasks.add(new Runnable(){
+					public void run(){
+						trial.train(trainingData, validatingData, epochs, current);
+					}
+				});
+			}
+			if(!execute(tasks))
+				break;
+			long elapsed = (System.currentTimeMillis() - startTime) / 1000;
+			System.out.println("Rung " + rung + ": trained " + survivors.size() + " of " + trials.size() + " to " + budget + " epochs after " + elapsed + "s");
+			if(budget >= maxEpochs){
+				for(Trial trial : survivors)
+					trial.test(testingData);
+				break;
+			}
+			Leaderboard ranking = new Leaderboard(survivors);
+			int keep = Math.max(1, survivors.size() / eta);
+			survivors.clear();
+			for(int i = 0; i < ranking.size(); i++){
+				if(i < keep)
+					survivors.add(ranking.get(i));
+				else ranking.get(i).release();
+			}
+			budget = keep == 1 ? maxEpochs : (int)Math.min((long)budget * eta, maxEpochs);
+		}
+		executor.shutdown();
+		return new Leaderboard(trials);
+	}
+
+	/**
+	 * Publishes every configuration in the sweep to a work queue, longest first, for workers
+	 * in other processes to claim. Configurations already in the queue are skipped.
+	 *
+	 * @param queue The work queue
+	 *
+	 * @return the number of configurations published
+	 *
+	 * @throws IOException if a task cannot be written
+	 */
+	public int publish(WorkQueue queue) throws IOException{
+		List<Configuration> ordered = new ArrayList<Configuration>(configurations);
+		Collections.sort(ordered, new Comparator<Configuration>(){
+			public int compare(Configuration a, Configuration b){
+				return Long.compare(b.getCost(), a.getCost());
+			}
+		});
+		return queue.publish(ordered);
+	}
+
+	/**
+	 * Claims configurations from a work queue on each thread, trains, tests and validates them
+	 * and posts their errors, until every task in the queue has been completed. A thread which
+	 * finds no pending task while others are still claimed waits, in case they are returned to
+	 * the queue. The tasks held are touched every <code>HEARTBEAT</code> milliseconds.
+	 *
+	 * @param queue The work queue
+	 * @param trainingData The training data
+	 * @param testingData The testing data
+	 * @param validatingData The validating data
+	 */
+	public void work(final WorkQueue queue, final double[] trainingData, final double[] testingData, final double[] validatingData){
+		startTime = System.currentTimeMillis();
+		completed.set(0);
+		ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+		heartbeat.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				queue.heartbeat();
+			}
+		}, HEARTBEAT, HEARTBEAT, TimeUnit.MILLISECONDS);
+		startExecutor();
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for(int i = 0; i < threads; i++){
+			tasks.add(new Runnable(){
+				public void run(){
+					try{
+						while(!stopping && !Thread.currentThread().isInterrupted()){
+							Configuration configuration = queue.claim();
+							if(configuration == null){
+								if(queue.isFinished())
+									return;
+								Thread.sleep(HEARTBEAT);
+								continue;
+							}
+							try{
+								Trial[] trials = evaluate(configuration, train(configuration, trainingData), testingData, validatingData);
+								queue.complete(configuration, trials);
+							}
+							catch(RuntimeException e){
+								queue.release(configuration);
+								throw e;
+							}
+							if(checkpointDirectory != null)
+								Files.deleteIfExists(getCheckpoint(configuration));
+							progress(configuration);
+						}
+					}
+					catch(IOException e){
+						throw new UncheckedIOException(e);
+					}
+					catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		execute(tasks);
+		executor.shutdown();
+		heartbeat.shutdownNow();
+	}
+
+	/**
+	 * Waits for the workers to complete every task in a work queue, returning tasks held by
+	 * workers which have stopped touching them to the queue, and reports the progress
+	 *
+	 * @param queue The work queue
+	 *
+	 * @return the leaderboard of every epoch count of every configuration in the queue
+	 *
+	 * @throws IOException if the queue cannot be read
+	 * @throws InterruptedException if the wait is interrupted
+	 */
+	public Leaderboard await(WorkQueue queue) throws IOException, InterruptedException{
+		startTime = System.currentTimeMillis();
+		int reported = -1;
+		while(true){
+			int requeued = queue.requeueStale(STALE);
+			if(requeued > 0)
+				System.out.println("Returned " + requeued + " stale tasks to the queue");
+			boolean finished = queue.isFinished();
+			int done = queue.getDone();
+			if(done != reported){
+				long elapsed = (System.currentTimeMillis() - startTime) / 1000;
+				System.out.println("Completed " + done + " of " + (done + queue.getPending() + queue.getClaimed()) + " after " + elapsed + "s");
+				reported = done;
+			}
+			if(finished)
+				break;
+			Thread.sleep(HEARTBEAT);
+		}
+		return new Leaderboard(queue.getResults());
+	}
+
+	/**
+	 * Creates the pool of threads
+	 */
+	private synchronized void startExecutor(){
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		stopping = false;
+	}
+
+	/**
+	 * Runs a list of tasks on the pool of threads and waits for them to finish. If the sweep
+	 * is stopped, it still waits for the tasks which had started.
+	 *
+	 * @param tasks The tasks
+	 *
+	 * @return false if the sweep was stopped
+	 */
+	private boolean execute(List<Runnable> tasks){
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		boolean cancelled = false;
+		try{
+			for(Runnable task : tasks){
+				try{
+					futures.add(executor.submit(task));
+				}
+				catch(RejectedExecutionException e){
+					cancelled = true;
+					break;
+				}
+			}
+			for(Future<?> future : futures){
+				try{
+					future.get();
+				}
+				catch(ExecutionException e){
+					System.out.println(e.getCause().toString());
+				}
+				catch(CancellationException e){
+					cancelled = true;
+				}
+			}
+		}
+		catch(InterruptedException e){
+			shutdown();
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return !cancelled;
+	}
+
+	/**
+	 * Trains the network of a single configuration once, and tests and validates it at each of
+	 * the configuration's epoch counts, writing the details files or recording the results in
+	 * the results store
+	 *
+	 * @param configuration The configuration
+	 * @param trainingData The training data
+	 * @param testingData The testing data
+	 * @param validatingData The validating data
+	 */
+	protected void process(Configuration configuration, double[] trainingData, double[] testingData, double[] validatingData){
+		evaluate(configuration, train(configuration, trainingData), testingData, validatingData);
+	}
+
+	/**
+	 * Trains the network of a single configuration once on the flat engine, taking a snapshot
+	 * at each of the configuration's epoch counts
+	 *
+	 * @param configuration The configuration
+	 * @param trainingData The training data
+	 *
+	 * @return the snapshots
+	 */
+	private FlatNetwork[] train(Configuration configuration, double[] trainingData){
+		FlatNetwork network = configuration.createNetwork().snapshot();
+		network.setTelemetry(createTelemetry());
+		if(checkpointDirectory != null)
+			network.setTrainingCheckpoint(new TrainingCheckpoint(getCheckpoint(configuration).toString(), checkpointInterval));
+		return network.train(trainingData, configuration.getEpochs());
+	}
+
+	/**
+	 * Tests and validates the snapshots of a configuration. With a results store, the results
+	 * are measured by two evaluations which are reused for every snapshot, and no details
+	 * files are written.
+	 *
+	 * @param configuration The configuration
+	 * @param snapshots The snapshots at each of the configuration's epoch counts
+	 * @param testingData The testing data
+	 * @param validatingData The validating data
+	 *
+	 * @return a trial holding the mean errors of each snapshot
+	 */
+	private Trial[] evaluate(Configuration configuration, FlatNetwork[] snapshots, double[] testingData, double[] validatingData){
+		Evaluation test = null;
+		Evaluation validation = null;
+		if(resultsStore != null){
+			test = new Evaluation(processor, resultsStore.isKeepingSamples(), Metric.all());
+			validation = new Evaluation(processor, resultsStore.isKeepingSamples(), Metric.all());
+		}
+		Trial[] trials = new Trial[snapshots.length];
+		for(int i = 0; i < snapshots.length; i++){
+			snapshots[i].setFileID(configuration.getFileID(i));
+			Evaluation tested;
+			Evaluation validated;
+			if(resultsStore != null){
+				snapshots[i].setWritingDetails(false);
+				tested = snapshots[i].test(testingData, test);
+				validated = snapshots[i].validate(validatingData, validation);
+				record(configuration, configuration.getEpochs()[i], tested, validated);
+			}
+			else{
+				tested = snapshots[i].test(testingData);
+				validated = snapshots[i].validate(validatingData);
+			}
+			trials[i] = new Trial(configuration, configuration.getEpochs()[i], validated.getMeanError(), tested.getMeanError());
+		}
+		if(resultsStore != null)
+			flush();
+		return trials;
+	}
+
+	/**
+	 * Appends the results of a configuration at one of its epoch counts to the results store
+	 */
+	private void record(Configuration configuration, int epochs, Evaluation test, Evaluation validation){
+		try{
+			resultsStore.append(configuration, epochs, test, validation);
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Forces the results store to disk
+	 */
+	private void flush(){
+		try{
+			resultsStore.flush();
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Gets the location of the training checkpoint of a configuration
+	 *
+	 * @param configuration The configuration
+	 *
+	 * @return the location
+	 */
+	private Path getCheckpoint(Configuration configuration){
+		return checkpointDirectory.resolve(configuration.getFileID() + "checkpoint.bin");
+	}
+
+	/**
+	 * Reads the ids of the configurations completed by an earlier run from the log, one id
+	 * per line, and opens the log to append to, creating the checkpoint directory if needed.
+	 * A last line cut short by a crash is dropped. A log which cannot be read is reported and
+	 * treated as empty.
+	 *
+	 * @return the ids
+	 */
+	private Set<String> loadCompleted(){
+		Set<String> ids = new HashSet<String>();
+		Path path = checkpointDirectory.resolve("completed.txt");
+		try{
+			Files.createDirectories(checkpointDirectory);
+			completedLog = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			byte[] bytes = Files.readAllBytes(path);
+			int end = bytes.length;
+			while(end > 0 && bytes[end - 1] != '\n')
+				end--;
+			completedLog.truncate(end);
+			completedLog.position(end);
+			String text = new String(bytes, 0, end, StandardCharsets.UTF_8);
+			if(!text.isEmpty())
+				ids.addAll(Arrays.asList(text.split("\n")));
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+		}
+		return ids;
+	}
+
+	/**
+	 * Appends a configuration's id to the log of completed configurations, forcing it to
+	 * disk, and then deletes the configuration's training checkpoint. An id which cannot be
+	 * appended is reported, and the configuration is run again by the next run.
+	 *
+	 * @param configuration The completed configuration
+	 */
+	private synchronized void saveCompleted(Configuration configuration){
+		try{
+			if(completedLog == null)
+				throw new IOException("The log of completed configurations is not open");
+			ByteBuffer line = ByteBuffer.wrap((configuration.getFileID() + "\n").getBytes(StandardCharsets.UTF_8));
+			while(line.hasRemaining())
+				completedLog.write(line);
+			completedLog.force(false);
+			Files.deleteIfExists(getCheckpoint(configuration));
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+		}
+	}
+
+	/**
+	 * Closes the log of completed configurations
+	 */
+	private synchronized void closeCompleted(){
+		try{
+			if(completedLog != null)
+				completedLog.close();
+		}
+		catch(IOException e){
+			System.out.println(e.toString());
+		}
+		completedLog = null;
+	}
+
+	/**
+	 * Reports that a configuration has completed
+	 *
+	 * @param configuration The completed configuration
+	 */
+	protected void progress(Configuration configuration){
+		int done = completed.incrementAndGet();
+		long elapsed = (System.currentTimeMillis() - startTime) / 1000;
+		System.out.println("Completed " + done + (configurations.isEmpty() ? "" : " of " + configurations.size()) + " (" + configuration.getFileID() + ") after " + elapsed + "s");
+	}
+
+	/**
+	 * Stops the sweep. Configurations which have not started are discarded and running
+	 * configurations are left to finish, saving their checkpoints and results as usual. A
+	 * worker takes no more tasks from its work queue.
+	 */
+	public synchronized void shutdown(){
+		stopping = true;
+		if(executor != null){
+			executor.shutdown();
+			List<Runnable> queued = new ArrayList<Runnable>();
+			executor.getQueue().drainTo(queued);
+			for(Runnable task : queued)
+				((Future<?>)task).cancel(false);
+		}
+	}
+}
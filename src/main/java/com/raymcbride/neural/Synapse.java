@@ -2,7 +2,7 @@ package com.raymcbride.neural;
 
 /**
  * The Synapse class is used to connect Neurons together. Synapses are created with
- * adjustable random weights.
+ * adjustable weights, either random from <code>Math.random</code> or drawn by the network.
  *
  * @see ContextSynapse
  *
@@ -29,6 +29,21 @@ public class Synapse{
         this.outputNeuron = outputNeuron;
     }
 
+    /**
+	 * This constructor for the <code>Synapse</code> connects two Neurons together,
+	 * and sets it's initial weight
+	 *
+	 * @param inputNeuron The input <code>Neuron</code>
+	 * @param outputNeuron The output <code>Neuron</code>
+	 * @param weight The initial weight
+	 */
+	public Synapse(Neuron inputNeuron, Neuron outputNeuron, double weight){
+        weightChange = 0;
+        this.weight = weight;
+        this.inputNeuron = inputNeuron;
+        this.outputNeuron = outputNeuron;
+    }
+
     /**
 	 * Gets the Synapse weight
 	 *
@@ -38,6 +53,15 @@ public class Synapse{
 	    return weight;
 	}
 
+	/**
+	 * Gets the last weight change
+	 *
+	 * @return The weight change
+	 */
+	public double getWeightChange(){
+		return weightChange;
+	}
+
 	/**
 	 * Sets the Synapse weight
 	 *
@@ -47,6 +71,17 @@ public class Synapse{
 		weight = newWeight;
 	}
 
+	/**
+	 * Sets the Synapse weight and weight change
+	 *
+	 * @param weight The new weight
+	 * @param weightChange The new weight change
+	 */
+	protected void setWeight(double weight, double weightChange){
+		this.weight = weight;
+		this.weightChange = weightChange;
+	}
+
 	/**
 	 * Calculates the weight change
 	 */
@@ -55,21 +90,11 @@ public class Synapse{
     }
 
     /**
-	 * Calculates the average weight change for use with time delays
+	 * Calculates the average weight change for use with time delays, from the mean of the
+	 * delay line of the input Neuron
 	 */
 	public void calculateWeightChange(double learningRate, double momentum, double errorTerm, int delays){
-		double[] delayedOutputs;
-		if(inputNeuron instanceof InputNeuron){
-			delayedOutputs = ((InputNeuron)inputNeuron).getOutputs();
-		}
-		else{
-			delayedOutputs = ((HiddenNeuron)inputNeuron).getOutputs();
-		}
-		double previousWeight = weightChange;
-		weightChange = 0;
-		for (int i = 0; i < delays; i++)
-			weightChange += (learningRate * errorTerm * delayedOutputs[i]) + (momentum * previousWeight);
-		weightChange = weightChange/delays;
+		weightChange = (learningRate * errorTerm * inputNeuron.getDelayLine().getMean()) + (momentum * weightChange);
     }
 
     /**
@@ -30,6 +30,69 @@ public class TDNN extends Network{
         connectNeurons();
 	}
 
+	/**
+	 * This constructor for the <code>TDNN</code> also specifies the seed used to create the initial weights.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param delays The number of delays
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 */
+	public TDNN(int inputs, int hiddens, int delays, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed){
+		super(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID, seed);
+		this.delays = delays;
+		createNeurons(delays);
+        connectNeurons();
+	}
+
+	/**
+	 * This constructor for the <code>TDNN</code> also specifies the distribution the initial weights are drawn from.
+	 *
+	 * @param inputs The number of Input Neurons
+	 * @param hiddens The number of Hidden Neurons
+	 * @param delays The number of delays
+	 * @param slope The slope of their activation functions
+	 * @param learningRate The learning rate
+	 * @param momentum The momentum
+	 * @param totalEpochs The number of training epochs
+	 * @param fileID The network topology id
+	 * @param seed The seed for the initial weights
+	 * @param initialisation The distribution of the initial weights
+	 */
+	public TDNN(int inputs, int hiddens, int delays, int slope, double learningRate, double momentum, int totalEpochs, String fileID, long seed, Initialisation initialisation){
+		super(inputs, hiddens, slope, learningRate, momentum, totalEpochs, fileID, seed, initialisation);
+		this.delays = delays;
+		createNeurons(delays);
+        connectNeurons();
+	}
+
+	/**
+	 * Takes a snapshot of the network
+	 *
+	 * @return a <code>FlatTDNN</code> copy of the network
+	 */
+	public FlatNetwork snapshot(){
+		return new FlatTDNN(this);
+	}
+
+	/**
+	 * Sets the delays of the network from a snapshot
+	 *
+	 * @param network The snapshot
+	 */
+	protected void restoreState(FlatNetwork network){
+		FlatTDNN tdnn = (FlatTDNN)network;
+		for(int i = 0; i < getInputNeurons().length; i++)
+			getInputNeuron(i).getDelayLine().restore(tdnn.getInputDelay(), i * delays, tdnn.getInputHead(), tdnn.getInputDelaySum()[i]);
+		for(int i = 0; i < getHiddenNeurons().length; i++)
+			getHiddenNeuron(i).getDelayLine().restore(tdnn.getHiddenDelay(), i * delays, tdnn.getHiddenHead(), tdnn.getHiddenDelaySum()[i], tdnn.getHiddenDerivativeSum()[i]);
+	}
+
 	/**
      * Creates the Neurons
      *
@@ -85,25 +148,32 @@ public class TDNN extends Network{
      */
     protected void calculateHiddenError(){
 		for(int i = 0; i < getHiddenNeurons().length; i++){
-			double errorTerm = 0;
-			double[] temp = ((HiddenNeuron)getHiddenNeuron(i)).getOutputs();
-			for(int j = 0; j < delays; j++)
-				errorTerm += getSlope() * temp[j] * (1 - temp[j]) * getOutputErrorTerm() * (getHiddenToOutput(i)).getWeight();
-			setHiddenErrorTerm(errorTerm/delays, i);
+			double derivativeSum = getHiddenNeuron(i).getDelayLine().getDerivativeSum();
+			setHiddenErrorTerm(getSlope() * derivativeSum * getOutputErrorTerm() * (getHiddenToOutput(i)).getWeight() / delays, i);
 		}
 	}
 
+	/**
+	 * Gets the number of delays
+	 *
+	 * @return delays
+	 */
+	protected int getDelays(){
+		return delays;
+	}
+
 	/**
 	 * Initialises the network with data
 	 */
 	protected void initialise(){
 		int n = 0;
+		double[] window = getWindow();
 		for(int i = 0; i < getInputNeurons().length; i++){
-			getInputNeuron(i).input(getInputData((getNextInput() + i + getInputData().length)%getInputData().length));
+			getInputNeuron(i).input(window[i]);
 			getInputNeuron(i).calculateDelayedOutput();
 		}
 		getBiasHidden().calculateOutput();
 		getBiasOutput().calculateOutput();
-		setTargetOutput(getInputData((getNextInput() + getInputNeurons().length - 1)%getInputData().length));
+		setTargetOutput(getTarget());
 	}
 }
\ No newline at end of file
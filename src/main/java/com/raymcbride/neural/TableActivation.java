@@ -0,0 +1,71 @@
+package com.raymcbride.neural;
+
+/**
+ * The TableActivation class interpolates the sigmoid linearly between values in a table.
+ * The table covers -16 to 16 in steps of 1/128, which is 4097 values or 32KB, so it stays
+ * in the cache. Outside that range the sigmoid is within 1.2E-7 of 0 or 1 and the end
+ * values are returned. The error of the interpolation is at most one eighth of the square
+ * of the step times the largest second derivative of the sigmoid, giving a measured maximum
+ * error of 7.35E-7.
+ *
+ * @see Activation
+ *
+ * @author Ray McBride
+ */
+class TableActivation extends Activation{
+
+	private static final double RANGE = 16;
+	private static final int STEPS_PER_UNIT = 128;
+	private static final double[] TABLE = createTable();
+
+	/**
+	 * Creates the table of sigmoid values
+	 *
+	 * @return the table, with one extra value so that the last interval can be interpolated
+	 */
+	private static double[] createTable(){
+		int size = (int)(2 * RANGE * STEPS_PER_UNIT) + 1;
+		double[] table = new double[size + 1];
+		for(int i = 0; i < table.length; i++)
+			table[i] = 1/(1 + Math.exp(-((double)i / STEPS_PER_UNIT - RANGE)));
+		return table;
+	}
+
+	/**
+	 * Interpolates the sigmoid of a value from the table
+	 *
+	 * @param x The value
+	 *
+	 * @return the sigmoid
+	 */
+	public double sigmoid(double x){
+		if(x != x)
+			return x;
+		if(x <= -RANGE)
+			return TABLE[0];
+		if(x >= RANGE)
+			return TABLE[TABLE.length - 2];
+		double position = (x + RANGE) * STEPS_PER_UNIT;
+		int i = (int)position;
+		double lower = TABLE[i];
+		return lower + (position - i) * (TABLE[i + 1] - lower);
+	}
+
+	/**
+	 * Gets the maximum error
+	 *
+	 * @return the maximum error
+	 */
+	public double getMaximumError(){
+		return 7.5E-7;
+	}
+
+	/**
+	 * Gets the name of the activation
+	 *
+	 * @return TABLE
+	 */
+	public String getName(){
+		return "TABLE";
+	}
+}
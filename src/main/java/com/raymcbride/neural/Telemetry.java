@@ -0,0 +1,266 @@
+package com.raymcbride.neural;
+
+/**
+ * The Telemetry class records the progress of each training epoch of a network: the mean
+ * error, the number of samples per second and, optionally, the time spent in each phase of
+ * propagation and back propagation. At the end of each epoch it is passed to a
+ * <code>TrainingListener</code>.
+ *
+ * A network without a Telemetry is not instrumented at all. With a Telemetry that does not
+ * time the phases, the only cost is one call at the end of each epoch. Timing the phases
+ * reads the clock once per phase per sample.
+ *
+ * A Telemetry records the progress of one network, so each network needs its own.
+ *
+ * @see TrainingListener
+ * @see FlightRecorderListener
+ *
+ * @author Ray McBride
+ */
+public class Telemetry{
+
+	/**
+	 * The phase which sets the inputs of a sample, shifting the delays or context
+	 */
+	public static final int INITIALISE = 0;
+
+	/**
+	 * The phase which sends the inputs through the weights to the hidden layer
+	 */
+	public static final int SEND_TO_HIDDEN = 1;
+
+	/**
+	 * The phase which applies the activation to the hidden layer
+	 */
+	public static final int CALCULATE_HIDDEN_OUTPUT = 2;
+
+	/**
+	 * The phase which sends the hidden outputs through the weights to the output
+	 */
+	public static final int SEND_TO_OUTPUT = 3;
+
+	/**
+	 * The phase which calculates the error of the output against the target
+	 */
+	public static final int CALCULATE_ERROR = 4;
+
+	/**
+	 * The phase which calculates the error gradient of the output
+	 */
+	public static final int CALCULATE_OUTPUT_ERROR = 5;
+
+	/**
+	 * The phase which calculates the changes to the weights to the output
+	 */
+	public static final int CALCULATE_OUTPUT_WEIGHT_CHANGE = 6;
+
+	/**
+	 * The phase which calculates the error gradients of the hidden layer
+	 */
+	public static final int CALCULATE_HIDDEN_ERROR = 7;
+
+	/**
+	 * The phase which calculates the changes to the weights to the hidden layer
+	 */
+	public static final int CALCULATE_HIDDEN_WEIGHT_CHANGE = 8;
+
+	/**
+	 * The phase which applies the changes to the weights to the output
+	 */
+	public static final int ADJUST_OUTPUT_WEIGHTS = 9;
+
+	/**
+	 * The phase which applies the changes to the weights to the hidden layer
+	 */
+	public static final int ADJUST_HIDDEN_WEIGHTS = 10;
+
+	/**
+	 * The names of the phases, in order
+	 */
+	private static final String[] PHASES = {"initialise", "sendToHidden", "calculateHiddenOutput", "sendToOutput", "calculateError", "calculateOutputError", "calculateOutputWeightChange", "calculateHiddenError", "calculateHiddenWeightChange", "adjustOutputWeights", "adjustHiddenWeights"};
+
+	private static final String FLIGHT_RECORDER_LISTENER = "com.raymcbride.neural.FlightRecorderListener";
+
+	private TrainingListener listener;
+	private boolean timingPhases;
+	private String fileID;
+	private int epoch;
+	private int samples;
+	private double loss;
+	private long epochStart;
+	private long elapsedTime;
+	private long lap;
+	private long[] phaseTime;
+
+	/**
+	 * Constructor for the <code>Telemetry</code>
+	 *
+	 * @param listener The listener to pass each epoch to
+	 * @param timingPhases true to time each phase
+	 */
+	public Telemetry(TrainingListener listener, boolean timingPhases){
+		this.listener = listener;
+		this.timingPhases = timingPhases;
+		phaseTime = new long[PHASES.length];
+	}
+
+	/**
+	 * Creates a listener which emits a JDK Flight Recorder event for each epoch
+	 *
+	 * @return the listener, or null if the Flight Recorder is not available on this JVM
+	 */
+	public static TrainingListener createFlightRecorderListener(){
+		try{
+			return (TrainingListener)Class.forName(FLIGHT_RECORDER_LISTENER).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e){
+			return null;
+		}
+		catch(LinkageError e){
+			return null;
+		}
+	}
+
+	/**
+	 * Starts timing a training run
+	 *
+	 * @param fileID The network topology id
+	 */
+	protected void start(String fileID){
+		this.fileID = fileID;
+		epochStart = System.nanoTime();
+		for(int i = 0; i < phaseTime.length; i++)
+			phaseTime[i] = 0;
+	}
+
+	/**
+	 * Starts timing the phases of a sample
+	 */
+	protected void startSample(){
+		lap = System.nanoTime();
+	}
+
+	/**
+	 * Adds the time since the last phase ended to a phase
+	 *
+	 * @param phase The phase which has just ended
+	 */
+	protected void endPhase(int phase){
+		long now = System.nanoTime();
+		phaseTime[phase] += now - lap;
+		lap = now;
+	}
+
+	/**
+	 * Ends an epoch, passes it to the listener and starts timing the next
+	 *
+	 * @param epoch The number of completed epochs
+	 * @param totalError The total error over the epoch
+	 * @param samples The number of samples in the epoch
+	 */
+	protected void endEpoch(int epoch, double totalError, int samples){
+		long now = System.nanoTime();
+		this.epoch = epoch;
+		this.samples = samples;
+		loss = totalError / samples;
+		elapsedTime = now - epochStart;
+		listener.epochCompleted(this);
+		for(int i = 0; i < phaseTime.length; i++)
+			phaseTime[i] = 0;
+		epochStart = System.nanoTime();
+	}
+
+	/**
+	 * Gets whether each phase is timed
+	 *
+	 * @return timingPhases
+	 */
+	public boolean isTimingPhases(){
+		return timingPhases;
+	}
+
+	/**
+	 * Gets the network topology id
+	 *
+	 * @return fileID
+	 */
+	public String getFileID(){
+		return fileID;
+	}
+
+	/**
+	 * Gets the number of completed epochs
+	 *
+	 * @return epoch
+	 */
+	public int getEpoch(){
+		return epoch;
+	}
+
+	/**
+	 * Gets the number of samples in the epoch
+	 *
+	 * @return samples
+	 */
+	public int getSamples(){
+		return samples;
+	}
+
+	/**
+	 * Gets the mean error over the epoch
+	 *
+	 * @return loss
+	 */
+	public double getLoss(){
+		return loss;
+	}
+
+	/**
+	 * Gets the wall clock time of the epoch in nanoseconds
+	 *
+	 * @return elapsedTime
+	 */
+	public long getElapsedTime(){
+		return elapsedTime;
+	}
+
+	/**
+	 * Gets the number of samples trained per second
+	 *
+	 * @return the samples per second
+	 */
+	public double getSamplesPerSecond(){
+		return elapsedTime > 0 ? samples * 1e9 / elapsedTime : 0;
+	}
+
+	/**
+	 * Gets the time spent in a phase during the epoch in nanoseconds
+	 *
+	 * @param phase The phase
+	 *
+	 * @return the time, or 0 if the phases are not timed
+	 */
+	public long getPhaseTime(int phase){
+		return phaseTime[phase];
+	}
+
+	/**
+	 * Gets the number of phases
+	 *
+	 * @return the number of phases
+	 */
+	public static int getPhases(){
+		return PHASES.length;
+	}
+
+	/**
+	 * Gets the name of a phase
+	 *
+	 * @param phase The phase
+	 *
+	 * @return the name of the method of the phase
+	 */
+	public static String getPhaseName(int phase){
+		return PHASES[phase];
+	}
+}
@@ -2,12 +2,10 @@ package com.raymcbride.neural;
 
 import java.util.*;
 import java.io.*;
-import javax.xml.parsers.*;
-import org.w3c.dom.*;
 
 /**
  * The Test class is the main class. It creates, trains, tests and validates MLP, TDNN and
- * RNN networks with the specified parameters
+ * RNN networks with the specified parameters, using a <code>Sweep</code> to run them in parallel
  *
  * @author Ray McBride
  */
@@ -20,15 +18,21 @@ public class Test{
 	private final static int[] EPOCHS = {1000, 3000, 5000, 7000, 10000};
 	private final static int[] INPUTS = {5, 10, 15};
     private final static int[] HIDDENS = {5, 10, 15};
+    private final static int HALVING_EPOCHS = 100;
+    private final static int HALVING_ETA = 3;
+    private final static long SEED = Long.getLong("neural.seed", 1L);
+    private final static int CHECKPOINT_INTERVAL = Integer.getInteger("neural.checkpoint.interval", 500);
+    private final static String QUEUE = System.getProperty("neural.queue", "output/queue");
     private double[] trainingData;
     private double[] testingData;
     private double[] validatingData;
-    private Thread mlpThread;
-	private Thread tdnnThread;
-	private Thread rnnThread;
+    private DataProcessor processor;
+    private ResultsStore resultsStore;
+    private Sweep sweep;
 
     /**
-	 * This constructor for the <code>Test</code> creates training, testing and validating data sets
+	 * This constructor for the <code>Test</code> creates training, testing and validating data sets.
+	 * The data processor is fitted to the training data, and scales all three the same way.
 	 *
 	 * @param trainPath The location of the training data
 	 * @param trainField The XML node tag containing the training data
@@ -36,121 +40,234 @@ public class Test{
 	 * @param testingField The XML node tag containing the testing data
 	 * @param validatingPath The location of the validating data
 	 * @param validatingField The XML node tag containing the validating data
+	 * @param threads The number of threads used by the sweep
 	 */
-	public Test(String trainPath, String trainField, String testingPath, String testingField, String validatingPath, String validatingField){
+	public Test(String trainPath, String trainField, String testingPath, String testingField, String validatingPath, String validatingField, int threads){
 		trainingData = getData(trainPath, trainField);
 		testingData = getData(testingPath, testingField);
 		validatingData = getData(validatingPath, validatingField);
+		processor = new DataProcessor();
+		processor.fit(trainingData);
+		processor.transform(trainingData);
+		processor.transform(testingData);
+		processor.transform(validatingData);
+		sweep = new Sweep(threads);
+		sweep.setProcessor(processor);
 	}
 
 	/**
-	 * Gets the data from the <code>Document</code>
+	 * Gets the data from an XML file, through a <code>SeriesCache</code> so that the file is
+	 * only parsed when it has changed
 	 *
-	 * @return a double array containing the data
+	 * @return a double array containing the unscaled data
 	 */
 	public double[] getData(String path, String field){
-		XMLParser parser = new XMLParser(path);
-		Document xmlDoc = parser.getDocument();
-		NodeList elementNodes = xmlDoc.getElementsByTagName(field);
-		ArrayList arrayList = new ArrayList();
-		for (int i = 0; i < elementNodes.getLength(); i++) {
-			NodeList textNodes = elementNodes.item(i).getChildNodes();
-			for (int j = 0; j < textNodes.getLength(); j++) {
-				Node node = textNodes.item(j);
-				arrayList.add(node.getNodeValue());
-			}
-		}
-		double[] data = new double[arrayList.size()];
-		for(int i = 0; i < arrayList.size(); i++)
-			data[i] = Double.parseDouble((String)arrayList.get(i));
-		DataProcessor dataProcessor = new DataProcessor(data);
-        data = dataProcessor.scale();
-        return data;
+		return new SeriesCache(path, field).toArray();
+	}
+
+	/**
+	 * Gets the data processor fitted to the training data
+	 *
+	 * @return processor
+	 */
+	public DataProcessor getProcessor(){
+		return processor;
 	}
 
 	/**
-	 * Trains, tests and validates the MLP networks
+	 * Adds the MLP networks to the sweep
 	 */
 	public void testMLP(){
-		mlpThread = new Thread(){
-			public void run(){
-				for(int i = 0; i < INPUTS.length; i++){
-					for(int j = 0; j < HIDDENS.length; j++){
-						for(int k = 0; k < LEARNING_RATE.length; k++){
-							for(int m = 0; m < MOMENTUM.length; m++){
-								for(int n = 0; n < EPOCHS.length; n++){
-									MLP mlp = new MLP(INPUTS[i], HIDDENS[j], 1, LEARNING_RATE[k], MOMENTUM[m], EPOCHS[n], "MLP_" + i + "_" + j + "_" + k + "_" + m + "_" + n + "_");
-									mlp.train(trainingData);
-									mlp.test(testingData);
-									mlp.validate(validatingData);
-								}
-							}
-						}
+		for(int i = 0; i < INPUTS.length; i++){
+			for(int j = 0; j < HIDDENS.length; j++){
+				for(int k = 0; k < LEARNING_RATE.length; k++){
+					for(int m = 0; m < MOMENTUM.length; m++){
+						String fileID = "MLP_" + i + "_" + j + "_" + k + "_" + m + "_";
+						sweep.add(new Configuration(Configuration.MLP, INPUTS[i], HIDDENS[j], 0, 0, 1, LEARNING_RATE[k], MOMENTUM[m], EPOCHS, fileID, Configuration.deriveSeed(SEED, fileID)));
 					}
-	   			}
+				}
 			}
-		};
-		mlpThread.start();
+		}
 	}
 
 	/**
-	 * Trains, tests and validates the TDNN networks
+	 * Adds the TDNN networks to the sweep
 	 */
 	public void testTDNN(){
-		tdnnThread = new Thread(){
-			public void run(){
-				for(int i = 0; i < INPUTS.length; i++){
-					for(int j = 0; j < HIDDENS.length; j++){
-						for(int k = 0; k < DELAYS.length; k++){
-							for(int m = 0; m < LEARNING_RATE.length; m++){
-								for(int n = 0; n < MOMENTUM.length; n++){
-									for(int p = 0; p < EPOCHS.length; p++){
-										TDNN tdnn = new TDNN(INPUTS[i], HIDDENS[j], DELAYS[k], 1, LEARNING_RATE[m], MOMENTUM[n], EPOCHS[p], "TDNN_" + i + "_" + j + "_" + k + "_" + m + "_" + n + "_" + p + "_");
-										tdnn.train(trainingData);
-										tdnn.test(testingData);
-										tdnn.validate(validatingData);
-						   			}
-						   		}
-							}
+		for(int i = 0; i < INPUTS.length; i++){
+			for(int j = 0; j < HIDDENS.length; j++){
+				for(int k = 0; k < DELAYS.length; k++){
+					for(int m = 0; m < LEARNING_RATE.length; m++){
+						for(int n = 0; n < MOMENTUM.length; n++){
+							String fileID = "TDNN_" + i + "_" + j + "_" + k + "_" + m + "_" + n + "_";
+							sweep.add(new Configuration(Configuration.TDNN, INPUTS[i], HIDDENS[j], DELAYS[k], 0, 1, LEARNING_RATE[m], MOMENTUM[n], EPOCHS, fileID, Configuration.deriveSeed(SEED, fileID)));
 						}
 					}
-	   			}
+				}
 			}
-		};
-		tdnnThread.start();
+		}
 	}
 
 	/**
-	 * Trains, tests and validates the RNN networks
+	 * Adds the RNN networks to the sweep
 	 */
 	public void testRNN(){
-		rnnThread = new Thread(){
-			public void run(){
-				for(int i = 0; i < INPUTS.length; i++){
-					for(int j = 0; j < HIDDENS.length; j++){
-						for(int k = 0; k < MEMORY_DEPTH.length; k++){
-							for(int m = 0; m < LEARNING_RATE.length; m++){
-								for(int n = 0; n < MOMENTUM.length; n++){
-									for(int p = 0; p < EPOCHS.length; p++){
-										RNN rnn = new RNN(INPUTS[i], HIDDENS[j], MEMORY_DEPTH[k], 1, LEARNING_RATE[m], MOMENTUM[n], EPOCHS[p], "RNN_" + i + "_" + j + "_" + k + "_" + m + "_" + n + "_" + p + "_");
-										rnn.train(trainingData);
-										rnn.test(testingData);
-										rnn.validate(validatingData);
-						   			}
-								}
-						   	}
+		for(int i = 0; i < INPUTS.length; i++){
+			for(int j = 0; j < HIDDENS.length; j++){
+				for(int k = 0; k < MEMORY_DEPTH.length; k++){
+					for(int m = 0; m < LEARNING_RATE.length; m++){
+						for(int n = 0; n < MOMENTUM.length; n++){
+							String fileID = "RNN_" + i + "_" + j + "_" + k + "_" + m + "_" + n + "_";
+							sweep.add(new Configuration(Configuration.RNN, INPUTS[i], HIDDENS[j], 0, MEMORY_DEPTH[k], 1, LEARNING_RATE[m], MOMENTUM[n], EPOCHS, fileID, Configuration.deriveSeed(SEED, fileID)));
 						}
 					}
 				}
 			}
-		};
-		rnnThread.start();
+		}
+	}
+
+	/**
+	 * Trains, tests and validates every network in the sweep. With a results store, the best
+	 * networks are then printed.
+	 *
+	 * @throws IOException if the results store cannot be read
+	 */
+	public void run() throws IOException{
+		sweep.run(trainingData, testingData, validatingData);
+		if(resultsStore != null)
+			resultsStore.getLeaderboard(10).print(10);
+	}
+
+	/**
+	 * Records the results of the sweep in a results store instead of writing a details file for
+	 * every test and validation
+	 *
+	 * @param directory The directory of the results store
+	 * @param samples true to keep the error of every sample as well as the summaries
+	 *
+	 * @throws IOException if the results store cannot be opened
+	 */
+	public void recordResults(String directory, boolean samples) throws IOException{
+		resultsStore = new ResultsStore(directory, samples);
+		sweep.setResultsStore(resultsStore);
+	}
+
+	/**
+	 * Runs the sweep by successive halving, then writes the leaderboard to file and prints the
+	 * best networks
+	 */
+	public void halve(){
+		Leaderboard leaderboard = sweep.halve(trainingData, testingData, validatingData, HALVING_EPOCHS, HALVING_ETA);
+		leaderboard.writeToFile("output/leaderboard.csv");
+		leaderboard.print(10);
+	}
+
+	/**
+	 * Emits a JDK Flight Recorder event for every training epoch, with the time spent in each
+	 * phase of training
+	 *
+	 * @return false if the Flight Recorder is not available on this JVM
+	 */
+	public boolean recordTelemetry(){
+		TrainingListener listener = Telemetry.createFlightRecorderListener();
+		sweep.setTrainingListener(listener, true);
+		return listener != null;
+	}
+
+	/**
+	 * Publishes the sweep to a work queue, waits for workers in other processes to complete
+	 * it, then writes the leaderboard to file and prints the best networks
+	 *
+	 * @param directory The directory of the work queue
+	 *
+	 * @throws IOException if the work queue cannot be used
+	 * @throws InterruptedException if the wait is interrupted
+	 */
+	public void publish(String directory) throws IOException, InterruptedException{
+		WorkQueue queue = new WorkQueue(directory);
+		System.out.println("Published " + sweep.publish(queue) + " configurations to " + directory);
+		Leaderboard leaderboard = sweep.await(queue);
+		leaderboard.writeToFile("output/leaderboard.csv");
+		leaderboard.print(10);
+	}
+
+	/**
+	 * Works on the configurations of a work queue until it has been completed, saving
+	 * checkpoints in the queue's directory so that a task returned to the queue carries on
+	 * from where it left off
+	 *
+	 * @param directory The directory of the work queue
+	 *
+	 * @throws IOException if the work queue cannot be used
+	 */
+	public void work(String directory) throws IOException{
+		sweep.setCheckpoints(directory + "/checkpoints", CHECKPOINT_INTERVAL);
+		sweep.work(new WorkQueue(directory), trainingData, testingData, validatingData);
 	}
 
-	public static void main(String[] args){
-		Test test = new Test("data/Train500.xml", "indexValue", "data/Test100.xml", "indexValue", "data/Validate100.xml", "indexValue");
-		test.testMLP();
-		test.testTDNN();
-		test.testRNN();
+	/**
+	 * Saves checkpoints of the sweep to a directory, so that a stopped sweep carries on from
+	 * where it left off when it is run again
+	 *
+	 * @param directory The directory for the checkpoint files
+	 */
+	public void checkpoint(String directory){
+		sweep.setCheckpoints(directory, CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * Stops the sweep
+	 */
+	public void shutdown(){
+		sweep.shutdown();
+	}
+
+	/**
+	 * Runs the sweep. The first optional argument is the number of threads, which defaults to
+	 * the number of available processors. If the second is <code>halving</code> the sweep is
+	 * run by successive halving instead of in full. If it is <code>publish</code> the sweep is
+	 * published to the work queue in the directory <code>neural.queue</code> and run by other
+	 * processes, which are started with <code>work</code>. Setting the system property
+	 * <code>neural.telemetry</code> to true records the telemetry of every training epoch, and
+	 * <code>neural.seed</code> sets the seed every network's initial weights are derived from.
+	 * Setting <code>neural.checkpoint</code> to a directory saves checkpoints there every
+	 * <code>neural.checkpoint.interval</code> epochs. Setting <code>neural.results</code> to a
+	 * directory records the results in a results store there, keeping the error of every sample
+	 * if <code>neural.results.samples</code> is set.
+	 *
+	 * @param args The command line arguments
+	 *
+	 * @throws IOException if the work queue or results store cannot be used
+	 * @throws InterruptedException if waiting for the work queue is interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException{
+		int threads = Runtime.getRuntime().availableProcessors();
+		if(args.length > 0)
+			threads = Integer.parseInt(args[0]);
+		final Test test = new Test("data/Train500.xml", "indexValue", "data/Test100.xml", "indexValue", "data/Validate100.xml", "indexValue", threads);
+		if(Boolean.getBoolean("neural.telemetry") && !test.recordTelemetry())
+			System.out.println("The Flight Recorder is not available, so no telemetry will be recorded");
+		if(System.getProperty("neural.checkpoint") != null)
+			test.checkpoint(System.getProperty("neural.checkpoint"));
+		if(System.getProperty("neural.results") != null)
+			test.recordResults(System.getProperty("neural.results"), Boolean.getBoolean("neural.results.samples"));
+		boolean working = args.length > 1 && args[1].equals("work");
+		if(!working){
+			test.testMLP();
+			test.testTDNN();
+			test.testRNN();
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(){
+			public void run(){
+				test.shutdown();
+			}
+		});
+		if(args.length > 1 && args[1].equals("halving"))
+			test.halve();
+		else if(args.length > 1 && args[1].equals("publish"))
+			test.publish(QUEUE);
+		else if(working)
+			test.work(QUEUE);
+		else test.run();
 	}
 }
\ No newline at end of file
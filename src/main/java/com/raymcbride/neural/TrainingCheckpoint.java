@@ -0,0 +1,279 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * The TrainingCheckpoint class saves the full training state of a network every
+ * <code>interval</code> epochs, so that training which is interrupted can carry on from the
+ * last checkpoint with exactly the same results as if it had never stopped. The state is
+ * taken at the end of an epoch, and holds the number of completed epochs, the weights, the
+ * weight changes and the delays or context of the network, the snapshots taken so far and the
+ * progress of any early stopping.
+ *
+ * The networks are packed as in a <code>ModelFile</code>, and the file is written to a
+ * temporary file and renamed into place, so a crash while saving leaves the last checkpoint
+ * as it was.
+ *
+ * @see Network
+ * @see ModelFile
+ *
+ * @author Ray McBride
+ */
+public class TrainingCheckpoint{
+
+	private static final int MAGIC = 0x544B4E4E;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int ABSENT = -1;
+
+	private Path path;
+	private int interval;
+	private int epoch;
+	private FlatNetwork network;
+	private FlatNetwork[] snapshots;
+	private FlatNetwork best;
+	private double bestError;
+	private int bestEpoch;
+	private int waiting;
+
+	/**
+	 * Constructor for the <code>TrainingCheckpoint</code>
+	 *
+	 * @param location The location of the checkpoint file
+	 * @param interval The number of epochs between checkpoints
+	 */
+	public TrainingCheckpoint(String location, int interval){
+		if(interval < 1)
+			throw new IllegalArgumentException("Invalid interval " + interval);
+		path = Paths.get(location);
+		this.interval = interval;
+	}
+
+	/**
+	 * Gets whether a checkpoint should be saved after an epoch
+	 *
+	 * @param epoch The number of completed epochs
+	 *
+	 * @return true if a checkpoint is due
+	 */
+	protected boolean isDue(int epoch){
+		return epoch % interval == 0;
+	}
+
+	/**
+	 * Saves the training state at the end of an epoch
+	 *
+	 * @param epoch The number of completed epochs
+	 * @param network The network being trained
+	 * @param snapshots The snapshots taken so far, with null for those still to be taken
+	 * @param earlyStopping The early stopping, or null if there is none
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	protected void save(int epoch, FlatNetwork network, FlatNetwork[] snapshots, EarlyStopping earlyStopping) throws IOException{
+		FlatNetwork best = earlyStopping == null ? null : earlyStopping.getBest();
+		int size = HEADER_SIZE + getSize(network) + getSize(best);
+		for(int i = 0; i < snapshots.length; i++)
+			size += getSize(snapshots[i]);
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(epoch).putInt(snapshots.length);
+		buffer.putInt(earlyStopping == null ? 0 : earlyStopping.getBestEpoch());
+		buffer.putInt(earlyStopping == null ? 0 : earlyStopping.getWaiting());
+		buffer.putDouble(earlyStopping == null ? Double.POSITIVE_INFINITY : earlyStopping.getBestError());
+		write(buffer, network);
+		for(int i = 0; i < snapshots.length; i++)
+			write(buffer, snapshots[i]);
+		write(buffer, best);
+		buffer.rewind();
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		AtomicFile.write(path, buffer);
+	}
+
+	/**
+	 * Gets the number of bytes taken by a network in the file
+	 *
+	 * @return the size
+	 */
+	private static int getSize(FlatNetwork network){
+		if(network == null)
+			return 8;
+		int length = getFileID(network).length;
+		return 8 + length + (8 - length % 8) % 8 + network.getSize();
+	}
+
+	/**
+	 * Gets the network topology id of a network as bytes
+	 *
+	 * @return the encoded network topology id
+	 */
+	private static byte[] getFileID(FlatNetwork network){
+		return network.getFileID() == null ? new byte[0] : network.getFileID().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a network, or a marker for a missing one, to the buffer
+	 */
+	private static void write(ByteBuffer buffer, FlatNetwork network){
+		if(network == null){
+			buffer.putInt(ABSENT).putInt(0);
+			return;
+		}
+		byte[] fileID = getFileID(network);
+		buffer.putInt(ModelFile.getType(network)).putInt(fileID.length);
+		buffer.put(fileID).put(new byte[(8 - fileID.length % 8) % 8]);
+		network.write(buffer);
+	}
+
+	/**
+	 * Loads the last checkpoint, if there is one
+	 *
+	 * @param checkpoints The number of snapshots the training run takes
+	 *
+	 * @return false if there is no checkpoint file
+	 *
+	 * @throws IOException if the file cannot be read, is not a checkpoint file or was saved by a
+	 * training run taking a different number of snapshots
+	 */
+	protected boolean load(int checkpoints) throws IOException{
+		if(!Files.exists(path))
+			return false;
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+			throw new IOException(path + " is not a checkpoint file");
+		int version = buffer.getInt();
+		if(version != VERSION)
+			throw new IOException(path + " has unsupported version " + version);
+		int epoch = buffer.getInt();
+		int count = buffer.getInt();
+		if(count != checkpoints)
+			throw new IOException(path + " holds " + count + " snapshots but " + checkpoints + " were expected");
+		bestEpoch = buffer.getInt();
+		waiting = buffer.getInt();
+		bestError = buffer.getDouble();
+		network = read(buffer);
+		if(network == null)
+			throw new IOException(path + " is corrupt");
+		snapshots = new FlatNetwork[count];
+		for(int i = 0; i < count; i++)
+			snapshots[i] = read(buffer);
+		best = read(buffer);
+		this.epoch = epoch;
+		return true;
+	}
+
+	/**
+	 * Reads a network, or a marker for a missing one, from the buffer
+	 *
+	 * @return the network, or null if it is missing
+	 */
+	private FlatNetwork read(ByteBuffer buffer) throws IOException{
+		try{
+			int type = buffer.getInt();
+			byte[] fileID = new byte[buffer.getInt()];
+			if(type == ABSENT)
+				return null;
+			buffer.get(fileID);
+			buffer.position(buffer.position() + (8 - fileID.length % 8) % 8);
+			return ModelFile.read(buffer, type, new String(fileID, StandardCharsets.UTF_8), path);
+		}
+		catch(BufferUnderflowException e){
+			throw new IOException(path + " is truncated");
+		}
+		catch(NegativeArraySizeException | IllegalArgumentException e){
+			throw new IOException(path + " is corrupt");
+		}
+	}
+
+	/**
+	 * Deletes the checkpoint file, once training has finished and its results are safe
+	 *
+	 * @throws IOException if the file cannot be deleted
+	 */
+	public void delete() throws IOException{
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Gets whether there is a checkpoint file to carry on from
+	 *
+	 * @return true if the file exists
+	 */
+	public boolean exists(){
+		return Files.exists(path);
+	}
+
+	/**
+	 * Gets the number of completed epochs of the loaded checkpoint
+	 *
+	 * @return epoch
+	 */
+	public int getEpoch(){
+		return epoch;
+	}
+
+	/**
+	 * Gets the network of the loaded checkpoint
+	 *
+	 * @return network
+	 */
+	protected FlatNetwork getNetwork(){
+		return network;
+	}
+
+	/**
+	 * Gets the snapshots of the loaded checkpoint
+	 *
+	 * @return snapshots, with null for those still to be taken
+	 */
+	protected FlatNetwork[] getSnapshots(){
+		return snapshots;
+	}
+
+	/**
+	 * Gets the best snapshot of the early stopping of the loaded checkpoint
+	 *
+	 * @return best, or null if none had been scored
+	 */
+	protected FlatNetwork getBest(){
+		return best;
+	}
+
+	/**
+	 * Gets the best mean error of the early stopping of the loaded checkpoint
+	 *
+	 * @return bestError
+	 */
+	protected double getBestError(){
+		return bestError;
+	}
+
+	/**
+	 * Gets the epoch of the best score of the early stopping of the loaded checkpoint
+	 *
+	 * @return bestEpoch
+	 */
+	protected int getBestEpoch(){
+		return bestEpoch;
+	}
+
+	/**
+	 * Gets the number of scores in a row without an improvement of the loaded checkpoint
+	 *
+	 * @return waiting
+	 */
+	protected int getWaiting(){
+		return waiting;
+	}
+
+	/**
+	 * Gets the number of epochs between checkpoints
+	 *
+	 * @return interval
+	 */
+	public int getInterval(){
+		return interval;
+	}
+}
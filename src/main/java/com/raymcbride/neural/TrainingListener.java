@@ -0,0 +1,20 @@
+package com.raymcbride.neural;
+
+/**
+ * The TrainingListener interface receives the <code>Telemetry</code> of each training epoch.
+ * A listener may be shared by every network of a sweep, so it must be thread safe.
+ *
+ * @see Telemetry
+ *
+ * @author Ray McBride
+ */
+public interface TrainingListener{
+
+	/**
+	 * Called at the end of each training epoch. The telemetry is reused for the next epoch, so
+	 * it is only valid during the call.
+	 *
+	 * @param telemetry The telemetry of the epoch
+	 */
+	public void epochCompleted(Telemetry telemetry);
+}
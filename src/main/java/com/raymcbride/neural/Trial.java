@@ -0,0 +1,145 @@
+package com.raymcbride.neural;
+
+/**
+ * The Trial class records the progress of one <code>Configuration</code> through a
+ * successive halving sweep: the network being trained, the number of epochs it has been
+ * trained for, the last rung it reached and its errors. It also records the errors of a
+ * network trained by a worker of a <code>WorkQueue</code>.
+ *
+ * @see Sweep
+ * @see Leaderboard
+ *
+ * @author Ray McBride
+ */
+public class Trial{
+
+	private Configuration configuration;
+	private FlatNetwork network;
+	private int epochs;
+	private int rung;
+	private double validationError;
+	private double testError;
+	private Telemetry telemetry;
+
+	/**
+	 * Constructor for the <code>Trial</code>
+	 *
+	 * @param configuration The configuration
+	 */
+	public Trial(Configuration configuration){
+		this(configuration, null);
+	}
+
+	/**
+	 * Constructor for the <code>Trial</code> which records the telemetry of its training
+	 *
+	 * @param configuration The configuration
+	 * @param telemetry The telemetry, or null to record nothing
+	 */
+	public Trial(Configuration configuration, Telemetry telemetry){
+		this.configuration = configuration;
+		this.telemetry = telemetry;
+		validationError = Double.NaN;
+		testError = Double.NaN;
+	}
+
+	/**
+	 * This constructor for the <code>Trial</code> records the errors of a network trained
+	 * elsewhere, such as by a worker of a <code>WorkQueue</code>
+	 *
+	 * @param configuration The configuration
+	 * @param epochs The number of epochs the network was trained for
+	 * @param validationError The mean error on the validating data
+	 * @param testError The mean error on the testing data
+	 */
+	public Trial(Configuration configuration, int epochs, double validationError, double testError){
+		this(configuration, null);
+		this.epochs = epochs;
+		this.validationError = validationError;
+		this.testError = testError;
+	}
+
+	/**
+	 * Trains the network on to a number of epochs, creating it first if necessary, and scores
+	 * it on the validating data
+	 *
+	 * @param trainingData The training data
+	 * @param validatingData The validating data
+	 * @param budget The number of epochs to train to, limited to the configuration's epochs
+	 * @param rung The rung of the sweep
+	 */
+	protected void train(double[] trainingData, double[] validatingData, int budget, int rung){
+		if(network == null){
+			network = configuration.createNetwork().snapshot();
+			network.setTelemetry(telemetry);
+		}
+		int target = Math.min(budget, configuration.getTotalEpochs());
+		if(target > epochs){
+			network.train(trainingData, target - epochs);
+			epochs = target;
+		}
+		validationError = network.shareWeights().score(validatingData);
+		this.rung = rung;
+	}
+
+	/**
+	 * Scores the network on the testing data
+	 *
+	 * @param testingData The testing data
+	 */
+	protected void test(double[] testingData){
+		testError = network.shareWeights().score(testingData);
+	}
+
+	/**
+	 * Releases the network once the trial has been eliminated
+	 */
+	protected void release(){
+		network = null;
+	}
+
+	/**
+	 * Gets the configuration
+	 *
+	 * @return configuration
+	 */
+	public Configuration getConfiguration(){
+		return configuration;
+	}
+
+	/**
+	 * Gets the number of epochs the network has been trained for
+	 *
+	 * @return epochs
+	 */
+	public int getEpochs(){
+		return epochs;
+	}
+
+	/**
+	 * Gets the last rung the trial reached
+	 *
+	 * @return rung
+	 */
+	public int getRung(){
+		return rung;
+	}
+
+	/**
+	 * Gets the mean error on the validating data at the last rung
+	 *
+	 * @return validationError, or NaN if it has not been trained
+	 */
+	public double getValidationError(){
+		return validationError;
+	}
+
+	/**
+	 * Gets the mean error on the testing data
+	 *
+	 * @return testError, or NaN if it did not reach the last rung
+	 */
+	public double getTestError(){
+		return testError;
+	}
+}
@@ -0,0 +1,88 @@
+package com.raymcbride.neural;
+
+import jdk.incubator.vector.*;
+
+/**
+ * The VectorKernel class runs the dense loops of the flat engine several weights at a time,
+ * using the widest <code>DoubleVector</code> the processor supports, and finishes the last
+ * few weights of each row one at a time. It needs Java 16 or later with the
+ * <code>jdk.incubator.vector</code> module, so it is left out of the build on older JDKs and
+ * is only loaded through <code>Kernel.VECTOR</code>.
+ *
+ * @see Kernel
+ *
+ * @author Ray McBride
+ */
+class VectorKernel extends Kernel{
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Adds one weighted row of weights to a set of summations
+	 *
+	 * @param value The value the row is weighted by
+	 * @param weights The weights
+	 * @param row The offset of the row of weights
+	 * @param sums The summations
+	 */
+	public void addRow(double value, double[] weights, int row, double[] sums){
+		int bound = SPECIES.loopBound(sums.length);
+		DoubleVector values = DoubleVector.broadcast(SPECIES, value);
+		int j = 0;
+		for(; j < bound; j += SPECIES.length()){
+			DoubleVector products = values.mul(DoubleVector.fromArray(SPECIES, weights, row + j));
+			DoubleVector.fromArray(SPECIES, sums, j).add(products).intoArray(sums, j);
+		}
+		for(; j < sums.length; j++)
+			sums[j] += value * weights[row + j];
+	}
+
+	/**
+	 * Calculates the weight changes of one row of weights
+	 *
+	 * @param value The output value feeding the row
+	 * @param rates The learning rate times the error term
+	 * @param momentum The momentum
+	 * @param changes The weight changes
+	 * @param row The offset of the row of weight changes
+	 */
+	public void calculateRowChange(double value, double[] rates, double momentum, double[] changes, int row){
+		int bound = SPECIES.loopBound(rates.length);
+		DoubleVector values = DoubleVector.broadcast(SPECIES, value);
+		DoubleVector momenta = DoubleVector.broadcast(SPECIES, momentum);
+		int j = 0;
+		for(; j < bound; j += SPECIES.length()){
+			DoubleVector deltas = DoubleVector.fromArray(SPECIES, rates, j).mul(values);
+			DoubleVector previous = momenta.mul(DoubleVector.fromArray(SPECIES, changes, row + j));
+			deltas.add(previous).intoArray(changes, row + j);
+		}
+		for(; j < rates.length; j++)
+			changes[row + j] = (rates[j] * value) + (momentum * changes[row + j]);
+	}
+
+	/**
+	 * Adds the weight changes to the weights
+	 *
+	 * @param weights The weights
+	 * @param changes The weight changes
+	 */
+	public void adjustWeights(double[] weights, double[] changes){
+		int bound = SPECIES.loopBound(weights.length);
+		int k = 0;
+		for(; k < bound; k += SPECIES.length()){
+			DoubleVector current = DoubleVector.fromArray(SPECIES, weights, k);
+			current.add(DoubleVector.fromArray(SPECIES, changes, k)).intoArray(weights, k);
+		}
+		for(; k < weights.length; k++)
+			weights[k] = weights[k] + changes[k];
+	}
+
+	/**
+	 * Gets the name of the kernel
+	 *
+	 * @return VECTOR
+	 */
+	public String getName(){
+		return "VECTOR";
+	}
+}
@@ -0,0 +1,423 @@
+package com.raymcbride.neural;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+/**
+ * The WorkQueue class shares the configurations of a sweep between several processes
+ * through a directory, which may be on a file system shared by several machines. A
+ * coordinator publishes each configuration as a task file in <code>pending</code>, and
+ * workers claim tasks by renaming them into <code>claimed</code>. The rename is atomic, so
+ * each task is claimed by exactly one worker. A worker writes the errors of the network at
+ * each epoch count to <code>results</code> and moves the task to <code>done</code>.
+ *
+ * A worker touches the tasks it holds every few seconds. A task which has not been touched
+ * for longer than a timeout is taken to belong to a worker which has died, and
+ * <code>requeueStale</code> returns it to <code>pending</code> for another worker to claim.
+ * Every file is written to a temporary file and renamed into place, so a crash never leaves
+ * a partly written task or result.
+ *
+ * @see Sweep
+ *
+ * @author Ray McBride
+ */
+public class WorkQueue{
+
+	private static final String TASK = ".task";
+	private static final String RESULT = ".result";
+
+	private Path pending;
+	private Path claimed;
+	private Path done;
+	private Path results;
+	private Set<Path> held;
+
+	/**
+	 * Constructor for the <code>WorkQueue</code>, which creates the queue's directories if
+	 * needed
+	 *
+	 * @param location The directory of the queue
+	 *
+	 * @throws IOException if the directories cannot be created
+	 */
+	public WorkQueue(String location) throws IOException{
+		Path directory = Paths.get(location);
+		pending = Files.createDirectories(directory.resolve("pending"));
+		claimed = Files.createDirectories(directory.resolve("claimed"));
+		done = Files.createDirectories(directory.resolve("done"));
+		results = Files.createDirectories(directory.resolve("results"));
+		held = new HashSet<Path>();
+	}
+
+	/**
+	 * Publishes configurations as tasks, in order. A configuration whose id is already in the
+	 * queue is skipped, so a coordinator can be restarted.
+	 *
+	 * @param configurations The configurations, in the order they should be claimed
+	 *
+	 * @return the number of tasks published
+	 *
+	 * @throws IOException if a task cannot be written
+	 */
+	public int publish(List<Configuration> configurations) throws IOException{
+		Set<String> known = new HashSet<String>();
+		int order = 0;
+		for(Path directory : new Path[]{pending, claimed, done}){
+			for(String name : list(directory)){
+				known.add(getFileID(name));
+				order = Math.max(order, Integer.parseInt(name.substring(0, name.indexOf('_'))) + 1);
+			}
+		}
+		int published = 0;
+		for(Configuration configuration : configurations){
+			if(known.add(configuration.getFileID())){
+				String name = String.format("%08d_%s%s", order++, configuration.getFileID(), TASK);
+				write(pending.resolve(name), toProperties(configuration));
+				published++;
+			}
+		}
+		return published;
+	}
+
+	/**
+	 * Claims the first pending task. The task is touched before it is renamed, since a rename
+	 * keeps the time it was last modified, so <code>requeueStale</code> never finds a task which
+	 * has just been claimed to be stale. A task which has gone by the time it is read has been
+	 * returned to the queue, and is not claimed.
+	 *
+	 * @return the configuration of the task, or null if there are no pending tasks
+	 *
+	 * @throws IOException if the queue cannot be read
+	 */
+	public Configuration claim() throws IOException{
+		for(String name : list(pending)){
+			Path source = pending.resolve(name);
+			Path target = claimed.resolve(name);
+			try{
+				Files.setLastModifiedTime(source, FileTime.fromMillis(System.currentTimeMillis()));
+				Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(NoSuchFileException e){
+				continue;
+			}
+			catch(FileAlreadyExistsException e){
+				continue;
+			}
+			synchronized(held){
+				held.add(target);
+			}
+			try{
+				return toConfiguration(read(target), target);
+			}
+			catch(NoSuchFileException e){
+				synchronized(held){
+					held.remove(target);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Posts the results of a claimed task and moves it to <code>done</code>
+	 *
+	 * @param configuration The configuration of the task
+	 * @param trials The errors of the network at each of the configuration's epoch counts
+	 *
+	 * @throws IOException if the result cannot be written
+	 */
+	public void complete(Configuration configuration, Trial[] trials) throws IOException{
+		Properties properties = toProperties(configuration);
+		StringBuilder validationErrors = new StringBuilder();
+		StringBuilder testErrors = new StringBuilder();
+		for(int i = 0; i < trials.length; i++){
+			validationErrors.append(i == 0 ? "" : ",").append(trials[i].getValidationError());
+			testErrors.append(i == 0 ? "" : ",").append(trials[i].getTestError());
+		}
+		properties.setProperty("validationErrors", validationErrors.toString());
+		properties.setProperty("testErrors", testErrors.toString());
+		write(results.resolve(configuration.getFileID() + RESULT), properties);
+		Path task = find(claimed, configuration.getFileID());
+		if(task != null){
+			synchronized(held){
+				held.remove(task);
+			}
+			try{
+				Files.move(task, done.resolve(task.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+				return;
+			}
+			catch(NoSuchFileException e){
+			}
+		}
+		task = find(pending, configuration.getFileID());
+		if(task != null)
+			Files.move(task, done.resolve(task.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns a claimed task which could not be completed to <code>pending</code>
+	 *
+	 * @param configuration The configuration of the task
+	 *
+	 * @throws IOException if the task cannot be moved
+	 */
+	public void release(Configuration configuration) throws IOException{
+		Path task = find(claimed, configuration.getFileID());
+		if(task == null)
+			return;
+		synchronized(held){
+			held.remove(task);
+		}
+		try{
+			Files.move(task, pending.resolve(task.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(NoSuchFileException e){
+		}
+	}
+
+	/**
+	 * Touches the tasks claimed by this process, to show that they are still being worked on
+	 */
+	public void heartbeat(){
+		FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+		synchronized(held){
+			for(Path task : held){
+				try{
+					Files.setLastModifiedTime(task, now);
+				}
+				catch(IOException e){
+					System.out.println(e.toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns claimed tasks which have not been touched for longer than a timeout to
+	 * <code>pending</code>
+	 *
+	 * @param timeout The time in milliseconds after which a claimed task is stale
+	 *
+	 * @return the number of tasks returned
+	 *
+	 * @throws IOException if the queue cannot be read
+	 */
+	public int requeueStale(long timeout) throws IOException{
+		long cutoff = System.currentTimeMillis() - timeout;
+		int requeued = 0;
+		for(String name : list(claimed)){
+			try{
+				if(Files.getLastModifiedTime(claimed.resolve(name)).toMillis() < cutoff){
+					Files.move(claimed.resolve(name), pending.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+					requeued++;
+				}
+			}
+			catch(NoSuchFileException e){
+			}
+		}
+		return requeued;
+	}
+
+	/**
+	 * Gets the number of tasks waiting to be claimed
+	 *
+	 * @return the number of pending tasks
+	 *
+	 * @throws IOException if the queue cannot be read
+	 */
+	public int getPending() throws IOException{
+		return list(pending).size();
+	}
+
+	/**
+	 * Gets the number of tasks being worked on
+	 *
+	 * @return the number of claimed tasks
+	 *
+	 * @throws IOException if the queue cannot be read
+	 */
+	public int getClaimed() throws IOException{
+		return list(claimed).size();
+	}
+
+	/**
+	 * Gets the number of completed tasks
+	 *
+	 * @return the number of done tasks
+	 *
+	 * @throws IOException if the queue cannot be read
+	 */
+	public int getDone() throws IOException{
+		return list(done).size();
+	}
+
+	/**
+	 * Gets whether every task has been completed
+	 *
+	 * @return true if no tasks are pending or claimed
+	 *
+	 * @throws IOException if the queue cannot be read
+	 */
+	public boolean isFinished() throws IOException{
+		return getPending() == 0 && getClaimed() == 0;
+	}
+
+	/**
+	 * Gets the results posted so far, with a trial for each epoch count of each configuration
+	 *
+	 * @return the trials
+	 *
+	 * @throws IOException if a result cannot be read
+	 */
+	public List<Trial> getResults() throws IOException{
+		List<Trial> trials = new ArrayList<Trial>();
+		for(String name : list(results, RESULT)){
+			Properties properties = read(results.resolve(name));
+			Configuration configuration = toConfiguration(properties, results.resolve(name));
+			double[] validationErrors = parseDoubles(properties.getProperty("validationErrors"));
+			double[] testErrors = parseDoubles(properties.getProperty("testErrors"));
+			for(int i = 0; i < configuration.getEpochs().length; i++)
+				trials.add(new Trial(configuration, configuration.getEpochs()[i], validationErrors[i], testErrors[i]));
+		}
+		return trials;
+	}
+
+	/**
+	 * Lists the names of the task files in a directory, in order
+	 *
+	 * @return the names
+	 */
+	private static List<String> list(Path directory) throws IOException{
+		return list(directory, TASK);
+	}
+
+	/**
+	 * Lists the names of the files with a suffix in a directory, in order. Temporary files are
+	 * left out.
+	 *
+	 * @return the names
+	 */
+	private static List<String> list(Path directory, String suffix) throws IOException{
+		List<String> names = new ArrayList<String>();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)){
+			for(Path path : stream)
+				names.add(path.getFileName().toString());
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * Finds the task file of a configuration in a directory
+	 *
+	 * @return the task file, or null if there is none
+	 */
+	private static Path find(Path directory, String fileID) throws IOException{
+		for(String name : list(directory)){
+			if(getFileID(name).equals(fileID))
+				return directory.resolve(name);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the configuration id from the name of a task file
+	 *
+	 * @return the id
+	 */
+	private static String getFileID(String name){
+		return name.substring(name.indexOf('_') + 1, name.length() - TASK.length());
+	}
+
+	/**
+	 * Writes properties to a temporary file and renames it into place
+	 */
+	private static void write(Path path, Properties properties) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		properties.store(bytes, null);
+		AtomicFile.write(path, ByteBuffer.wrap(bytes.toByteArray()));
+	}
+
+	/**
+	 * Reads properties from a file
+	 *
+	 * @return the properties
+	 */
+	private static Properties read(Path path) throws IOException{
+		Properties properties = new Properties();
+		try(InputStream inputStream = Files.newInputStream(path)){
+			properties.load(inputStream);
+		}
+		return properties;
+	}
+
+	/**
+	 * Gets the properties which describe a configuration
+	 *
+	 * @return the properties
+	 */
+	private static Properties toProperties(Configuration configuration){
+		Properties properties = new Properties();
+		properties.setProperty("type", configuration.getType());
+		properties.setProperty("inputs", Integer.toString(configuration.getInputs()));
+		properties.setProperty("hiddens", Integer.toString(configuration.getHiddens()));
+		properties.setProperty("delays", Integer.toString(configuration.getDelays()));
+		properties.setProperty("memoryDepth", Double.toString(configuration.getMemoryDepth()));
+		properties.setProperty("slope", Integer.toString(configuration.getSlope()));
+		properties.setProperty("learningRate", Double.toString(configuration.getLearningRate()));
+		properties.setProperty("momentum", Double.toString(configuration.getMomentum()));
+		StringBuilder epochs = new StringBuilder();
+		for(int i = 0; i < configuration.getEpochs().length; i++)
+			epochs.append(i == 0 ? "" : ",").append(configuration.getEpochs()[i]);
+		properties.setProperty("epochs", epochs.toString());
+		properties.setProperty("fileID", configuration.getFileID());
+		properties.setProperty("seed", Long.toString(configuration.getSeed()));
+		properties.setProperty("activation", configuration.getActivation().getName());
+		properties.setProperty("kernel", configuration.getKernel().getName());
+		properties.setProperty("initialisation", configuration.getInitialisation().getName());
+		return properties;
+	}
+
+	/**
+	 * Creates the configuration described by properties
+	 *
+	 * @return the configuration
+	 *
+	 * @throws IOException if the properties do not describe a configuration
+	 */
+	private static Configuration toConfiguration(Properties properties, Path path) throws IOException{
+		try{
+			double[] values = parseDoubles(properties.getProperty("epochs"));
+			int[] epochs = new int[values.length];
+			for(int i = 0; i < values.length; i++)
+				epochs[i] = (int)values[i];
+			Configuration configuration = new Configuration(properties.getProperty("type"), Integer.parseInt(properties.getProperty("inputs")), Integer.parseInt(properties.getProperty("hiddens")), Integer.parseInt(properties.getProperty("delays")), Double.parseDouble(properties.getProperty("memoryDepth")), Integer.parseInt(properties.getProperty("slope")), Double.parseDouble(properties.getProperty("learningRate")), Double.parseDouble(properties.getProperty("momentum")), epochs, properties.getProperty("fileID"), Long.parseLong(properties.getProperty("seed")));
+			configuration.setActivation(Activation.forName(properties.getProperty("activation")));
+			configuration.setKernel(Kernel.forName(properties.getProperty("kernel")));
+			configuration.setInitialisation(Initialisation.forName(properties.getProperty("initialisation")));
+			return configuration;
+		}
+		catch(NullPointerException e){
+			throw new IOException(path + " is not a task");
+		}
+		catch(IllegalArgumentException e){
+			throw new IOException(path + " is not a task: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Parses a comma separated list of numbers
+	 *
+	 * @return the numbers
+	 */
+	private static double[] parseDoubles(String list){
+		String[] fields = list.split(",");
+		double[] values = new double[fields.length];
+		for(int i = 0; i < fields.length; i++)
+			values[i] = Double.parseDouble(fields[i]);
+		return values;
+	}
+}
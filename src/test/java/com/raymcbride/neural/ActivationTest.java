@@ -0,0 +1,103 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests that each activation stays within its documented error of the exact sigmoid
+ *
+ * @see Activation
+ *
+ * @author Ray McBride
+ */
+public class ActivationTest{
+
+	private static final Activation[] ACTIVATIONS = {Activation.EXACT, Activation.TABLE, Activation.RATIONAL};
+
+	/**
+	 * Calculates the exact sigmoid
+	 *
+	 * @param x The value
+	 *
+	 * @return the sigmoid
+	 */
+	private static double sigmoid(double x){
+		return 1/(1 + Math.exp(-x));
+	}
+
+	/**
+	 * Checks that an activation is within its maximum error of the exact sigmoid at a value,
+	 * and between 0 and 1
+	 *
+	 * @param activation The activation
+	 * @param x The value
+	 */
+	private static void assertBounded(Activation activation, double x){
+		double y = activation.sigmoid(x);
+		assertEquals(activation.getName() + " at " + x, sigmoid(x), y, activation.getMaximumError());
+		assertTrue(activation.getName() + " at " + x, y >= 0 && y <= 1);
+	}
+
+	/**
+	 * Tests that each activation is within its maximum error of the exact sigmoid over a fine
+	 * grid, which is offset so that it falls between the points of the lookup table
+	 */
+	@Test
+	public void staysWithinMaximumError(){
+		for(int a = 0; a < ACTIVATIONS.length; a++){
+			for(double x = -40; x <= 40; x += 0.000731)
+				assertBounded(ACTIVATIONS[a], x);
+		}
+	}
+
+	/**
+	 * Tests the activations at the ends of the range of doubles and at the edges of the lookup
+	 * table
+	 */
+	@Test
+	public void handlesExtremes(){
+		double[] values = {0, -0.0, 16, -16, Math.nextUp(16), Math.nextDown(-16), 1e300, -1e300, Double.MAX_VALUE, -Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		for(int a = 0; a < ACTIVATIONS.length; a++){
+			for(int i = 0; i < values.length; i++)
+				assertBounded(ACTIVATIONS[a], values[i]);
+		}
+	}
+
+	/**
+	 * Tests that a value which is not a number gives a result which is not a number
+	 */
+	@Test
+	public void propagatesNaN(){
+		for(int a = 0; a < ACTIVATIONS.length; a++)
+			assertTrue(ACTIVATIONS[a].getName(), Double.isNaN(ACTIVATIONS[a].sigmoid(Double.NaN)));
+	}
+
+	/**
+	 * Tests that the lookup table never decreases, so that it keeps the ordering of its inputs
+	 */
+	@Test
+	public void tableIsMonotonic(){
+		double previous = 0;
+		for(double x = -17; x <= 17; x += 0.001){
+			double y = Activation.TABLE.sigmoid(x);
+			assertTrue("at " + x, y >= previous);
+			previous = y;
+		}
+	}
+
+	/**
+	 * Tests that each activation is found by its name, and that an unknown name is refused
+	 */
+	@Test
+	public void findsByName(){
+		for(int a = 0; a < ACTIVATIONS.length; a++)
+			assertSame(ACTIVATIONS[a], Activation.forName(ACTIVATIONS[a].getName()));
+		try{
+			Activation.forName("FAST");
+			fail("An unknown activation was found");
+		}
+		catch(IllegalArgumentException e){
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.zip.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that the asynchronous log files hold every line in order, and that a file which
+ * cannot be written neither blocks its writer nor stops the other files
+ *
+ * @see AsyncOutputFile
+ *
+ * @author Ray McBride
+ */
+public class AsyncOutputFileTest{
+
+	private static final int LINES = 100000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Writes many more lines than the ring buffer holds
+	 *
+	 * @param file The file
+	 */
+	private static void writeLines(AsyncOutputFile file){
+		for(int i = 0; i < LINES; i++)
+			file.writeToFile("sample" + (i % 10), i * 0.25);
+		file.closeFile();
+	}
+
+	/**
+	 * Checks that a file holds the lines written by <code>writeLines</code>
+	 *
+	 * @param input The contents of the file
+	 */
+	private static void assertLines(InputStream input) throws IOException{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII));
+		try{
+			for(int i = 0; i < LINES; i++)
+				assertEquals("sample" + (i % 10) + "," + (i * 0.25), reader.readLine());
+			assertNull(reader.readLine());
+		}
+		finally{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Tests that every line is written in order
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	@Test(timeout = 30000)
+	public void writesEveryLine() throws IOException{
+		File file = folder.newFile("lines.csv");
+		writeLines(new AsyncOutputFile(file.getPath()));
+		assertLines(new FileInputStream(file));
+	}
+
+	/**
+	 * Tests that a compressed file holds every line in order
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	@Test(timeout = 30000)
+	public void compresses() throws IOException{
+		File file = folder.newFile("lines.csv.gz");
+		writeLines(new AsyncOutputFile(file.getPath(), true));
+		assertLines(new GZIPInputStream(new FileInputStream(file)));
+	}
+
+	/**
+	 * Tests that several threads can each write their own file at once
+	 *
+	 * @throws Exception if a file cannot be written or read
+	 */
+	@Test(timeout = 60000)
+	public void writesFilesConcurrently() throws Exception{
+		final File[] files = new File[4];
+		Thread[] threads = new Thread[files.length];
+		for(int i = 0; i < files.length; i++){
+			files[i] = folder.newFile("lines" + i + ".csv");
+			final AsyncOutputFile file = new AsyncOutputFile(files[i].getPath());
+			threads[i] = new Thread(){
+				public void run(){
+					writeLines(file);
+				}
+			};
+			threads[i].start();
+		}
+		for(int i = 0; i < files.length; i++)
+			threads[i].join();
+		for(int i = 0; i < files.length; i++)
+			assertLines(new FileInputStream(files[i]));
+	}
+
+	/**
+	 * Tests that a file which cannot be opened drops its lines without blocking its writer,
+	 * and that a file written at the same time is unaffected
+	 *
+	 * @throws IOException if the good file cannot be read
+	 */
+	@Test(timeout = 30000)
+	public void dropsLinesOfFailedFiles() throws IOException{
+		File missing = new File(folder.getRoot(), "missing" + File.separator + "lines.csv");
+		AsyncOutputFile bad = new AsyncOutputFile(missing.getPath());
+		File file = folder.newFile("lines.csv");
+		AsyncOutputFile good = new AsyncOutputFile(file.getPath());
+		for(int i = 0; i < LINES; i++){
+			bad.writeToFile("sample" + (i % 10), i * 0.25);
+			good.writeToFile("sample" + (i % 10), i * 0.25);
+		}
+		bad.closeFile();
+		good.closeFile();
+		assertFalse(missing.exists());
+		assertLines(new FileInputStream(file));
+	}
+}
@@ -0,0 +1,121 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Tests that the running sums of a delay line match the sums of its values, and that they
+ * are summed again exactly each time the buffer wraps
+ *
+ * @see DelayLine
+ *
+ * @author Ray McBride
+ */
+public class DelayLineTest{
+
+	/**
+	 * Sums the values of a line, newest first
+	 *
+	 * @param line The line
+	 *
+	 * @return the sum
+	 */
+	private static double sum(DelayLine line){
+		double sum = 0;
+		for(int i = 0; i < line.size(); i++)
+			sum += line.get(i);
+		return sum;
+	}
+
+	/**
+	 * Sums <code>v(1 - v)</code> over the values of a line, newest first
+	 *
+	 * @param line The line
+	 *
+	 * @return the sum
+	 */
+	private static double derivativeSum(DelayLine line){
+		double sum = 0;
+		for(int i = 0; i < line.size(); i++)
+			sum += line.get(i) * (1 - line.get(i));
+		return sum;
+	}
+
+	/**
+	 * Tests that a new line holds zeros
+	 */
+	@Test
+	public void startsEmpty(){
+		DelayLine line = new DelayLine(4);
+		assertEquals(4, line.size());
+		for(int i = 0; i < 4; i++)
+			assertEquals(0, line.get(i), 0);
+		assertEquals(0, line.getSum(), 0);
+		assertEquals(0, line.getDerivativeSum(), 0);
+	}
+
+	/**
+	 * Tests that the values are returned newest first and the oldest is dropped
+	 */
+	@Test
+	public void keepsNewestValues(){
+		DelayLine line = new DelayLine(3);
+		for(int i = 1; i <= 5; i++){
+			double sum = line.add(i);
+			assertEquals(line.getSum(), sum, 0);
+		}
+		assertEquals(5, line.get(0), 0);
+		assertEquals(4, line.get(1), 0);
+		assertEquals(3, line.get(2), 0);
+		assertEquals(12, line.getSum(), 0);
+		assertEquals(4, line.getMean(), 0);
+	}
+
+	/**
+	 * Tests that the running sums stay close to the sums of the values over a long run, and
+	 * equal them exactly each time the newest value returns to the start of the buffer
+	 */
+	@Test
+	public void matchesRecomputedSums(){
+		Random random = new Random(1);
+		int[] sizes = {1, 2, 5, 17};
+		for(int s = 0; s < sizes.length; s++){
+			DelayLine line = new DelayLine(sizes[s]);
+			for(int i = 1; i <= 100000; i++){
+				line.add(random.nextDouble());
+				assertEquals(sum(line), line.getSum(), 1e-12);
+				assertEquals(derivativeSum(line), line.getDerivativeSum(), 1e-12);
+				if(i % sizes[s] == 0){
+					assertEquals(0, line.getHead());
+					assertEquals(sum(line), line.getSum(), 0);
+					assertEquals(derivativeSum(line), line.getDerivativeSum(), 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that a restored line has the values, sum and position it was given, and sums its
+	 * sigmoid derivatives from its values
+	 */
+	@Test
+	public void restoresState(){
+		DelayLine line = new DelayLine(3);
+		for(int i = 0; i < 4; i++)
+			line.add(0.1 * (i + 1));
+		DelayLine restored = new DelayLine(3);
+		double[] values = new double[5];
+		System.arraycopy(line.getValues(), 0, values, 2, 3);
+		restored.restore(values, 2, line.getHead(), line.getSum());
+		for(int i = 0; i < 3; i++)
+			assertEquals(line.get(i), restored.get(i), 0);
+		assertEquals(line.getSum(), restored.getSum(), 0);
+		assertEquals(derivativeSum(line), restored.getDerivativeSum(), 0);
+		restored.add(0.5);
+		line.add(0.5);
+		assertEquals(line.getSum(), restored.getSum(), 0);
+		assertEquals(line.getDerivativeSum(), restored.getDerivativeSum(), 1e-12);
+	}
+}
@@ -0,0 +1,290 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.nio.*;
+import java.util.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that the flat engine trains and tests each type of network exactly as stepping
+ * through its graph of Neurons and Synapses does
+ *
+ * @see FlatNetwork
+ *
+ * @author Ray McBride
+ */
+public class FlatNetworkTest{
+
+	private static final int EPOCHS = 3;
+
+	/**
+	 * The weights of an MLP, TDNN and RNN after training for three epochs from the weights set
+	 * by <code>setWeights</code>, as trained by the Neuron and Synapse graph of the original
+	 * engine. Each holds the weights from the first Input Neuron, from the Bias Neuron to the
+	 * Hidden Neurons, from the Hidden Neurons to the Output Neuron and from the Bias Neuron to
+	 * the Output Neuron.
+	 */
+	private static final double[] BASELINE_MLP = {
+		0.25577054320971604, -0.1691963591601462, -0.3374262496861883, -0.1271922813260433, 0.4645684912312871, -0.5082764461265592,
+		-0.27031318463921583, -0.296091459920471, 0.07661858439829183, -0.1737347969549783, -0.24912316140920263, -0.2519787859788726,
+		0.37846717408643754, -0.5724930241600913, -0.2607139332766902, 0.8175191398588456, -0.006294751314849276, -0.23958385267856802,
+		0.18341469760812246};
+	private static final double[] BASELINE_TDNN = {
+		0.2268173770676621, -0.08166269732368633, -0.2903225171475061, -0.17242134164470785, 0.4662338360326745, -0.49418968881664466,
+		-0.3121866499864266, -0.3197872706255169, 0.056797633057472645, -0.267379297643521, -0.2703218547057805, -0.2640549821695832,
+		0.18455719293432937, -0.4587559929105512, -0.24158701351636536, 0.5382766017542382, -0.06429300473437799, 0.025033559867322266,
+		0.20715453980440318};
+	private static final double[] BASELINE_RNN = {
+		0.23325568733142105, -0.12664844948080564, -0.3102816057002216, -0.1684848003951545, 0.46538531685986884, -0.4938858019500686,
+		-0.30198932925564287, -0.2846094421227222, 0.0710843989744336, -0.23308902392581096, -0.2642619700795782, -0.2500213895114576,
+		0.33571379338332275, -0.40325516741995876, -0.14643926483374703, 0.7197348401953629, 0.017630564641644298, -0.027416777991361874,
+		0.15790616165407378};
+
+	private static double[] data;
+
+	/**
+	 * Loads and scales the training data
+	 */
+	@BeforeClass
+	public static void loadData(){
+		data = new DataProcessor(new SeriesReader("data/Train500.xml", "indexValue").getValues()).scale();
+	}
+
+	/**
+	 * Creates a network of a given type
+	 *
+	 * @param type The type of network
+	 *
+	 * @return the network
+	 */
+	static Network createNetwork(String type){
+		return new Configuration(type, 5, 6, 3, 0.5, 1, 0.3, 0.5, new int[]{EPOCHS}, "test_", 1L).createNetwork();
+	}
+
+	/**
+	 * Packs the weights, weight changes and delays or context of a network
+	 *
+	 * @param network The network
+	 *
+	 * @return the packed network
+	 */
+	static byte[] pack(FlatNetwork network){
+		ByteBuffer buffer = ByteBuffer.allocate(network.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+		network.write(buffer);
+		return buffer.array();
+	}
+
+	/**
+	 * Sets the weights of a network from a fixed sequence of random numbers, in the order of
+	 * the Input to Hidden Synapses row by row, then each Hidden to Output and Bias to Hidden
+	 * Synapse in turn, then the Bias to Output Synapse
+	 *
+	 * @param network The network
+	 */
+	private static void setWeights(Network network){
+		Random random = new Random(1);
+		for(int i = 0; i < 5; i++){
+			for(int j = 0; j < 6; j++)
+				network.getInputToHidden(i, j).setWeight(random.nextDouble() - 0.5, 0);
+		}
+		for(int j = 0; j < 6; j++){
+			network.getHiddenToOutput(j).setWeight(random.nextDouble() - 0.5, 0);
+			network.getBiasToHidden(j).setWeight(random.nextDouble() - 0.5, 0);
+		}
+		network.getBiasToOutput().setWeight(random.nextDouble() - 0.5, 0);
+	}
+
+	/**
+	 * Trains a network from the weights set by <code>setWeights</code> and checks that it ends
+	 * with the weights the original engine trained
+	 *
+	 * @param type The type of network
+	 * @param expected The weights trained by the original engine
+	 * @param delta The largest difference allowed from each weight
+	 */
+	private void assertTrainsAsBaseline(String type, double[] expected, double delta){
+		Network network = createNetwork(type);
+		setWeights(network);
+		network.train(data);
+		double[] weights = new double[expected.length];
+		for(int j = 0; j < 6; j++){
+			weights[j] = network.getInputToHidden(0, j).getWeight();
+			weights[6 + j] = network.getBiasToHidden(j).getWeight();
+			weights[12 + j] = network.getHiddenToOutput(j).getWeight();
+		}
+		weights[18] = network.getBiasToOutput().getWeight();
+		assertArrayEquals(expected, weights, delta);
+	}
+
+	/**
+	 * Predicts each window of the data with a network, a window at a time and in a batch,
+	 * and checks that the outputs and the state it ends with match those of a snapshot
+	 * stepped through the same windows
+	 *
+	 * @param type The type of network
+	 */
+	private void assertPredictsAsSnapshot(String type){
+		Network network = createNetwork(type);
+		network.train(data);
+		FlatNetwork snapshot = network.snapshot();
+		double[] window = new double[5];
+		for(int i = 0; i < 100; i++){
+			System.arraycopy(data, i, window, 0, window.length);
+			assertEquals(snapshot.predict(window), network.predict(window), 0);
+		}
+		double[] expected = new double[100];
+		double[] actual = new double[100];
+		snapshot.predictBatch(data, 100, 200, expected);
+		network.predictBatch(data, 100, 200, actual);
+		assertArrayEquals(expected, actual, 0);
+		assertArrayEquals(pack(snapshot), pack(network.snapshot()));
+		network.train(data);
+		snapshot.train(data);
+		snapshot.predictBatch(data, 0, 100, expected);
+		network.predictBatch(data, 0, 100, actual);
+		assertArrayEquals(expected, actual, 0);
+	}
+
+	/**
+	 * Trains a graph by stepping it through every window, and the flat engine compiled from
+	 * the same graph, and checks that they end with the same weights and state
+	 *
+	 * @param type The type of network
+	 */
+	private void assertTrainsAsGraph(String type){
+		Network graph = createNetwork(type);
+		FlatNetwork flat = graph.snapshot();
+		graph.setInputData(data);
+		for(int epoch = 0; epoch < EPOCHS; epoch++){
+			for(int i = 0; i < data.length; i++){
+				graph.setNextInput(i);
+				graph.propagate();
+				graph.calculateError();
+				graph.backPropagate();
+			}
+		}
+		flat.train(data, EPOCHS);
+		assertArrayEquals(pack(graph.snapshot()), pack(flat));
+	}
+
+	/**
+	 * Checks that a trained network has the same error on every window when tested by the flat
+	 * engine as when its graph is stepped through them
+	 *
+	 * @param type The type of network
+	 */
+	private void assertTestsAsGraph(String type){
+		Network graph = createNetwork(type);
+		graph.train(data);
+		FlatNetwork flat = graph.snapshot().shareWeights();
+		flat.setWritingDetails(false);
+		double[] errors = flat.test(data, new Evaluation(true)).getErrors();
+		graph.setInputData(data);
+		for(int i = 0; i < data.length; i++){
+			graph.setNextInput(i);
+			graph.propagate();
+			assertEquals(graph.calculateError(), errors[i], 0);
+		}
+	}
+
+	/**
+	 * Tests that an MLP trains as its graph does
+	 */
+	@Test
+	public void trainsMLPAsGraph(){
+		assertTrainsAsGraph(Configuration.MLP);
+	}
+
+	/**
+	 * Tests that a TDNN trains as its graph does
+	 */
+	@Test
+	public void trainsTDNNAsGraph(){
+		assertTrainsAsGraph(Configuration.TDNN);
+	}
+
+	/**
+	 * Tests that an RNN trains as its graph does
+	 */
+	@Test
+	public void trainsRNNAsGraph(){
+		assertTrainsAsGraph(Configuration.RNN);
+	}
+
+	/**
+	 * Tests that an MLP trains to the weights the original engine trained
+	 */
+	@Test
+	public void trainsMLPAsBaseline(){
+		assertTrainsAsBaseline(Configuration.MLP, BASELINE_MLP, 0);
+	}
+
+	/**
+	 * Tests that a TDNN trains to the weights the original engine trained, to within rounding,
+	 * since its delay lines keep running sums rather than adding up every delay each time
+	 */
+	@Test
+	public void trainsTDNNAsBaseline(){
+		assertTrainsAsBaseline(Configuration.TDNN, BASELINE_TDNN, 1e-12);
+	}
+
+	/**
+	 * Tests that an RNN trains to the weights the original engine trained
+	 */
+	@Test
+	public void trainsRNNAsBaseline(){
+		assertTrainsAsBaseline(Configuration.RNN, BASELINE_RNN, 0);
+	}
+
+	/**
+	 * Tests that an MLP predicts as its snapshot does, before and after training again
+	 */
+	@Test
+	public void predictsMLPAsSnapshot(){
+		assertPredictsAsSnapshot(Configuration.MLP);
+	}
+
+	/**
+	 * Tests that a TDNN predicts as its snapshot does, carrying its delays from one
+	 * prediction to the next
+	 */
+	@Test
+	public void predictsTDNNAsSnapshot(){
+		assertPredictsAsSnapshot(Configuration.TDNN);
+	}
+
+	/**
+	 * Tests that an RNN predicts as its snapshot does, carrying its context from one
+	 * prediction to the next
+	 */
+	@Test
+	public void predictsRNNAsSnapshot(){
+		assertPredictsAsSnapshot(Configuration.RNN);
+	}
+
+	/**
+	 * Tests that an MLP is tested as its graph is
+	 */
+	@Test
+	public void testsMLPAsGraph(){
+		assertTestsAsGraph(Configuration.MLP);
+	}
+
+	/**
+	 * Tests that a TDNN is tested as its graph is
+	 */
+	@Test
+	public void testsTDNNAsGraph(){
+		assertTestsAsGraph(Configuration.TDNN);
+	}
+
+	/**
+	 * Tests that an RNN is tested as its graph is
+	 */
+	@Test
+	public void testsRNNAsGraph(){
+		assertTestsAsGraph(Configuration.RNN);
+	}
+}
@@ -0,0 +1,134 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that an inference session forecasts as a replay of the whole series does, and that
+ * its forks and checkpoints carry on from the state they were taken in
+ *
+ * @see InferenceSession
+ *
+ * @author Ray McBride
+ */
+public class InferenceSessionTest{
+
+	private static final String[] TYPES = {Configuration.MLP, Configuration.TDNN, Configuration.RNN};
+
+	private static double[] testingData;
+	private static Model[] models;
+
+	/**
+	 * Trains a network of each type and exports its model
+	 */
+	@BeforeClass
+	public static void train(){
+		DataProcessor processor = new DataProcessor(new SeriesReader("data/Train500.xml", "indexValue").getValues());
+		double[] trainingData = processor.scale();
+		testingData = new SeriesReader("data/Test100.xml", "indexValue").getValues();
+		processor.transform(testingData);
+		models = new Model[TYPES.length];
+		for(int t = 0; t < TYPES.length; t++){
+			Network network = FlatNetworkTest.createNetwork(TYPES[t]);
+			network.train(trainingData);
+			models[t] = network.export();
+		}
+	}
+
+	/**
+	 * Forecasts the whole testing data in one batch
+	 *
+	 * @param model The model
+	 *
+	 * @return the forecast of each window
+	 */
+	private static double[] replay(Model model){
+		int windows = testingData.length - model.getInputs() + 1;
+		double[] forecasts = new double[windows];
+		model.newState().predictBatch(testingData, 0, windows, forecasts);
+		return forecasts;
+	}
+
+	/**
+	 * Advances a session over part of the testing data and checks each forecast against a
+	 * replay of the whole series
+	 *
+	 * @param session The session
+	 * @param from The position of the first observation
+	 * @param expected The forecasts of the replay
+	 * @param inputs The number of inputs of the model
+	 */
+	private static void assertReplays(InferenceSession session, int from, double[] expected, int inputs){
+		for(int i = from; i < testingData.length; i++)
+			assertEquals("observation " + i, expected[i - inputs + 1], session.advance(testingData[i]), 0);
+	}
+
+	/**
+	 * Tests that a session gives no forecast until its window is full, and then the forecasts
+	 * of a replay of the series
+	 */
+	@Test
+	public void matchesReplay(){
+		for(int t = 0; t < TYPES.length; t++){
+			int inputs = models[t].getInputs();
+			InferenceSession session = models[t].newSession();
+			for(int i = 0; i < inputs - 1; i++)
+				assertTrue(Double.isNaN(session.advance(testingData[i])));
+			assertReplays(session, inputs - 1, replay(models[t]), inputs);
+			assertEquals(testingData.length, session.getObservations());
+			assertArrayEquals(Arrays.copyOfRange(testingData, testingData.length - inputs, testingData.length), session.getWindow(), 0);
+		}
+	}
+
+	/**
+	 * Tests that a fork carries on as the session would have, and that advancing it leaves the
+	 * session it was forked from unchanged
+	 */
+	@Test
+	public void forksIndependently(){
+		for(int t = 0; t < TYPES.length; t++){
+			int inputs = models[t].getInputs();
+			double[] expected = replay(models[t]);
+			InferenceSession session = models[t].newSession();
+			session.advance(Arrays.copyOfRange(testingData, 0, 50));
+			InferenceSession fork = session.fork();
+			assertEquals(session.getForecast(), fork.getForecast(), 0);
+			for(int i = 0; i < 10; i++)
+				fork.advance(0.5);
+			assertEquals(50, session.getObservations());
+			assertReplays(session, 50, expected, inputs);
+			fork = models[t].newSession();
+			fork.advance(Arrays.copyOfRange(testingData, 0, 50));
+			assertReplays(fork.fork(), 50, expected, inputs);
+		}
+	}
+
+	/**
+	 * Tests that restoring a checkpoint returns a session to the window, context and forecast
+	 * it had when the checkpoint was taken, however often it is restored
+	 */
+	@Test
+	public void restoresCheckpoints(){
+		for(int t = 0; t < TYPES.length; t++){
+			int inputs = models[t].getInputs();
+			double[] expected = replay(models[t]);
+			InferenceSession session = models[t].newSession();
+			session.advance(Arrays.copyOfRange(testingData, 0, 50));
+			InferenceSession checkpoint = session.checkpoint();
+			double forecast = session.getForecast();
+			for(int r = 0; r < 2; r++){
+				for(int i = 0; i < 10; i++)
+					session.advance(0.5);
+				session.restore(checkpoint);
+				assertEquals(forecast, session.getForecast(), 0);
+				assertEquals(50, session.getObservations());
+				assertArrayEquals(Arrays.copyOfRange(testingData, 50 - inputs, 50), session.getWindow(), 0);
+			}
+			assertReplays(session, 50, expected, inputs);
+			assertEquals(forecast, checkpoint.getForecast(), 0);
+		}
+	}
+}
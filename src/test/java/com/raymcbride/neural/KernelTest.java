@@ -0,0 +1,134 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.util.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the vector kernel gives exactly the same results as the scalar kernel, for
+ * rows of every length around the vector width and for whole training runs
+ *
+ * @see Kernel
+ * @see VectorKernel
+ *
+ * @author Ray McBride
+ */
+public class KernelTest{
+
+	private static final int MAXIMUM_LENGTH = 37;
+
+	private Random random;
+
+	/**
+	 * Skips the tests when the Vector API is not available, and seeds the random values
+	 */
+	@Before
+	public void setUp(){
+		assumeTrue("The Vector API is not available", Kernel.VECTOR != Kernel.SCALAR);
+		random = new Random(1);
+	}
+
+	/**
+	 * Creates an array of random values between -1 and 1
+	 *
+	 * @param length The length of the array
+	 *
+	 * @return the array
+	 */
+	private double[] values(int length){
+		double[] values = new double[length];
+		for(int i = 0; i < length; i++)
+			values[i] = 2 * random.nextDouble() - 1;
+		return values;
+	}
+
+	/**
+	 * Tests that adding a weighted row gives the same sums, at each offset of the row
+	 */
+	@Test
+	public void addsRowsAsScalar(){
+		for(int length = 1; length <= MAXIMUM_LENGTH; length++){
+			double[] weights = values(3 * length);
+			double value = random.nextDouble();
+			for(int row = 0; row <= 2 * length; row += length){
+				double[] scalar = values(length);
+				double[] vector = scalar.clone();
+				Kernel.SCALAR.addRow(value, weights, row, scalar);
+				Kernel.VECTOR.addRow(value, weights, row, vector);
+				assertArrayEquals("length " + length + " row " + row, scalar, vector, 0);
+			}
+		}
+	}
+
+	/**
+	 * Tests that the weight changes of a row are the same, at each offset of the row
+	 */
+	@Test
+	public void calculatesRowChangesAsScalar(){
+		for(int length = 1; length <= MAXIMUM_LENGTH; length++){
+			double[] rates = values(length);
+			double value = random.nextDouble();
+			double[] scalar = values(3 * length);
+			double[] vector = scalar.clone();
+			for(int row = 0; row <= 2 * length; row += length){
+				Kernel.SCALAR.calculateRowChange(value, rates, 0.5, scalar, row);
+				Kernel.VECTOR.calculateRowChange(value, rates, 0.5, vector, row);
+			}
+			assertArrayEquals("length " + length, scalar, vector, 0);
+		}
+	}
+
+	/**
+	 * Tests that the weight adjustments are the same
+	 */
+	@Test
+	public void adjustsWeightsAsScalar(){
+		for(int length = 1; length <= MAXIMUM_LENGTH; length++){
+			double[] changes = values(length);
+			double[] scalar = values(length);
+			double[] vector = scalar.clone();
+			Kernel.SCALAR.adjustWeights(scalar, changes);
+			Kernel.VECTOR.adjustWeights(vector, changes);
+			assertArrayEquals("length " + length, scalar, vector, 0);
+		}
+	}
+
+	/**
+	 * Tests that each type of network trains to exactly the same weights with either kernel
+	 */
+	@Test
+	public void trainsAsScalar(){
+		double[] data = values(120);
+		for(int i = 0; i < data.length; i++)
+			data[i] = (data[i] + 1) / 2;
+		String[] types = {Configuration.MLP, Configuration.TDNN, Configuration.RNN};
+		for(int t = 0; t < types.length; t++){
+			FlatNetwork scalar = FlatNetworkTest.createNetwork(types[t]).snapshot();
+			Network network = FlatNetworkTest.createNetwork(types[t]);
+			network.setKernel(Kernel.VECTOR);
+			FlatNetwork vector = network.snapshot();
+			scalar.train(data, 3);
+			vector.train(data, 3);
+			assertArrayEquals("type " + types[t], FlatNetworkTest.pack(scalar), FlatNetworkTest.pack(vector));
+		}
+	}
+
+	/**
+	 * Tests that the kernels are found by name, and that an unknown name is refused
+	 */
+	@Test
+	public void findsByName(){
+		assertSame(Kernel.SCALAR, Kernel.forName("SCALAR"));
+		assertSame(Kernel.VECTOR, Kernel.forName("VECTOR"));
+		assertEquals("VECTOR", Kernel.VECTOR.getName());
+		try{
+			Kernel.forName("SIMD");
+			fail("An unknown kernel was found");
+		}
+		catch(IllegalArgumentException e){
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests the values of the metrics, and that an evaluation measures them on unscaled values
+ * when it has the data processor
+ *
+ * @see Metric
+ * @see Evaluation
+ *
+ * @author Ray McBride
+ */
+public class MetricTest{
+
+	private static final double[] TARGETS = {2, 4, 3, 6};
+	private static final double[] OUTPUTS = {3, 3, 5, 5};
+
+	/**
+	 * Adds the samples to a metric
+	 *
+	 * @param metric The metric
+	 *
+	 * @return the value of the metric
+	 */
+	private static double measure(Metric metric){
+		metric.reset();
+		for(int i = 0; i < TARGETS.length; i++)
+			metric.add(TARGETS[i], OUTPUTS[i]);
+		return metric.getValue();
+	}
+
+	/**
+	 * Tests the value of each metric on the samples
+	 */
+	@Test
+	public void measuresSamples(){
+		assertEquals(7.0 / 4, measure(Metric.meanSquaredError()), 1e-12);
+		assertEquals(Math.sqrt(7.0 / 4), measure(Metric.rootMeanSquaredError()), 1e-12);
+		assertEquals(5.0 / 4, measure(Metric.meanAbsoluteError()), 1e-12);
+		assertEquals(100 * (1.0 / 2 + 1.0 / 4 + 2.0 / 3 + 1.0 / 6) / 4, measure(Metric.meanAbsolutePercentageError()), 1e-12);
+		assertEquals(2.0 / 3, measure(Metric.directionalAccuracy()), 1e-12);
+		assertEquals(Math.sqrt(6.0) / Math.sqrt(14.0), measure(Metric.theilsU()), 1e-12);
+	}
+
+	/**
+	 * Tests that a metric gives the same value when it is reset and measured again
+	 */
+	@Test
+	public void resets(){
+		Metric[] metrics = Metric.all();
+		for(int i = 0; i < metrics.length; i++)
+			assertEquals(metrics[i].getName(), measure(metrics[i]), measure(metrics[i]), 0);
+	}
+
+	/**
+	 * Tests that each metric is NaN before it has a sample it can use
+	 */
+	@Test
+	public void isNaNWithoutSamples(){
+		Metric[] metrics = Metric.all();
+		for(int i = 0; i < metrics.length; i++){
+			metrics[i].reset();
+			assertTrue(metrics[i].getName(), Double.isNaN(metrics[i].getValue()));
+		}
+		Metric accuracy = Metric.directionalAccuracy();
+		accuracy.reset();
+		accuracy.add(1, 2);
+		assertTrue(Double.isNaN(accuracy.getValue()));
+	}
+
+	/**
+	 * Tests that an evaluation given the data processor measures the metrics on the unscaled
+	 * targets and outputs, and its errors on the scaled ones
+	 */
+	@Test
+	public void measuresUnscaledValues(){
+		DataProcessor processor = new DataProcessor(2, 6);
+		Evaluation evaluation = new Evaluation(processor, true, Metric.all());
+		evaluation.start(TARGETS.length);
+		for(int i = 0; i < TARGETS.length; i++)
+			evaluation.add(processor.transform(TARGETS[i]), processor.transform(OUTPUTS[i]));
+		Metric[] metrics = Metric.all();
+		for(int i = 0; i < metrics.length; i++)
+			assertEquals(metrics[i].getName(), measure(metrics[i]), evaluation.getValue(metrics[i].getName()), 1e-12);
+		assertEquals(0.5 * 7.0 / 4 / 16, evaluation.getMeanError(), 1e-12);
+		assertEquals(0.5 * 4.0 / 16, evaluation.getMaxError(), 1e-12);
+		assertArrayEquals(new double[]{0.5 / 16, 0.5 / 16, 0.5 * 4 / 16, 0.5 / 16}, evaluation.getErrors(), 1e-12);
+	}
+}
@@ -0,0 +1,113 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a model file loads exactly the network, scaling and activation it was saved with
+ *
+ * @see ModelFile
+ *
+ * @author Ray McBride
+ */
+public class ModelFileTest{
+
+	private static double[] data;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Loads and scales the training data
+	 */
+	@BeforeClass
+	public static void loadData(){
+		data = new DataProcessor(new SeriesReader("data/Train500.xml", "indexValue").getValues()).scale();
+	}
+
+	/**
+	 * Saves a trained network of a given type and checks that it loads with the same weights,
+	 * state, topology id, scaling and activation, and makes the same predictions
+	 *
+	 * @param type The type of network
+	 */
+	private void assertRoundTrip(String type) throws IOException{
+		Configuration configuration = new Configuration(type, 5, 6, 3, 0.5, 1, 0.3, 0.5, new int[]{3}, "model_" + type, 2L);
+		configuration.setActivation(Activation.TABLE);
+		FlatNetwork network = configuration.createNetwork().snapshot();
+		network.train(data, 3);
+		String location = new File(folder.getRoot(), type + ".nnm").getPath();
+		new ModelFile(location).save(network, new DataProcessor(-1.5, 2.5));
+		ModelFile file = new ModelFile(location);
+		FlatNetwork loaded = file.loadNetwork();
+		assertArrayEquals(FlatNetworkTest.pack(network), FlatNetworkTest.pack(loaded));
+		assertEquals(network.getClass(), loaded.getClass());
+		assertEquals("model_" + type, loaded.getFileID());
+		assertSame(Activation.TABLE, loaded.getActivation());
+		assertEquals(-1.5, file.getProcessor().getMinimum(), 0);
+		assertEquals(2.5, file.getProcessor().getMaximum(), 0);
+		double[] expected = new double[data.length];
+		double[] actual = new double[data.length];
+		new Model(network.shareWeights()).newState().predictBatch(data, 0, data.length, expected);
+		file.load().newState().predictBatch(data, 0, data.length, actual);
+		assertArrayEquals(expected, actual, 0);
+	}
+
+	/**
+	 * Tests that an MLP loads as it was saved
+	 *
+	 * @throws IOException if the model file cannot be used
+	 */
+	@Test
+	public void roundTripsMLP() throws IOException{
+		assertRoundTrip(Configuration.MLP);
+	}
+
+	/**
+	 * Tests that a TDNN loads as it was saved
+	 *
+	 * @throws IOException if the model file cannot be used
+	 */
+	@Test
+	public void roundTripsTDNN() throws IOException{
+		assertRoundTrip(Configuration.TDNN);
+	}
+
+	/**
+	 * Tests that an RNN loads as it was saved
+	 *
+	 * @throws IOException if the model file cannot be used
+	 */
+	@Test
+	public void roundTripsRNN() throws IOException{
+		assertRoundTrip(Configuration.RNN);
+	}
+
+	/**
+	 * Tests that a truncated model file is refused
+	 *
+	 * @throws IOException if the model file cannot be used
+	 */
+	@Test
+	public void refusesTruncatedFiles() throws IOException{
+		FlatNetwork network = new Configuration(Configuration.MLP, 5, 6, 0, 0, 1, 0.3, 0.5, new int[]{1}, "model_", 2L).createNetwork().snapshot();
+		Path path = folder.getRoot().toPath().resolve("truncated.nnm");
+		new ModelFile(path.toString()).save(network, 0, 1);
+		byte[] bytes = Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+		try{
+			new ModelFile(path.toString()).load();
+			fail("A truncated model file was loaded");
+		}
+		catch(IOException e){
+			assertTrue(e.getMessage().endsWith("is truncated"));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that an online learner trains on only the windows which end in new observations,
+ * keeps a rolling series, widens its own scaling and carries on from a model file
+ *
+ * @see OnlineLearner
+ *
+ * @author Ray McBride
+ */
+public class OnlineLearnerTest{
+
+	private static double[] history;
+	private static DataProcessor processor;
+	private static Network trained;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Loads the training data and trains a TDNN on it
+	 */
+	@BeforeClass
+	public static void train(){
+		history = new SeriesReader("data/Train500.xml", "indexValue").getValues();
+		processor = new DataProcessor(history);
+		trained = FlatNetworkTest.createNetwork(Configuration.TDNN);
+		trained.train(processor.scale());
+	}
+
+	/**
+	 * Tests that an update trains a copy of the network on each window which ends in a new
+	 * observation, once per pass, and leaves the network it was given unchanged
+	 */
+	@Test
+	public void trainsOnNewWindows(){
+		byte[] before = FlatNetworkTest.pack(trained.snapshot());
+		OnlineLearner learner = new OnlineLearner(trained, processor, history, 600, 2);
+		double[] observations = {history[10], history[20]};
+		FlatNetwork expected = trained.snapshot();
+		double[] series = new double[history.length + observations.length];
+		for(int i = 0; i < history.length; i++)
+			series[i] = processor.transform(history[i]);
+		for(int i = 0; i < observations.length; i++)
+			series[history.length + i] = processor.transform(observations[i]);
+		int from = history.length - 5 + 1;
+		int to = series.length - 5 + 1;
+		double error = expected.learn(series, from, to) + expected.learn(series, from, to);
+		assertEquals(error / 4, learner.update(observations), 0);
+		assertArrayEquals(FlatNetworkTest.pack(expected), FlatNetworkTest.pack(learner.getNetwork()));
+		assertArrayEquals(before, FlatNetworkTest.pack(trained.snapshot()));
+		assertEquals(4, learner.getSteps());
+	}
+
+	/**
+	 * Tests that the rolling series keeps only the newest observations
+	 */
+	@Test
+	public void keepsNewestObservations(){
+		OnlineLearner learner = new OnlineLearner(trained, processor, history, 100, 2);
+		assertArrayEquals(Arrays.copyOfRange(history, 400, 500), learner.getValues(), 0);
+		learner.update(1, 2, 3);
+		double[] values = learner.getValues();
+		assertEquals(100, learner.size());
+		assertEquals(history[403], values[0], 0);
+		assertArrayEquals(new double[]{1, 2, 3}, Arrays.copyOfRange(values, 97, 100), 0);
+		assertEquals(6, learner.getSteps());
+	}
+
+	/**
+	 * Tests that an observation outside the scaling widens the learner's copy of the data
+	 * processor, and not the one it was given
+	 */
+	@Test
+	public void widensItsOwnScaling(){
+		double maximum = processor.getMaximum();
+		OnlineLearner learner = new OnlineLearner(trained, processor, history, 600, 1);
+		learner.update(2 * maximum);
+		assertEquals(2 * maximum, learner.getProcessor().getMaximum(), 0);
+		assertEquals(maximum, processor.getMaximum(), 0);
+		assertEquals(processor.getMinimum(), learner.getProcessor().getMinimum(), 0);
+	}
+
+	/**
+	 * Tests that a prediction leaves the network as it was and gives the same output each
+	 * time
+	 */
+	@Test
+	public void predictsWithoutChangingTheNetwork(){
+		OnlineLearner learner = new OnlineLearner(trained, processor, history, 600, 1);
+		learner.update(history[0]);
+		byte[] before = FlatNetworkTest.pack(learner.getNetwork());
+		double prediction = learner.predict();
+		assertEquals(prediction, learner.predict(), 0);
+		assertArrayEquals(before, FlatNetworkTest.pack(learner.getNetwork()));
+		assertTrue(prediction >= learner.getProcessor().getMinimum() && prediction <= learner.getProcessor().getMaximum());
+	}
+
+	/**
+	 * Tests that a learner loaded from the model file another one saved carries on exactly
+	 * as the other one does
+	 *
+	 * @throws IOException if the model file cannot be used
+	 */
+	@Test
+	public void carriesOnFromModelFile() throws IOException{
+		OnlineLearner learner = new OnlineLearner(trained, processor, history, 600, 2);
+		learner.update(2 * processor.getMaximum());
+		String location = new File(folder.getRoot(), "online.nnm").getPath();
+		learner.save(new ModelFile(location));
+		OnlineLearner loaded = new OnlineLearner(new ModelFile(location), learner.getValues(), 600, 2);
+		assertEquals(learner.getProcessor().getMaximum(), loaded.getProcessor().getMaximum(), 0);
+		assertEquals(learner.predict(), loaded.predict(), 0);
+		assertEquals(learner.update(history[0], history[1]), loaded.update(history[0], history[1]), 0);
+		assertArrayEquals(FlatNetworkTest.pack(learner.getNetwork()), FlatNetworkTest.pack(loaded.getNetwork()));
+	}
+
+	/**
+	 * Tests that a capacity smaller than a window, or no passes, are refused
+	 */
+	@Test
+	public void refusesBadArguments(){
+		try{
+			new OnlineLearner(trained, processor, history, 4, 1);
+			fail("A capacity smaller than a window was accepted");
+		}
+		catch(IllegalArgumentException e){
+		}
+		try{
+			new OnlineLearner(trained, processor, history, 600, 0);
+			fail("No passes were accepted");
+		}
+		catch(IllegalArgumentException e){
+		}
+	}
+}
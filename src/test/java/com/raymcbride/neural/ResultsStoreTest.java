@@ -0,0 +1,146 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that the results store keeps one row per configuration and epoch count, and recovers
+ * from rows left incomplete by a crash
+ *
+ * @see ResultsStore
+ *
+ * @author Ray McBride
+ */
+public class ResultsStoreTest{
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Creates a configuration
+	 *
+	 * @param fileID The id of the configuration
+	 *
+	 * @return the configuration
+	 */
+	private static Configuration configuration(String fileID){
+		return new Configuration(Configuration.MLP, 5, 6, 0, 0, 1, 0.3, 0.5, new int[]{10, 20}, fileID, 1L);
+	}
+
+	/**
+	 * Creates an evaluation of a few samples which keeps their errors
+	 *
+	 * @param offset The difference between each output and its target
+	 *
+	 * @return the evaluation
+	 */
+	private static Evaluation evaluation(double offset){
+		Evaluation evaluation = new Evaluation(true, Metric.all());
+		evaluation.start(4);
+		for(int i = 0; i < 4; i++)
+			evaluation.add(0.1 * (i + 1), 0.1 * (i + 1) + offset);
+		return evaluation;
+	}
+
+	/**
+	 * Tests that a configuration's results at an epoch count are appended once, by this store
+	 * or by another one open in the same directory
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void skipsRowsItAlreadyHolds() throws IOException{
+		String location = folder.getRoot().getPath();
+		ResultsStore store = new ResultsStore(location, true);
+		ResultsStore other = new ResultsStore(location, true);
+		try{
+			assertTrue(store.append(configuration("a"), 10, evaluation(0.1), evaluation(0.2)));
+			assertTrue(store.append(configuration("a"), 20, evaluation(0.1), evaluation(0.2)));
+			assertFalse(store.append(configuration("a"), 10, evaluation(0.3), evaluation(0.4)));
+			assertFalse(other.append(configuration("a"), 20, evaluation(0.3), evaluation(0.4)));
+			assertTrue(other.append(configuration("b"), 10, evaluation(0.3), evaluation(0.4)));
+			assertEquals(3, store.size());
+			assertEquals(3, other.size());
+			Trial best = store.getLeaderboard(3).get(0);
+			assertEquals("a", best.getConfiguration().getFileID());
+			assertEquals(0.5 * 0.2 * 0.2, best.getValidationError(), 1e-12);
+		}
+		finally{
+			store.close();
+			other.close();
+		}
+		ResultsStore reopened = new ResultsStore(location, true);
+		try{
+			assertFalse(reopened.append(configuration("b"), 10, evaluation(0.3), evaluation(0.4)));
+			assertEquals(3, reopened.size());
+		}
+		finally{
+			reopened.close();
+		}
+	}
+
+	/**
+	 * Tests that a row written to only some of the columns is dropped when the store is
+	 * opened, and that the next row is appended in its place
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void truncatesIncompleteRows() throws IOException{
+		String location = folder.getRoot().getPath();
+		ResultsStore store = new ResultsStore(location, false);
+		store.append(configuration("a"), 10, evaluation(0.1), evaluation(0.2));
+		store.append(configuration("b"), 10, evaluation(0.3), evaluation(0.4));
+		store.close();
+		Path column = folder.getRoot().toPath().resolve("validationTheilU.bin");
+		FileChannel channel = FileChannel.open(column, StandardOpenOption.WRITE);
+		channel.truncate(8);
+		channel.close();
+		store = new ResultsStore(location, false);
+		try{
+			assertEquals(1, store.size());
+			assertEquals(4, Files.size(folder.getRoot().toPath().resolve("testSamples.bin")));
+			assertTrue(store.append(configuration("c"), 10, evaluation(0.5), evaluation(0.6)));
+			assertEquals(2, store.size());
+			assertEquals("c", store.get(1).getConfiguration().getFileID());
+			assertEquals(0.5 * 0.6 * 0.6, store.get(1).getValidationError(), 1e-12);
+		}
+		finally{
+			store.close();
+		}
+	}
+
+	/**
+	 * Tests that reading the errors of a row whose packed errors were cut short fails rather
+	 * than waiting for them
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test(timeout = 10000)
+	public void refusesTruncatedErrors() throws IOException{
+		String location = folder.getRoot().getPath();
+		ResultsStore store = new ResultsStore(location, true);
+		store.append(configuration("a"), 10, evaluation(0.1), evaluation(0.2));
+		assertArrayEquals(new double[]{0.005, 0.005, 0.005, 0.005}, store.getTestErrors(0), 1e-12);
+		store.close();
+		FileChannel channel = FileChannel.open(folder.getRoot().toPath().resolve("errors.bin"), StandardOpenOption.WRITE);
+		channel.truncate(40);
+		channel.close();
+		store = new ResultsStore(location, true);
+		try{
+			store.getValidationErrors(0);
+			fail("Truncated errors were read");
+		}
+		catch(EOFException e){
+		}
+		finally{
+			store.close();
+		}
+	}
+}
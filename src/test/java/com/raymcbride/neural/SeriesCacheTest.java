@@ -0,0 +1,169 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a series cache is built from its XML file, used while the XML file is unchanged
+ * and rebuilt when its length or checksum no longer match
+ *
+ * @see SeriesCache
+ *
+ * @author Ray McBride
+ */
+public class SeriesCacheTest{
+
+	private static final int HEADER_SIZE = 56;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path source;
+	private Path cache;
+
+	/**
+	 * Locates the XML file and its cache
+	 */
+	@Before
+	public void locate(){
+		source = folder.getRoot().toPath().resolve("series.xml");
+		cache = folder.getRoot().toPath().resolve("series.xml.indexValue.series");
+	}
+
+	/**
+	 * Writes the XML file
+	 *
+	 * @param values The values, as they are written in the file
+	 */
+	private void writeSource(String... values) throws IOException{
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<project>\n");
+		for(int i = 0; i < values.length; i++)
+			xml.append("<ftse><indexValue>").append(values[i]).append("</indexValue></ftse>\n");
+		xml.append("</project>\n");
+		Files.write(source, xml.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Moves the modification time of the XML file on, so that it differs from the one in the
+	 * cache however coarse the file system's clock is
+	 */
+	private void touchSource() throws IOException{
+		Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 10000));
+	}
+
+	/**
+	 * Overwrites the first value in the cache file without changing its header, so that a
+	 * cache which is used rather than rebuilt can be told apart
+	 *
+	 * @param value The value
+	 */
+	private void markCache(double value) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putDouble(value).flip();
+		try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)){
+			channel.write(buffer, HEADER_SIZE);
+		}
+	}
+
+	/**
+	 * Opens the cache
+	 *
+	 * @return the cache
+	 */
+	private SeriesCache open(){
+		return new SeriesCache(source.toString(), "indexValue");
+	}
+
+	/**
+	 * Tests that the cache is built with the values, minimum and maximum of the XML file
+	 *
+	 * @throws IOException if the files cannot be used
+	 */
+	@Test
+	public void buildsFromSource() throws IOException{
+		writeSource("1.5", "-2", "7.25");
+		SeriesCache series = open();
+		assertTrue(Files.exists(cache));
+		assertArrayEquals(new double[]{1.5, -2, 7.25}, series.toArray(), 0);
+		assertEquals(3, series.size());
+		assertEquals(-2, series.getMinimum(), 0);
+		assertEquals(7.25, series.getMaximum(), 0);
+	}
+
+	/**
+	 * Tests that the cache is used while the XML file is unchanged, and that a new modification
+	 * time with the same contents is recorded in the cache rather than rebuilding it
+	 *
+	 * @throws IOException if the files cannot be used
+	 */
+	@Test
+	public void usesCacheWhileUnchanged() throws IOException{
+		writeSource("1.5", "-2", "7.25");
+		open();
+		markCache(99);
+		assertEquals(99, open().toArray()[0], 0);
+		touchSource();
+		assertEquals(99, open().toArray()[0], 0);
+		ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(cache)).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(Files.getLastModifiedTime(source).toMillis(), header.getLong(40));
+	}
+
+	/**
+	 * Tests that the cache is rebuilt when the length of the XML file changes
+	 *
+	 * @throws IOException if the files cannot be used
+	 */
+	@Test
+	public void rebuildsOnLengthMismatch() throws IOException{
+		writeSource("1.5", "-2", "7.25");
+		open();
+		markCache(99);
+		writeSource("1.5", "-2", "7.25", "3");
+		SeriesCache series = open();
+		assertArrayEquals(new double[]{1.5, -2, 7.25, 3}, series.toArray(), 0);
+	}
+
+	/**
+	 * Tests that the cache is rebuilt when the XML file has the same length but different
+	 * contents
+	 *
+	 * @throws IOException if the files cannot be used
+	 */
+	@Test
+	public void rebuildsOnChecksumMismatch() throws IOException{
+		writeSource("1.5", "-2", "7.25");
+		open();
+		markCache(99);
+		writeSource("2.5", "-2", "7.25");
+		touchSource();
+		SeriesCache series = open();
+		assertArrayEquals(new double[]{2.5, -2, 7.25}, series.toArray(), 0);
+		assertEquals(7.25, series.getMaximum(), 0);
+	}
+
+	/**
+	 * Tests that a truncated cache file is rebuilt
+	 *
+	 * @throws IOException if the files cannot be used
+	 */
+	@Test
+	public void rebuildsTruncatedCache() throws IOException{
+		writeSource("1.5", "-2", "7.25");
+		open();
+		try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)){
+			channel.truncate(HEADER_SIZE + 8);
+		}
+		assertArrayEquals(new double[]{1.5, -2, 7.25}, open().toArray(), 0);
+		assertEquals(HEADER_SIZE + 24, Files.size(cache));
+	}
+}
@@ -0,0 +1,130 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.*;
+
+/**
+ * Tests that the streaming reader reads the values and dates of a series, and fails at the
+ * first malformed value, date or element
+ *
+ * @see SeriesReader
+ *
+ * @author Ray McBride
+ */
+public class SeriesReaderTest{
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Writes an XML file
+	 *
+	 * @param body The elements inside the root element
+	 *
+	 * @return the location of the file
+	 */
+	private String write(String body) throws IOException{
+		Path path = folder.newFile().toPath();
+		Files.write(path, ("<?xml version=\"1.0\"?>\n<project>\n" + body + "</project>\n").getBytes(StandardCharsets.UTF_8));
+		return path.toString();
+	}
+
+	/**
+	 * Reads a file and checks that it is refused with a message starting with a given text
+	 *
+	 * @param location The location of the file
+	 * @param message The start of the message
+	 */
+	private static void assertRefused(String location, String message){
+		try{
+			new SeriesReader(location, "indexValue", "date");
+			fail("The file was read");
+		}
+		catch(IllegalArgumentException e){
+			assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+		}
+	}
+
+	/**
+	 * Tests that the values of the training data are those the DOM parser reads
+	 */
+	@Test
+	public void readsAsDocument(){
+		NodeList nodes = new XMLParser("data/Train500.xml").getDocument().getElementsByTagName("indexValue");
+		double[] expected = new double[nodes.getLength()];
+		for(int i = 0; i < expected.length; i++)
+			expected[i] = Double.parseDouble(nodes.item(i).getTextContent());
+		SeriesReader reader = new SeriesReader("data/Train500.xml", "indexValue");
+		assertEquals(expected.length, reader.size());
+		assertArrayEquals(expected, reader.getValues(), 0);
+		assertNull(reader.getDates());
+	}
+
+	/**
+	 * Tests that each value has the last date read before it, that empty values are skipped,
+	 * and that the arrays grow to hold a long series
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void readsValuesAndDates() throws IOException{
+		StringBuilder body = new StringBuilder();
+		body.append("<ftse><indexValue>1.5</indexValue></ftse>\n");
+		body.append("<ftse><date>1970-01-02</date><indexValue></indexValue></ftse>\n");
+		for(int i = 0; i < 3000; i++)
+			body.append("<ftse><date>1970-01-03</date><indexValue>").append(i).append("</indexValue></ftse>\n");
+		SeriesReader reader = new SeriesReader(write(body.toString()), "indexValue", "date");
+		assertEquals(3001, reader.size());
+		double[] values = reader.getValues();
+		long[] dates = reader.getDates();
+		assertEquals(1.5, values[0], 0);
+		assertEquals(Long.MIN_VALUE, dates[0]);
+		assertEquals(2999, values[3000], 0);
+		assertEquals(2 * 86400000L, dates[3000]);
+	}
+
+	/**
+	 * Tests that a malformed value is refused with its line
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void refusesMalformedValues() throws IOException{
+		assertRefused(write("<ftse><indexValue>1</indexValue></ftse>\n<ftse><indexValue>4,381</indexValue></ftse>\n"), "Malformed value '4,381' at line 4");
+	}
+
+	/**
+	 * Tests that a malformed date is refused with its line
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void refusesMalformedDates() throws IOException{
+		assertRefused(write("<ftse><date>2004-07-05x</date><indexValue>1</indexValue></ftse>\n"), "Malformed date '2004-07-05x' at line 3");
+	}
+
+	/**
+	 * Tests that malformed XML is refused
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void refusesMalformedXML() throws IOException{
+		assertRefused(write("<ftse><indexValue>1</indexValue>\n"), "Malformed XML");
+	}
+
+	/**
+	 * Tests that a missing file is refused
+	 */
+	@Test
+	public void refusesMissingFiles(){
+		assertRefused(new File(folder.getRoot(), "missing.xml").getPath(), "Cannot read");
+	}
+}
@@ -0,0 +1,238 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the scheduling of a sweep: the order the configurations are started in, stopping
+ * it, the snapshots taken by a single training run, successive halving and skipping the
+ * configurations completed by an earlier run
+ *
+ * @see Sweep
+ *
+ * @author Ray McBride
+ */
+public class SweepTest{
+
+	private static double[] trainingData;
+	private static double[] validatingData;
+	private static double[] testingData;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Loads the training, validating and testing data, scaled to the training data
+	 */
+	@BeforeClass
+	public static void loadData(){
+		DataProcessor processor = new DataProcessor(new SeriesReader("data/Train500.xml", "indexValue").getValues());
+		trainingData = processor.scale();
+		validatingData = new SeriesReader("data/Validate100.xml", "indexValue").getValues();
+		processor.transform(validatingData);
+		testingData = new SeriesReader("data/Test100.xml", "indexValue").getValues();
+		processor.transform(testingData);
+	}
+
+	/**
+	 * Creates an MLP configuration
+	 *
+	 * @param hiddens The number of Hidden Neurons
+	 * @param epochs The epoch counts
+	 * @param fileID The id of the configuration
+	 *
+	 * @return the configuration
+	 */
+	static Configuration configuration(int hiddens, int[] epochs, String fileID){
+		return new Configuration(Configuration.MLP, 5, hiddens, 0, 0, 1, 0.3, 0.5, epochs, fileID, 1L);
+	}
+
+	/**
+	 * Tests that the configurations are started longest first, and in the order they were
+	 * added when they cost the same
+	 */
+	@Test
+	public void startsLongestFirst(){
+		final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+		Sweep sweep = new Sweep(1){
+			protected void process(Configuration configuration, double[] trainingData, double[] testingData, double[] validatingData){
+				started.add(configuration.getFileID());
+			}
+		};
+		sweep.add(configuration(5, new int[]{10}, "a"));
+		sweep.add(configuration(20, new int[]{10}, "b"));
+		sweep.add(configuration(5, new int[]{10, 50}, "c"));
+		sweep.add(configuration(10, new int[]{5}, "d"));
+		sweep.add(configuration(10, new int[]{10}, "e"));
+		sweep.run(new double[0], new double[0], new double[0]);
+		assertEquals(Arrays.asList("c", "b", "e", "a", "d"), started);
+	}
+
+	/**
+	 * Tests that stopping a sweep discards the configurations which have not started and lets
+	 * the running one finish without interrupting it
+	 *
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test(timeout = 30000)
+	public void finishesRunningConfigurations() throws InterruptedException{
+		final CountDownLatch running = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+		final Sweep sweep = new Sweep(1){
+			protected void process(Configuration configuration, double[] trainingData, double[] testingData, double[] validatingData){
+				running.countDown();
+				try{
+					stopped.await();
+					finished.add(configuration.getFileID());
+				}
+				catch(InterruptedException e){
+					finished.add("interrupted");
+				}
+			}
+		};
+		for(int i = 0; i < 4; i++)
+			sweep.add(configuration(5, new int[]{10}, "c" + i));
+		Thread thread = new Thread(){
+			public void run(){
+				sweep.run(new double[0], new double[0], new double[0]);
+			}
+		};
+		thread.start();
+		running.await();
+		sweep.shutdown();
+		stopped.countDown();
+		thread.join();
+		assertEquals(Arrays.asList("c0"), finished);
+	}
+
+	/**
+	 * Tests that each snapshot taken while training once to the largest epoch count matches a
+	 * network trained from the start to the snapshot's epoch count
+	 */
+	@Test
+	public void snapshotsMatchSeparateRuns(){
+		Configuration configuration = configuration(6, new int[]{2, 5, 9}, "snapshots");
+		int[] checkpoints = {5, 2, 12};
+		FlatNetwork[] snapshots = configuration.createNetwork().train(trainingData, checkpoints);
+		assertEquals(3, snapshots.length);
+		for(int i = 0; i < 2; i++){
+			FlatNetwork network = configuration.createNetwork().snapshot();
+			network.train(trainingData, checkpoints[i]);
+			assertArrayEquals(FlatNetworkTest.pack(network), FlatNetworkTest.pack(snapshots[i]));
+		}
+		assertNull(snapshots[2]);
+	}
+
+	/**
+	 * Scores a configuration's network on the validating data after training it from the
+	 * start for a number of epochs
+	 *
+	 * @param configuration The configuration
+	 * @param epochs The number of epochs
+	 *
+	 * @return the mean validation error
+	 */
+	private static double score(Configuration configuration, int epochs){
+		FlatNetwork network = configuration.createNetwork().snapshot();
+		network.train(trainingData, epochs);
+		return network.score(validatingData);
+	}
+
+	/**
+	 * Tests that successive halving trains every configuration for the first rung, keeps the
+	 * best half by validation error at each rung, and trains and tests the last survivor to
+	 * its full number of epochs
+	 */
+	@Test
+	public void halvesToTheBest(){
+		Sweep sweep = new Sweep(2);
+		final List<Configuration> configurations = new ArrayList<Configuration>();
+		double[] rates = {0.05, 0.3, 0.9, 3};
+		for(int i = 0; i < rates.length; i++){
+			Configuration configuration = new Configuration(Configuration.MLP, 5, 6, 0, 0, 1, rates[i], 0.5, new int[]{8}, "halving" + i, 1L);
+			configurations.add(configuration);
+			sweep.add(configuration);
+		}
+		Leaderboard leaderboard = sweep.halve(trainingData, testingData, validatingData, 2, 2);
+		assertEquals(4, leaderboard.size());
+		List<Configuration> ranked = new ArrayList<Configuration>(configurations);
+		Collections.sort(ranked, new Comparator<Configuration>(){
+			public int compare(Configuration a, Configuration b){
+				return Double.compare(score(a, 2), score(b, 2));
+			}
+		});
+		Configuration winner = score(ranked.get(0), 4) <= score(ranked.get(1), 4) ? ranked.get(0) : ranked.get(1);
+		Trial best = leaderboard.get(0);
+		assertSame(winner, best.getConfiguration());
+		assertEquals(2, best.getRung());
+		assertEquals(8, best.getEpochs());
+		assertEquals(score(winner, 8), best.getValidationError(), 0);
+		assertFalse(Double.isNaN(best.getTestError()));
+		Trial second = leaderboard.get(1);
+		assertTrue(second.getConfiguration() == ranked.get(0) || second.getConfiguration() == ranked.get(1));
+		assertEquals(1, second.getRung());
+		assertEquals(4, second.getEpochs());
+		assertTrue(Double.isNaN(second.getTestError()));
+		for(int i = 2; i < 4; i++){
+			assertEquals(0, leaderboard.get(i).getRung());
+			assertEquals(2, leaderboard.get(i).getEpochs());
+			assertTrue(ranked.indexOf(leaderboard.get(i).getConfiguration()) >= 2);
+		}
+	}
+
+	/**
+	 * Creates a sweep which records the configurations it processes instead of training them
+	 *
+	 * @param processed The list to add the id of each configuration to
+	 * @param directory The checkpoint directory
+	 *
+	 * @return the sweep
+	 */
+	private static Sweep recordingSweep(final List<String> processed, String directory){
+		Sweep sweep = new Sweep(2){
+			protected void process(Configuration configuration, double[] trainingData, double[] testingData, double[] validatingData){
+				processed.add(configuration.getFileID());
+			}
+		};
+		sweep.setCheckpoints(directory, 1);
+		return sweep;
+	}
+
+	/**
+	 * Tests that the completed configurations are appended to the log one per line, that a run
+	 * after a crash skips them, and that a last line cut short by the crash is dropped
+	 *
+	 * @throws IOException if the log cannot be used
+	 */
+	@Test
+	public void skipsCompletedConfigurations() throws IOException{
+		String directory = folder.getRoot().getPath();
+		Path log = folder.getRoot().toPath().resolve("completed.txt");
+		List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+		Sweep sweep = recordingSweep(processed, directory);
+		for(int i = 0; i < 3; i++)
+			sweep.add(configuration(5, new int[]{10}, "c" + i));
+		sweep.run(new double[0], new double[0], new double[0]);
+		assertEquals(new HashSet<String>(processed), new HashSet<String>(Files.readAllLines(log, StandardCharsets.UTF_8)));
+		Files.write(log, "c3".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		processed.clear();
+		sweep = recordingSweep(processed, directory);
+		for(int i = 0; i < 4; i++)
+			sweep.add(configuration(5, new int[]{10}, "c" + i));
+		sweep.run(new double[0], new double[0], new double[0]);
+		assertEquals(Arrays.asList("c3"), processed);
+		List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+		assertEquals(4, lines.size());
+		assertEquals("c3", lines.get(3));
+	}
+}
@@ -0,0 +1,172 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a training checkpoint saves and loads the full training state, and that training
+ * carried on from a checkpoint ends exactly as training which never stopped
+ *
+ * @see TrainingCheckpoint
+ *
+ * @author Ray McBride
+ */
+public class TrainingCheckpointTest{
+
+	private static final int EPOCHS = 12;
+	private static final int[] CHECKPOINTS = {4, 8, 12};
+
+	private static double[] data;
+	private static double[] heldOut;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Loads and scales the training and validating data
+	 */
+	@BeforeClass
+	public static void loadData(){
+		DataProcessor processor = new DataProcessor();
+		data = new SeriesReader("data/Train500.xml", "indexValue").getValues();
+		heldOut = new SeriesReader("data/Validate100.xml", "indexValue").getValues();
+		processor.fit(data);
+		processor.transform(data);
+		processor.transform(heldOut);
+	}
+
+	/**
+	 * Creates the flat engine of a network of a given type, with early stopping which never
+	 * runs out of patience
+	 *
+	 * @param type The type of network
+	 *
+	 * @return the network
+	 */
+	private static FlatNetwork createNetwork(String type){
+		FlatNetwork network = new Configuration(type, 5, 4, 3, 0.5, 1, 0.2, 0.5, new int[]{EPOCHS}, "checkpoint_", 7L).createNetwork().snapshot();
+		network.setEarlyStopping(new EarlyStopping(heldOut, 2, 50, 0));
+		return network;
+	}
+
+	/**
+	 * Checks that a training run which fails part way through and is started again from its
+	 * checkpoint takes the same snapshots, ends with the same network and makes the same best
+	 * score as a run which never stopped
+	 *
+	 * @param type The type of network
+	 */
+	private void assertResumes(String type) throws IOException{
+		FlatNetwork uninterrupted = createNetwork(type);
+		FlatNetwork[] expected = uninterrupted.train(data, CHECKPOINTS);
+		String location = new File(folder.getRoot(), type + ".bin").getPath();
+		FlatNetwork interrupted = createNetwork(type);
+		interrupted.setTrainingCheckpoint(new TrainingCheckpoint(location, 3));
+		interrupted.setTelemetry(new Telemetry(new TrainingListener(){
+			public void epochCompleted(Telemetry telemetry){
+				if(telemetry.getEpoch() == 7)
+					throw new IllegalStateException("Stopped at epoch 7");
+			}
+		}, false));
+		try{
+			interrupted.train(data, CHECKPOINTS);
+			fail("Training was not stopped");
+		}
+		catch(IllegalStateException e){
+		}
+		FlatNetwork resumed = createNetwork(type);
+		TrainingCheckpoint checkpoint = new TrainingCheckpoint(location, 3);
+		resumed.setTrainingCheckpoint(checkpoint);
+		FlatNetwork[] actual = resumed.train(data, CHECKPOINTS);
+		assertEquals(6, checkpoint.getEpoch());
+		for(int i = 0; i < CHECKPOINTS.length; i++)
+			assertArrayEquals(FlatNetworkTest.pack(expected[i]), FlatNetworkTest.pack(actual[i]));
+		assertArrayEquals(FlatNetworkTest.pack(uninterrupted), FlatNetworkTest.pack(resumed));
+		assertEquals(uninterrupted.getEarlyStopping().getBestEpoch(), resumed.getEarlyStopping().getBestEpoch());
+		assertEquals(uninterrupted.getEarlyStopping().getBestError(), resumed.getEarlyStopping().getBestError(), 0);
+	}
+
+	/**
+	 * Tests that an MLP carries on from its checkpoint
+	 *
+	 * @throws IOException if the checkpoint cannot be used
+	 */
+	@Test
+	public void resumesMLP() throws IOException{
+		assertResumes(Configuration.MLP);
+	}
+
+	/**
+	 * Tests that a TDNN carries on from its checkpoint
+	 *
+	 * @throws IOException if the checkpoint cannot be used
+	 */
+	@Test
+	public void resumesTDNN() throws IOException{
+		assertResumes(Configuration.TDNN);
+	}
+
+	/**
+	 * Tests that an RNN carries on from its checkpoint
+	 *
+	 * @throws IOException if the checkpoint cannot be used
+	 */
+	@Test
+	public void resumesRNN() throws IOException{
+		assertResumes(Configuration.RNN);
+	}
+
+	/**
+	 * Tests that a saved checkpoint loads the epoch, the network, the snapshots taken so far and
+	 * the progress of early stopping
+	 *
+	 * @throws IOException if the checkpoint cannot be used
+	 */
+	@Test
+	public void savesAndLoads() throws IOException{
+		FlatNetwork network = createNetwork(Configuration.RNN);
+		network.train(data, 5);
+		FlatNetwork snapshot = network.snapshot();
+		network.train(data, 2);
+		EarlyStopping earlyStopping = network.getEarlyStopping();
+		earlyStopping.check(network, 7);
+		String location = new File(folder.getRoot(), "checkpoints/rnn.bin").getPath();
+		new TrainingCheckpoint(location, 1).save(7, network, new FlatNetwork[]{snapshot, null}, earlyStopping);
+		TrainingCheckpoint checkpoint = new TrainingCheckpoint(location, 1);
+		assertTrue(checkpoint.load(2));
+		assertEquals(7, checkpoint.getEpoch());
+		assertArrayEquals(FlatNetworkTest.pack(network), FlatNetworkTest.pack(checkpoint.getNetwork()));
+		assertArrayEquals(FlatNetworkTest.pack(snapshot), FlatNetworkTest.pack(checkpoint.getSnapshots()[0]));
+		assertNull(checkpoint.getSnapshots()[1]);
+		assertArrayEquals(FlatNetworkTest.pack(network), FlatNetworkTest.pack(checkpoint.getBest()));
+		assertEquals(earlyStopping.getBestError(), checkpoint.getBestError(), 0);
+		assertEquals(7, checkpoint.getBestEpoch());
+		assertEquals("checkpoint_", checkpoint.getNetwork().getFileID());
+	}
+
+	/**
+	 * Tests that a checkpoint saved by a training run taking a different number of snapshots is
+	 * refused, and that a missing checkpoint is not loaded
+	 *
+	 * @throws IOException if the checkpoint cannot be used
+	 */
+	@Test
+	public void refusesOtherRuns() throws IOException{
+		FlatNetwork network = createNetwork(Configuration.MLP);
+		String location = new File(folder.getRoot(), "mlp.bin").getPath();
+		TrainingCheckpoint checkpoint = new TrainingCheckpoint(location, 1);
+		assertFalse(checkpoint.load(1));
+		checkpoint.save(1, network, new FlatNetwork[1], null);
+		try{
+			checkpoint.load(2);
+			fail("A checkpoint with a different number of snapshots was loaded");
+		}
+		catch(IOException e){
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.raymcbride.neural;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a work queue publishes each configuration once, hands each task to one worker,
+ * returns stale and released tasks to the queue and collects the results of completed ones
+ *
+ * @see WorkQueue
+ *
+ * @author Ray McBride
+ */
+public class WorkQueueTest{
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String location;
+	private List<Configuration> configurations;
+
+	/**
+	 * Creates the configurations to publish
+	 */
+	@Before
+	public void setUp(){
+		location = folder.getRoot().getPath();
+		configurations = new ArrayList<Configuration>();
+		for(int i = 0; i < 3; i++)
+			configurations.add(SweepTest.configuration(3 + i, new int[]{10, 20}, "q" + i));
+	}
+
+	/**
+	 * Moves the modification time of every claimed task back by a minute, as if its worker had
+	 * stopped touching it
+	 */
+	private void age() throws IOException{
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(folder.getRoot().toPath().resolve("claimed"))){
+			for(Path task : stream)
+				Files.setLastModifiedTime(task, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+		}
+	}
+
+	/**
+	 * Tests that each configuration is published once, and read back with all its settings
+	 *
+	 * @throws IOException if the queue cannot be used
+	 */
+	@Test
+	public void publishesOnce() throws IOException{
+		configurations.get(0).setActivation(Activation.TABLE);
+		configurations.get(0).setKernel(Kernel.VECTOR);
+		WorkQueue queue = new WorkQueue(location);
+		assertEquals(3, queue.publish(configurations));
+		assertEquals(0, new WorkQueue(location).publish(configurations));
+		assertEquals(3, queue.getPending());
+		Configuration expected = configurations.get(0);
+		Configuration claimed = queue.claim();
+		assertEquals(expected.getFileID(), claimed.getFileID());
+		assertEquals(expected.getType(), claimed.getType());
+		assertEquals(expected.getHiddens(), claimed.getHiddens());
+		assertEquals(expected.getLearningRate(), claimed.getLearningRate(), 0);
+		assertArrayEquals(expected.getEpochs(), claimed.getEpochs());
+		assertEquals(expected.getSeed(), claimed.getSeed());
+		assertSame(Activation.TABLE, claimed.getActivation());
+		assertSame(Kernel.VECTOR, claimed.getKernel());
+		assertSame(expected.getInitialisation(), claimed.getInitialisation());
+	}
+
+	/**
+	 * Tests that the tasks are claimed in the order they were published, each by one worker
+	 *
+	 * @throws IOException if the queue cannot be used
+	 */
+	@Test
+	public void claimsInOrder() throws IOException{
+		new WorkQueue(location).publish(configurations);
+		WorkQueue first = new WorkQueue(location);
+		WorkQueue second = new WorkQueue(location);
+		assertEquals("q0", first.claim().getFileID());
+		assertEquals("q1", second.claim().getFileID());
+		assertEquals("q2", first.claim().getFileID());
+		assertNull(second.claim());
+		assertEquals(0, first.getPending());
+		assertEquals(3, first.getClaimed());
+		assertFalse(first.isFinished());
+	}
+
+	/**
+	 * Tests that a task which has not been touched for longer than the timeout is returned to
+	 * the queue for another worker, and that a heartbeat keeps a task from going stale
+	 *
+	 * @throws IOException if the queue cannot be used
+	 */
+	@Test
+	public void requeuesStaleTasks() throws IOException{
+		WorkQueue queue = new WorkQueue(location);
+		queue.publish(configurations.subList(0, 1));
+		queue.claim();
+		WorkQueue other = new WorkQueue(location);
+		assertEquals(0, other.requeueStale(10000));
+		age();
+		queue.heartbeat();
+		assertEquals(0, other.requeueStale(10000));
+		age();
+		assertEquals(1, other.requeueStale(10000));
+		assertEquals(1, other.getPending());
+		assertEquals(0, other.getClaimed());
+		assertEquals("q0", other.claim().getFileID());
+	}
+
+	/**
+	 * Tests that completing a task posts its results and moves it to done, including a task
+	 * which was returned to the queue while it was being worked on
+	 *
+	 * @throws IOException if the queue cannot be used
+	 */
+	@Test
+	public void completesTasks() throws IOException{
+		WorkQueue queue = new WorkQueue(location);
+		queue.publish(configurations.subList(0, 2));
+		Configuration first = queue.claim();
+		Configuration second = queue.claim();
+		queue.complete(first, new Trial[]{new Trial(first, 10, 0.1, 0.2), new Trial(first, 20, 0.3, 0.4)});
+		age();
+		queue.requeueStale(10000);
+		queue.complete(second, new Trial[]{new Trial(second, 10, 0.5, 0.6), new Trial(second, 20, 0.7, 0.8)});
+		assertEquals(0, queue.getPending());
+		assertEquals(0, queue.getClaimed());
+		assertEquals(2, queue.getDone());
+		assertTrue(queue.isFinished());
+		List<Trial> results = queue.getResults();
+		assertEquals(4, results.size());
+		double[] errors = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8};
+		for(int i = 0; i < 4; i++){
+			assertEquals(i < 2 ? "q0" : "q1", results.get(i).getConfiguration().getFileID());
+			assertEquals(i % 2 == 0 ? 10 : 20, results.get(i).getEpochs());
+			assertEquals(errors[2 * i], results.get(i).getValidationError(), 0);
+			assertEquals(errors[2 * i + 1], results.get(i).getTestError(), 0);
+		}
+	}
+
+	/**
+	 * Tests that a released task is returned to the queue and claimed again
+	 *
+	 * @throws IOException if the queue cannot be used
+	 */
+	@Test
+	public void releasesTasks() throws IOException{
+		WorkQueue queue = new WorkQueue(location);
+		queue.publish(configurations);
+		Configuration claimed = queue.claim();
+		queue.release(claimed);
+		assertEquals(3, queue.getPending());
+		assertEquals(0, queue.getClaimed());
+		assertEquals(claimed.getFileID(), queue.claim().getFileID());
+		queue.release(configurations.get(2));
+		assertEquals(2, queue.getPending());
+	}
+}